@@ -1,5 +1,8 @@
 -- Script configurazione Database
 
+-- Estensione per la ricerca per sottostringa con indici trigrammi
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 DROP TABLE IF EXISTS todo_links CASCADE;
 DROP TABLE IF EXISTS todo_condivisione CASCADE;
 DROP TABLE IF EXISTS todo CASCADE;
@@ -18,7 +21,7 @@ CREATE TABLE bacheca (
                          id_bacheca SERIAL PRIMARY KEY,
                          titolo VARCHAR(20) NOT NULL,
                          descrizione VARCHAR(50),
-                         posizioneB INTEGER DEFAULT 0,
+                         posizioneB BIGINT DEFAULT 0,
                          id_utente INTEGER NOT NULL,
 
                          CONSTRAINT fk_utente
@@ -35,10 +38,21 @@ CREATE TABLE todo (
                       data_scadenza DATE,
                       colore_sfondo VARCHAR(7),
                       immagine BYTEA,
+                      immagine_card BYTEA,
+                      immagine_miniatura BYTEA,
+                      immagine_hash VARCHAR(64),
+                      immagine_dimensione INTEGER NOT NULL DEFAULT 0,
                       stato BOOLEAN NOT NULL DEFAULT false,
-                      posizione INTEGER NOT NULL DEFAULT 0,
+                      posizione BIGINT NOT NULL DEFAULT 0,
                       id_bacheca INTEGER NOT NULL,
                       id_utente_creatore INTEGER NOT NULL,
+                      -- Copie di bacheca.id_utente e bacheca.titolo, mantenute dai trigger più sotto
+                      id_utente_proprietario INTEGER NOT NULL,
+                      titolo_bacheca VARCHAR(20) NOT NULL,
+                      ricerca TSVECTOR GENERATED ALWAYS AS (
+                          setweight(to_tsvector('italian', coalesce(titolo, '')), 'A') ||
+                          setweight(to_tsvector('italian', coalesce(descrizione, '')), 'B')
+                      ) STORED,
 
                       CONSTRAINT fk_bacheca
                           FOREIGN KEY(id_bacheca)
@@ -83,9 +97,57 @@ CREATE TABLE todo_condivisione (
                                    UNIQUE(id_todo, id_utente)
 );
 
+-- Denormalizzazione di proprietario e titolo della bacheca su TODO:
+-- le query sui ToDo filtrano per proprietario senza JOIN con BACHECA.
+
+-- Copia proprietario e titolo dalla bacheca all'inserimento e quando il ToDo cambia bacheca
+CREATE OR REPLACE FUNCTION todo_copia_bacheca() RETURNS trigger AS $$
+BEGIN
+    SELECT b.id_utente, b.titolo INTO NEW.id_utente_proprietario, NEW.titolo_bacheca
+    FROM bacheca b
+    WHERE b.id_bacheca = NEW.id_bacheca;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_todo_inserimento_bacheca
+    BEFORE INSERT ON todo
+    FOR EACH ROW EXECUTE FUNCTION todo_copia_bacheca();
+
+CREATE TRIGGER trg_todo_cambio_bacheca
+    BEFORE UPDATE OF id_bacheca ON todo
+    FOR EACH ROW
+    WHEN (OLD.id_bacheca IS DISTINCT FROM NEW.id_bacheca)
+    EXECUTE FUNCTION todo_copia_bacheca();
+
+-- Propaga ai ToDo le modifiche di titolo o proprietario della bacheca
+CREATE OR REPLACE FUNCTION bacheca_propaga_todo() RETURNS trigger AS $$
+BEGIN
+    UPDATE todo
+    SET id_utente_proprietario = NEW.id_utente, titolo_bacheca = NEW.titolo
+    WHERE id_bacheca = NEW.id_bacheca;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_bacheca_propaga_todo
+    AFTER UPDATE OF titolo, id_utente ON bacheca
+    FOR EACH ROW
+    WHEN (OLD.titolo IS DISTINCT FROM NEW.titolo OR OLD.id_utente IS DISTINCT FROM NEW.id_utente)
+    EXECUTE FUNCTION bacheca_propaga_todo();
+
 -- Creazione INDICI
 CREATE INDEX idx_bacheca_utente ON bacheca(id_utente);
-CREATE INDEX idx_todo_bacheca ON todo(id_bacheca);
+-- ToDo di una bacheca in ordine di posizione (copre anche la ricerca per sola bacheca)
+CREATE INDEX idx_todo_bacheca_posizione ON todo(id_bacheca, posizione);
+-- ToDo di un utente per data di scadenza (calendario, caricamento del workspace)
+CREATE INDEX idx_todo_proprietario_scadenza ON todo(id_utente_proprietario, data_scadenza);
+-- ToDo aperti di un utente in scadenza (vista "In scadenza")
+CREATE INDEX idx_todo_proprietario_aperti ON todo(id_utente_proprietario, data_scadenza) WHERE stato = false;
 CREATE INDEX idx_links_todo ON todo_links(id_todo);
 CREATE INDEX idx_condivisione_todo ON todo_condivisione(id_todo);
-CREATE INDEX idx_condivisione_utente ON todo_condivisione(id_utente);
\ No newline at end of file
+-- ToDo condivisi con un utente, senza accedere alla tabella (index-only scan)
+CREATE INDEX idx_condivisione_utente ON todo_condivisione(id_utente, id_todo);
+CREATE INDEX idx_todo_ricerca ON todo USING GIN (ricerca);
+CREATE INDEX idx_todo_titolo_trgm ON todo USING GIN (titolo gin_trgm_ops);
+CREATE INDEX idx_todo_descrizione_trgm ON todo USING GIN (descrizione gin_trgm_ops);
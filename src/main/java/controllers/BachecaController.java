@@ -4,9 +4,12 @@ import dao.BachecaDAO;
 import dao.postgresimpl.PostgresBachecaDAO;
 import model.Bacheca;
 import model.TitoloBacheca;
+import model.ToDo;
 import model.Utente;
+import util.Rango;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller (Control) responsabile della gestione delle bacheche.
@@ -17,7 +20,7 @@ import java.util.*;
  * <li>Caricamento delle bacheche dal database (o creazione di quelle di default per i nuovi utenti).</li>
  * <li>Aggiunta e rimozione di bacheche, garantendo la coerenza dei dati.</li>
  * <li>Gestione dell'ordinamento personalizzato delle bacheche (campo {@code posizioneB}).</li>
- * <li>Notifica agli osservatori (View) quando lo stato del modello cambia.</li>
+ * <li>Pubblicazione degli {@link Evento} di modifica sul {@link BusEventi} condiviso con le viste.</li>
  * </ul>
  */
 public class BachecaController {
@@ -28,9 +31,15 @@ public class BachecaController {
     private List<Bacheca> bacheche;
 
     /**
-     * Lista di listener (osservatori) da notificare in caso di cambiamenti.
+     * Canale su cui vengono pubblicati gli eventi di modifica di bacheche e ToDo.
      */
-    private final List<Runnable> listeners = new ArrayList<>();
+    private final BusEventi busEventi = new BusEventi();
+
+    /**
+     * Coda delle operazioni sul database, condivisa con il {@link ToDoController}
+     * così che le scritture di bacheche e ToDo restino nello stesso ordine.
+     */
+    private final CodaScritture codaScritture = new CodaScritture();
 
     /**
      * L'utente attualmente loggato nel sistema.
@@ -64,6 +73,8 @@ public class BachecaController {
      * Se l'utente non ha ancora nessuna bacheca (es. primo accesso),
      * il metodo crea automaticamente le tre bacheche di default (Università, Lavoro, Tempo Libero),
      * le salva nel database e le carica in memoria.
+     * Se le chiavi di ordinamento lette sono troppo ravvicinate (es. dati con posizioni 0, 1, 2),
+     * vengono ridistribuite.
      */
     private void loadBachecheFromDB() {
         List<Bacheca> bachecheList = bachecaDAO.getBachecheByUtente(utenteLoggato.getIdUtente());
@@ -75,33 +86,30 @@ public class BachecaController {
                     TitoloBacheca.LAVORO,
                     TitoloBacheca.TEMPO_LIBERO)) {
 
-                Bacheca nuovaBacheca = new Bacheca(t, "", utenteLoggato.getIdUtente(), pos++);
+                Bacheca nuovaBacheca = new Bacheca(t, "", utenteLoggato.getIdUtente(), Rango.distribuisci(pos++));
                 bachecaDAO.addBacheca(nuovaBacheca);
                 bachecheList.add(nuovaBacheca);
             }
         }
 
         this.bacheche = bachecheList;
+
+        for (int i = 1; i < bacheche.size(); i++) {
+            if (bacheche.get(i).getPosizioneB() - bacheche.get(i - 1).getPosizioneB() < Rango.SOGLIA_RIBILANCIAMENTO) {
+                salvaOrdineBacheche();
+                break;
+            }
+        }
     }
 
     /**
-     * Registra un listener che verrà eseguito ogni volta che il modello delle bacheche cambia.
+     * Restituisce il canale degli eventi di modifica, a cui le viste possono iscriversi
+     * e su cui gli altri controller pubblicano i propri eventi.
      *
-     * @param listener Un oggetto {@link Runnable} contenente la logica di aggiornamento (es. refresh della UI).
+     * @return Il {@link BusEventi} dell'utente corrente.
      */
-    public void addChangeListener(Runnable listener) {
-        listeners.add(listener);
-    }
-
-    /**
-     * Notifica tutti i listener registrati di un cambiamento nel modello.
-     * I listener vengono eseguiti in sequenza. Eventuali eccezioni nei listener vengono ignorate
-     * per non interrompere il flusso di notifica.
-     */
-    private void notifyListeners() {
-        for (Runnable l : listeners) {
-            try { l.run(); } catch (Exception ignored) { }
-        }
+    public BusEventi getBusEventi() {
+        return busEventi;
     }
 
     /**
@@ -132,13 +140,18 @@ public class BachecaController {
      * Aggiunge una nuova bacheca per l'utente.
      * <p>
      * Verifica che il titolo sia valido e che la bacheca non esista già.
-     * La nuova bacheca viene posizionata alla fine della lista.
+     * La nuova bacheca viene posizionata alla fine della lista, con una chiave successiva all'ultima.
+     * <p>
+     * La bacheca è aggiunta subito in memoria e salvata in background; se il salvataggio fallisce
+     * viene rimossa. Finché l'inserimento non è completato il suo ID vale {@code 0}
+     * (vedi {@link #isSalvata(Bacheca)}).
      *
      * @param titolo      Il titolo della nuova bacheca.
      * @param descrizione Una descrizione opzionale.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      * @throws IllegalArgumentException Se il titolo non è valido o la bacheca esiste già.
      */
-    public void aggiungiBacheca(TitoloBacheca titolo, String descrizione) {
+    public CompletableFuture<Void> aggiungiBacheca(TitoloBacheca titolo, String descrizione) {
         if (!EnumSet.of(TitoloBacheca.UNIVERSITA, TitoloBacheca.LAVORO, TitoloBacheca.TEMPO_LIBERO)
                 .contains(titolo)) {
             throw new IllegalArgumentException("Titolo non valido");
@@ -148,26 +161,52 @@ public class BachecaController {
             throw new IllegalArgumentException("Bacheca '" + titolo + "' già esistente");
         }
 
-        int nuovaPosizione = this.bacheche.size();
+        long nuovaPosizione = bacheche.isEmpty()
+                ? Rango.distribuisci(0)
+                : Rango.dopo(bacheche.get(bacheche.size() - 1).getPosizioneB());
         Bacheca nuovaBacheca = new Bacheca(titolo, descrizione != null ? descrizione : "", utenteLoggato.getIdUtente(), nuovaPosizione);
 
-        bachecaDAO.addBacheca(nuovaBacheca);
-
         bacheche.add(nuovaBacheca);
+        busEventi.pubblica(new Evento.BachecaAggiunta(nuovaBacheca));
 
-        notifyListeners();
+        Bacheca copia = new Bacheca(titolo, nuovaBacheca.getDescrizione(), nuovaBacheca.getIdUtente(), nuovaPosizione);
+        return codaScritture.scrivi(() -> {
+                    bachecaDAO.addBacheca(copia);
+                    // Assegnato qui, così le scritture accodate dopo vedono già l'ID
+                    nuovaBacheca.setId(copia.getIdBacheca());
+                })
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    bacheche.remove(nuovaBacheca);
+                    busEventi.pubblica(new Evento.BachecaEliminata(nuovaBacheca));
+                    busEventi.pubblica(new Evento.OperazioneFallita("Creazione della bacheca \"" + titolo + "\" non riuscita.", ex));
+                });
+    }
+
+    /**
+     * Indica se l'inserimento di una bacheca nel database è completato.
+     * Le operazioni che scrivono l'ID della bacheca su altre righe (es. ToDo creati o spostati al suo interno)
+     * vanno rifiutate finché non lo è.
+     *
+     * @param bacheca La bacheca da verificare.
+     * @return {@code true} se la bacheca ha già un ID assegnato dal database.
+     */
+    public boolean isSalvata(Bacheca bacheca) {
+        return bacheca.getIdBacheca() != 0;
     }
 
     /**
      * Elimina una bacheca esistente.
      * <p>
-     * Rimuove la bacheca dal database e dalla memoria, quindi ricalcola e salva
-     * l'ordine delle bacheche rimanenti per evitare "buchi" nella sequenza delle posizioni.
+     * Rimuove subito la bacheca dalla memoria e ne accoda l'eliminazione dal database; se questa
+     * fallisce, la bacheca viene ripristinata nella sua posizione. Le chiavi di ordinamento sono
+     * distanziate, quindi le bacheche rimanenti non devono essere rinumerate.
      *
      * @param titolo Il titolo della bacheca da eliminare.
+     * @return Un future completato sull'EDT al termine dell'eliminazione.
      * @throws IllegalArgumentException Se la bacheca non esiste o è l'ultima rimasta (non è permesso avere zero bacheche).
      */
-    public void eliminaBacheca(TitoloBacheca titolo) {
+    public CompletableFuture<Void> eliminaBacheca(TitoloBacheca titolo) {
         Bacheca b = getBacheca(titolo);
         if (b == null) {
             throw new IllegalArgumentException("Bacheca '" + titolo + "' inesistente");
@@ -177,51 +216,103 @@ public class BachecaController {
             throw new IllegalArgumentException("Impossibile eliminare l'ultima bacheca.");
         }
 
-        bachecaDAO.deleteBacheca(b.getIdBacheca());
+        int indice = bacheche.indexOf(b);
         bacheche.remove(b);
+        busEventi.pubblica(new Evento.BachecaEliminata(b));
 
-        salvaOrdineBacheche();
-
-        notifyListeners();
+        // L'ID viene letto in coda: una bacheca appena creata lo riceve dalla scrittura precedente
+        return codaScritture.scrivi(() -> bachecaDAO.deleteBacheca(b.getIdBacheca()))
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    bacheche.add(Math.min(indice, bacheche.size()), b);
+                    busEventi.pubblica(new Evento.BachecaAggiunta(b));
+                    busEventi.pubblica(new Evento.OperazioneFallita("Eliminazione della bacheca \"" + titolo + "\" non riuscita.", ex));
+                });
     }
 
     /**
-     * Ricalcola e persiste l'ordine delle bacheche.
+     * Ridistribuisce e persiste le chiavi di ordinamento delle bacheche.
      * <p>
-     * Itera sulla lista in memoria e aggiorna il campo {@code posizioneB} nel database
-     * per ogni bacheca il cui indice è cambiato. Questo garantisce che l'ordine visivo
-     * venga mantenuto al prossimo avvio.
+     * Itera sulla lista in memoria, assegna chiavi equidistanziate e raccoglie le bacheche
+     * la cui chiave è cambiata, quindi aggiorna il campo {@code posizioneB} di tutte con
+     * un'unica operazione DAO. Questo garantisce che l'ordine visivo venga mantenuto al prossimo avvio.
      */
     private void salvaOrdineBacheche() {
+        int[] ids = new int[bacheche.size()];
+        long[] posizioni = new long[bacheche.size()];
+        int n = 0;
+
         for (int i = 0; i < bacheche.size(); i++) {
             Bacheca b = bacheche.get(i);
-            if (b.getPosizioneB() != i) {
-                b.setPosizioneB(i);
-                bachecaDAO.updateBacheca(b);
+            long chiave = Rango.distribuisci(i);
+            if (b.getPosizioneB() != chiave) {
+                b.setPosizioneB(chiave);
+                ids[n] = b.getIdBacheca();
+                posizioni[n] = chiave;
+                n++;
             }
         }
+
+        if (n > 0) {
+            int[] idsDaScrivere = Arrays.copyOf(ids, n);
+            long[] posizioniDaScrivere = Arrays.copyOf(posizioni, n);
+            codaScritture.scrivi(() -> bachecaDAO.updatePositions(utenteLoggato.getIdUtente(), idsDaScrivere, posizioniDaScrivere));
+        }
     }
 
     /**
      * Modifica la descrizione di una bacheca esistente.
+     * <p>
+     * La nuova descrizione è applicata subito in memoria e salvata in background;
+     * se il salvataggio fallisce viene ripristinata quella precedente.
      *
      * @param titolo           Il titolo della bacheca da modificare.
      * @param nuovaDescrizione La nuova descrizione da impostare.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void modificaDescrizioneBacheca(TitoloBacheca titolo, String nuovaDescrizione) {
+    public CompletableFuture<Void> modificaDescrizioneBacheca(TitoloBacheca titolo, String nuovaDescrizione) {
         Bacheca b = getBacheca(titolo);
-        if (b != null) {
-            b.setDescrizione(nuovaDescrizione);
-            bachecaDAO.updateBacheca(b);
-            notifyListeners();
-        }
+        if (b == null) return CompletableFuture.completedFuture(null);
+
+        String precedente = b.getDescrizione();
+        b.setDescrizione(nuovaDescrizione);
+        busEventi.pubblica(new Evento.BachecaModificata(b));
+
+        TitoloBacheca titoloB = b.getTitolo();
+        int idUtente = b.getIdUtente();
+        long posizione = b.getPosizioneB();
+        // L'ID viene letto in coda, come in eliminaBacheca
+        return codaScritture.scrivi(() -> bachecaDAO.updateBacheca(
+                        new Bacheca(b.getIdBacheca(), titoloB, nuovaDescrizione, idUtente, posizione)))
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    b.setDescrizione(precedente);
+                    busEventi.pubblica(new Evento.BachecaModificata(b));
+                    busEventi.pubblica(new Evento.OperazioneFallita("Modifica della bacheca \"" + titolo + "\" non riuscita.", ex));
+                });
+    }
+
+    /**
+     * Restituisce la coda delle operazioni sul database condivisa dai controller.
+     *
+     * @return La {@link CodaScritture} della sessione.
+     */
+    CodaScritture getCodaScritture() {
+        return codaScritture;
     }
 
     /**
-     * Metodo di utilità per forzare la notifica di cambiamento ai listener.
-     * Utilizzato da altri controller per segnalare modifiche indirette (es. modifica di un ToDo).
+     * Restituisce la bacheca che contiene un determinato ToDo.
+     *
+     * @param td Il ToDo da cercare.
+     * @return La bacheca che lo contiene, o {@code null} se non è in nessuna bacheca caricata.
      */
-    public void notifyChange() {
-        notifyListeners();
+    public Bacheca getBachecaDi(ToDo td) {
+        for (Bacheca b : bacheche) {
+            if (b.getToDos().contains(td)) {
+                return b;
+            }
+        }
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package controllers;
+
+import model.Bacheca;
+import model.CampoToDo;
+import model.ToDo;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Canale di pubblicazione degli {@link Evento} di modifica del modello.
+ * <p>
+ * I controller pubblicano un evento per ogni cambiamento; gli osservatori possono iscriversi
+ * a un singolo tipo di evento ({@link #iscrivi(Class, Consumer)}) oppure ricevere in un colpo solo
+ * tutti gli eventi di un ciclo ({@link #iscriviLotto(Consumer)}).
+ * <p>
+ * Gli eventi pubblicati durante lo stesso ciclo dell'Event Dispatch Thread vengono accodati e
+ * consegnati insieme, sull'EDT, al termine del ciclo. Prima della consegna vengono accorpati:
+ * più modifiche dello stesso ToDo diventano un unico {@link Evento.ToDoModificato} con l'unione
+ * dei campi, e le notifiche ripetute di condivisioni o bacheche modificate vengono ridotte a una.
+ */
+public class BusEventi {
+
+    private static final Logger LOGGER = Logger.getLogger(BusEventi.class.getName());
+
+    /**
+     * Iscrizione di un osservatore a un tipo di evento.
+     */
+    private static final class Iscrizione<E extends Evento> {
+        private final Class<E> tipo;
+        private final Consumer<? super E> osservatore;
+
+        private Iscrizione(Class<E> tipo, Consumer<? super E> osservatore) {
+            this.tipo = tipo;
+            this.osservatore = osservatore;
+        }
+
+        private void consegna(Evento evento) {
+            if (tipo.isInstance(evento)) osservatore.accept(tipo.cast(evento));
+        }
+    }
+
+    /**
+     * Osservatori iscritti a singoli tipi di evento.
+     */
+    private final List<Iscrizione<?>> iscrizioni = new CopyOnWriteArrayList<>();
+
+    /**
+     * Osservatori che ricevono l'intero lotto di eventi di un ciclo.
+     */
+    private final List<Consumer<List<Evento>>> osservatoriLotto = new CopyOnWriteArrayList<>();
+
+    /**
+     * Eventi pubblicati e non ancora consegnati.
+     */
+    private final List<Evento> inAttesa = new ArrayList<>();
+
+    /**
+     * Indica se la consegna degli eventi in attesa è già stata programmata sull'EDT.
+     */
+    private boolean consegnaProgrammata;
+
+    /**
+     * Iscrive un osservatore agli eventi di un tipo (incluse le sottoclassi;
+     * con {@code Evento.class} riceve tutti gli eventi, uno alla volta).
+     *
+     * @param tipo        La classe degli eventi di interesse.
+     * @param osservatore L'azione da eseguire sull'EDT per ogni evento.
+     * @param <E>         Il tipo di evento.
+     */
+    public <E extends Evento> void iscrivi(Class<E> tipo, Consumer<? super E> osservatore) {
+        iscrizioni.add(new Iscrizione<>(tipo, osservatore));
+    }
+
+    /**
+     * Iscrive un osservatore che riceve, una sola volta per ciclo, tutti gli eventi accorpati.
+     *
+     * @param osservatore L'azione da eseguire sull'EDT con la lista (non modificabile) degli eventi.
+     */
+    public void iscriviLotto(Consumer<List<Evento>> osservatore) {
+        osservatoriLotto.add(osservatore);
+    }
+
+    /**
+     * Pubblica un evento. Può essere invocato da qualsiasi thread:
+     * la consegna avviene sempre sull'EDT, insieme agli altri eventi dello stesso ciclo.
+     *
+     * @param evento L'evento da pubblicare.
+     */
+    public void pubblica(Evento evento) {
+        synchronized (inAttesa) {
+            inAttesa.add(evento);
+            if (consegnaProgrammata) return;
+            consegnaProgrammata = true;
+        }
+        SwingUtilities.invokeLater(this::consegna);
+    }
+
+    /**
+     * Consegna agli osservatori gli eventi accumulati, dopo averli accorpati.
+     */
+    private void consegna() {
+        List<Evento> eventi;
+        synchronized (inAttesa) {
+            eventi = new ArrayList<>(inAttesa);
+            inAttesa.clear();
+            consegnaProgrammata = false;
+        }
+        eventi = accorpa(eventi);
+        if (eventi.isEmpty()) return;
+
+        for (Evento evento : eventi) {
+            for (Iscrizione<?> iscrizione : iscrizioni) {
+                try {
+                    iscrizione.consegna(evento);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Errore in un osservatore degli eventi", e);
+                }
+            }
+        }
+
+        List<Evento> lotto = Collections.unmodifiableList(eventi);
+        for (Consumer<List<Evento>> osservatore : osservatoriLotto) {
+            try {
+                osservatore.accept(lotto);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Errore in un osservatore degli eventi", e);
+            }
+        }
+    }
+
+    /**
+     * Accorpa gli eventi ridondanti mantenendo l'ordine della prima occorrenza.
+     */
+    private static List<Evento> accorpa(List<Evento> eventi) {
+        List<Evento> risultato = new ArrayList<>(eventi.size());
+        Map<ToDo, Integer> modifiche = new IdentityHashMap<>();
+        Map<ToDo, Boolean> condivisioni = new IdentityHashMap<>();
+        Map<Bacheca, Boolean> bacheche = new IdentityHashMap<>();
+
+        for (Evento e : eventi) {
+            if (e instanceof Evento.ToDoModificato) {
+                Evento.ToDoModificato m = (Evento.ToDoModificato) e;
+                Integer indice = modifiche.get(m.getToDo());
+                if (indice == null) {
+                    modifiche.put(m.getToDo(), risultato.size());
+                    risultato.add(m);
+                } else {
+                    Evento.ToDoModificato prec = (Evento.ToDoModificato) risultato.get(indice);
+                    EnumSet<CampoToDo> campi = EnumSet.noneOf(CampoToDo.class);
+                    campi.addAll(prec.getCampi());
+                    campi.addAll(m.getCampi());
+                    risultato.set(indice, new Evento.ToDoModificato(m.getToDo(), m.getBacheca(), campi));
+                }
+            } else if (e instanceof Evento.CondivisioniModificate) {
+                if (condivisioni.put(((Evento.CondivisioniModificate) e).getToDo(), Boolean.TRUE) == null) risultato.add(e);
+            } else if (e instanceof Evento.BachecaModificata) {
+                if (bacheche.put(((Evento.BachecaModificata) e).getBacheca(), Boolean.TRUE) == null) risultato.add(e);
+            } else {
+                risultato.add(e);
+            }
+        }
+        return risultato;
+    }
+}
@@ -0,0 +1,93 @@
+package controllers;
+
+import database.TransactionManager;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Esecutore delle operazioni sul database dei controller, fuori dall'Event Dispatch Thread.
+ * <p>
+ * Le scritture vengono accodate a un unico thread virtuale e quindi eseguite una alla volta,
+ * nell'ordine in cui i controller le hanno decise in memoria: un aggiornamento non può mai
+ * sorpassare l'inserimento o lo spostamento che lo precede. Le letture (es. ricerca utenti)
+ * girano invece in parallelo, ognuna su un proprio thread virtuale.
+ * <p>
+ * I future restituiti vengono completati sull'EDT, quindi le azioni concatenate
+ * (aggiornamento della GUI o annullamento delle modifiche in memoria) possono toccare
+ * modello e componenti Swing senza ulteriori sincronizzazioni.
+ */
+final class CodaScritture {
+
+    /**
+     * Esecutore seriale delle scritture.
+     */
+    private final ExecutorService scritture = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("scritture-db").factory());
+
+    /**
+     * Esecutore delle letture, un thread virtuale per richiesta.
+     */
+    private final ExecutorService letture = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("letture-db-", 0).factory());
+
+    /**
+     * Accoda una scrittura.
+     *
+     * @param operazione L'operazione da eseguire sul database.
+     * @param <T>        Il tipo del risultato.
+     * @return Un future completato sull'EDT con il risultato o con l'eccezione sollevata.
+     */
+    <T> CompletableFuture<T> scrivi(Supplier<T> operazione) {
+        return suEdt(CompletableFuture.supplyAsync(operazione, scritture));
+    }
+
+    /**
+     * Accoda una scrittura composta da più istruzioni (es. inserimento di un ToDo con i suoi link),
+     * eseguita in un'unica transazione: viene confermata con un solo commit oppure annullata per intero.
+     *
+     * @param operazione Le operazioni da eseguire sul database.
+     * @param <T>        Il tipo del risultato.
+     * @return Un future completato sull'EDT con il risultato o con l'eccezione sollevata.
+     */
+    <T> CompletableFuture<T> scriviInTransazione(Supplier<T> operazione) {
+        return scrivi(() -> TransactionManager.inTransaction(operazione));
+    }
+
+    /**
+     * Accoda una scrittura senza risultato.
+     *
+     * @param operazione L'operazione da eseguire sul database.
+     * @return Un future completato sull'EDT al termine dell'operazione.
+     */
+    CompletableFuture<Void> scrivi(Runnable operazione) {
+        return suEdt(CompletableFuture.runAsync(operazione, scritture));
+    }
+
+    /**
+     * Esegue una lettura in parallelo alle altre operazioni.
+     *
+     * @param operazione L'interrogazione da eseguire.
+     * @param <T>        Il tipo del risultato.
+     * @return Un future completato sull'EDT con il risultato.
+     */
+    <T> CompletableFuture<T> leggi(Supplier<T> operazione) {
+        return suEdt(CompletableFuture.supplyAsync(operazione, letture));
+    }
+
+    private static <T> CompletableFuture<T> suEdt(CompletableFuture<T> sorgente) {
+        CompletableFuture<T> risultato = new CompletableFuture<>();
+        sorgente.whenComplete((valore, ex) -> SwingUtilities.invokeLater(() -> {
+            if (ex == null) {
+                risultato.complete(valore);
+            } else {
+                risultato.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        }));
+        return risultato;
+    }
+}
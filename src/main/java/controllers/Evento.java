@@ -0,0 +1,198 @@
+package controllers;
+
+import model.Bacheca;
+import model.CampoToDo;
+import model.ToDo;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Evento di modifica del modello pubblicato dai controller sul {@link BusEventi}.
+ * <p>
+ * Ogni sottoclasse descrive un tipo di cambiamento e trasporta le informazioni necessarie
+ * agli osservatori (viste, cache, indici) per applicare un aggiornamento mirato invece
+ * di ricaricare tutto.
+ */
+public abstract class Evento {
+
+    /**
+     * Costruttore riservato alle sottoclassi definite in questo file.
+     */
+    private Evento() {
+    }
+
+    /**
+     * Un nuovo ToDo è stato creato in una bacheca.
+     */
+    public static final class ToDoCreato extends Evento {
+        private final ToDo todo;
+        private final Bacheca bacheca;
+
+        ToDoCreato(ToDo todo, Bacheca bacheca) {
+            this.todo = todo;
+            this.bacheca = bacheca;
+        }
+
+        /** @return Il ToDo creato. */
+        public ToDo getToDo() { return todo; }
+
+        /** @return La bacheca in cui è stato creato. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * Uno o più campi di un ToDo sono stati modificati.
+     */
+    public static final class ToDoModificato extends Evento {
+        private final ToDo todo;
+        private final Bacheca bacheca;
+        private final Set<CampoToDo> campi;
+
+        ToDoModificato(ToDo todo, Bacheca bacheca, Set<CampoToDo> campi) {
+            this.todo = todo;
+            this.bacheca = bacheca;
+            this.campi = campi.isEmpty()
+                    ? Collections.emptySet()
+                    : Collections.unmodifiableSet(EnumSet.copyOf(campi));
+        }
+
+        /** @return Il ToDo modificato. */
+        public ToDo getToDo() { return todo; }
+
+        /** @return La bacheca che contiene il ToDo, o {@code null} se non è in nessuna bacheca caricata. */
+        public Bacheca getBacheca() { return bacheca; }
+
+        /** @return I campi modificati. */
+        public Set<CampoToDo> getCampi() { return campi; }
+    }
+
+    /**
+     * Un ToDo è stato spostato in un'altra posizione, nella stessa bacheca o in un'altra.
+     */
+    public static final class ToDoSpostato extends Evento {
+        private final ToDo todo;
+        private final Bacheca da;
+        private final Bacheca a;
+        private final int indice;
+
+        ToDoSpostato(ToDo todo, Bacheca da, Bacheca a, int indice) {
+            this.todo = todo;
+            this.da = da;
+            this.a = a;
+            this.indice = indice;
+        }
+
+        /** @return Il ToDo spostato. */
+        public ToDo getToDo() { return todo; }
+
+        /** @return La bacheca di origine, o {@code null} se sconosciuta. */
+        public Bacheca getDa() { return da; }
+
+        /** @return La bacheca di destinazione. */
+        public Bacheca getA() { return a; }
+
+        /** @return L'indice del ToDo nella lista della bacheca di destinazione. */
+        public int getIndice() { return indice; }
+    }
+
+    /**
+     * Un ToDo è stato eliminato.
+     */
+    public static final class ToDoEliminato extends Evento {
+        private final ToDo todo;
+        private final Bacheca bacheca;
+
+        ToDoEliminato(ToDo todo, Bacheca bacheca) {
+            this.todo = todo;
+            this.bacheca = bacheca;
+        }
+
+        /** @return Il ToDo eliminato. */
+        public ToDo getToDo() { return todo; }
+
+        /** @return La bacheca che lo conteneva, o {@code null} se sconosciuta. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * Le condivisioni di un ToDo sono cambiate (aggiunta, modifica del permesso o revoca).
+     */
+    public static final class CondivisioniModificate extends Evento {
+        private final ToDo todo;
+        private final Bacheca bacheca;
+
+        CondivisioniModificate(ToDo todo, Bacheca bacheca) {
+            this.todo = todo;
+            this.bacheca = bacheca;
+        }
+
+        /** @return Il ToDo le cui condivisioni sono cambiate. */
+        public ToDo getToDo() { return todo; }
+
+        /** @return La bacheca che contiene il ToDo, o {@code null} se sconosciuta. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * Una nuova bacheca è stata aggiunta.
+     */
+    public static final class BachecaAggiunta extends Evento {
+        private final Bacheca bacheca;
+
+        BachecaAggiunta(Bacheca bacheca) {
+            this.bacheca = bacheca;
+        }
+
+        /** @return La bacheca aggiunta. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * I dati di una bacheca (es. la descrizione) sono stati modificati.
+     */
+    public static final class BachecaModificata extends Evento {
+        private final Bacheca bacheca;
+
+        BachecaModificata(Bacheca bacheca) {
+            this.bacheca = bacheca;
+        }
+
+        /** @return La bacheca modificata. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * Una bacheca è stata eliminata insieme ai suoi ToDo.
+     */
+    public static final class BachecaEliminata extends Evento {
+        private final Bacheca bacheca;
+
+        BachecaEliminata(Bacheca bacheca) {
+            this.bacheca = bacheca;
+        }
+
+        /** @return La bacheca eliminata. */
+        public Bacheca getBacheca() { return bacheca; }
+    }
+
+    /**
+     * Un'operazione sul database è fallita e la modifica già applicata in memoria è stata annullata.
+     */
+    public static final class OperazioneFallita extends Evento {
+        private final String messaggio;
+        private final Throwable causa;
+
+        OperazioneFallita(String messaggio, Throwable causa) {
+            this.messaggio = messaggio;
+            this.causa = causa;
+        }
+
+        /** @return Una descrizione dell'operazione annullata, adatta all'utente. */
+        public String getMessaggio() { return messaggio; }
+
+        /** @return L'eccezione che ha causato il fallimento. */
+        public Throwable getCausa() { return causa; }
+    }
+}
@@ -0,0 +1,211 @@
+package controllers;
+
+import model.ToDo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indice invertito in memoria per la ricerca testuale dei ToDo caricati.
+ * <p>
+ * Per ogni ToDo indicizza tutti gli n-grammi (da 1 a {@link #N_MAX} caratteri) del titolo e della
+ * descrizione, in minuscolo. Una query:
+ * <ul>
+ * <li>di al massimo {@link #N_MAX} caratteri corrisponde esattamente a una lista di occorrenze;</li>
+ * <li>più lunga viene risolta intersecando le liste dei suoi trigrammi (partendo dalla più corta)
+ * e verificando i soli candidati rimasti sul testo già normalizzato.</li>
+ * </ul>
+ * L'indice è aggiornato in modo incrementale dal {@link ToDoController} a ogni creazione,
+ * modifica o eliminazione, quindi una ricerca non scandisce né rialloca nulla per i ToDo non pertinenti.
+ * I risultati sono restituiti nell'ordine in cui i ToDo sono stati indicizzati.
+ */
+class IndiceRicerca {
+
+    /**
+     * Lunghezza massima degli n-grammi indicizzati.
+     */
+    private static final int N_MAX = 3;
+
+    /**
+     * Separatore tra titolo e descrizione nel testo indicizzato: non può comparire in una query
+     * digitata, quindi nessuna corrispondenza può "scavalcare" i due campi.
+     */
+    private static final char SEPARATORE = '\u0000';
+
+    /**
+     * Liste di occorrenze: n-gramma {@code ->} ToDo che lo contengono.
+     */
+    private final Map<String, Set<ToDo>> occorrenze = new HashMap<>();
+
+    /**
+     * Voci indicizzate, per identità del ToDo.
+     */
+    private final Map<ToDo, Voce> voci = new IdentityHashMap<>();
+
+    /**
+     * Contatore per l'ordine di indicizzazione.
+     */
+    private long prossimaSequenza;
+
+    /**
+     * Stato indicizzato di un singolo ToDo.
+     */
+    private static final class Voce {
+        private final long sequenza;
+        private String testo;
+
+        private Voce(long sequenza, String testo) {
+            this.sequenza = sequenza;
+            this.testo = testo;
+        }
+    }
+
+    /**
+     * Svuota l'indice e vi inserisce i ToDo indicati, nell'ordine dato.
+     *
+     * @param todos I ToDo da indicizzare.
+     */
+    void ricostruisci(Collection<ToDo> todos) {
+        occorrenze.clear();
+        voci.clear();
+        for (ToDo td : todos) {
+            aggiungi(td);
+        }
+    }
+
+    /**
+     * Indicizza un ToDo. Se è già presente, equivale a {@link #aggiorna(ToDo)}.
+     *
+     * @param td Il ToDo da indicizzare.
+     */
+    void aggiungi(ToDo td) {
+        if (voci.containsKey(td)) {
+            aggiorna(td);
+            return;
+        }
+        String testo = normalizza(td);
+        voci.put(td, new Voce(prossimaSequenza++, testo));
+        for (String g : ngrammi(testo)) {
+            occorrenze.computeIfAbsent(g, k -> new HashSet<>()).add(td);
+        }
+    }
+
+    /**
+     * Reindicizza un ToDo dopo una modifica di titolo o descrizione,
+     * aggiornando solo gli n-grammi effettivamente cambiati.
+     *
+     * @param td Il ToDo modificato.
+     */
+    void aggiorna(ToDo td) {
+        Voce voce = voci.get(td);
+        if (voce == null) {
+            aggiungi(td);
+            return;
+        }
+        String nuovo = normalizza(td);
+        if (nuovo.equals(voce.testo)) return;
+
+        Set<String> vecchi = ngrammi(voce.testo);
+        Set<String> nuovi = ngrammi(nuovo);
+        for (String g : vecchi) {
+            if (!nuovi.contains(g)) rimuoviOccorrenza(g, td);
+        }
+        for (String g : nuovi) {
+            if (!vecchi.contains(g)) occorrenze.computeIfAbsent(g, k -> new HashSet<>()).add(td);
+        }
+        voce.testo = nuovo;
+    }
+
+    /**
+     * Rimuove un ToDo dall'indice.
+     *
+     * @param td Il ToDo da rimuovere.
+     */
+    void rimuovi(ToDo td) {
+        Voce voce = voci.remove(td);
+        if (voce == null) return;
+        for (String g : ngrammi(voce.testo)) {
+            rimuoviOccorrenza(g, td);
+        }
+    }
+
+    /**
+     * Cerca i ToDo il cui titolo o descrizione contiene la stringa data (senza distinzione maiuscole/minuscole).
+     *
+     * @param query La stringa di ricerca.
+     * @return I ToDo corrispondenti, nell'ordine di indicizzazione.
+     */
+    List<ToDo> cerca(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<ToDo> risultati = new ArrayList<>();
+
+        if (q.isEmpty()) {
+            risultati.addAll(voci.keySet());
+        } else if (q.length() <= N_MAX) {
+            risultati.addAll(occorrenze.getOrDefault(q, Set.of()));
+        } else {
+            List<Set<ToDo>> liste = new ArrayList<>();
+            for (String g : ngrammiDiLunghezza(q, N_MAX)) {
+                Set<ToDo> lista = occorrenze.get(g);
+                if (lista == null) return risultati;
+                liste.add(lista);
+            }
+            liste.sort(Comparator.comparingInt(Set::size));
+
+            Set<ToDo> piuCorta = liste.get(0);
+            for (ToDo td : piuCorta) {
+                if (inTutte(td, liste) && voci.get(td).testo.contains(q)) {
+                    risultati.add(td);
+                }
+            }
+        }
+
+        risultati.sort(Comparator.comparingLong(td -> voci.get(td).sequenza));
+        return risultati;
+    }
+
+    private boolean inTutte(ToDo td, List<Set<ToDo>> liste) {
+        for (int i = 1; i < liste.size(); i++) {
+            if (!liste.get(i).contains(td)) return false;
+        }
+        return true;
+    }
+
+    private void rimuoviOccorrenza(String g, ToDo td) {
+        Set<ToDo> lista = occorrenze.get(g);
+        if (lista == null) return;
+        lista.remove(td);
+        if (lista.isEmpty()) occorrenze.remove(g);
+    }
+
+    private static String normalizza(ToDo td) {
+        String titolo = td.getTitolo() != null ? td.getTitolo() : "";
+        String descrizione = td.getDescrizione() != null ? td.getDescrizione() : "";
+        return (titolo + SEPARATORE + descrizione).toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> ngrammi(String testo) {
+        Set<String> g = new HashSet<>();
+        for (int n = 1; n <= N_MAX; n++) {
+            g.addAll(ngrammiDiLunghezza(testo, n));
+        }
+        return g;
+    }
+
+    private static Set<String> ngrammiDiLunghezza(String testo, int n) {
+        Set<String> g = new HashSet<>();
+        for (int i = 0; i + n <= testo.length(); i++) {
+            String s = testo.substring(i, i + n);
+            if (s.indexOf(SEPARATORE) < 0) g.add(s);
+        }
+        return g;
+    }
+}
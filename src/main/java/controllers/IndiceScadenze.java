@@ -0,0 +1,123 @@
+package controllers;
+
+import model.ToDo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Indice in memoria dei ToDo caricati per data di scadenza.
+ * <p>
+ * Mantiene una {@link NavigableMap} {@code data -> ToDo} aggiornata dal {@link ToDoController}
+ * a ogni creazione, modifica o eliminazione. Le interrogazioni per data esatta, per intervallo
+ * e per attività scadute costano O(log n + k), senza scandire tutti i ToDo.
+ * I ToDo senza data di scadenza non vengono indicizzati.
+ */
+class IndiceScadenze {
+
+    /**
+     * ToDo raggruppati per data di scadenza, in ordine cronologico.
+     */
+    private final NavigableMap<LocalDate, Set<ToDo>> perData = new TreeMap<>();
+
+    /**
+     * Data con cui ogni ToDo è stato indicizzato, per identità, necessaria a rimuoverlo
+     * anche dopo che la sua data è stata modificata.
+     */
+    private final Map<ToDo, LocalDate> dateIndicizzate = new IdentityHashMap<>();
+
+    /**
+     * Svuota l'indice e vi inserisce i ToDo indicati.
+     *
+     * @param todos I ToDo da indicizzare.
+     */
+    void ricostruisci(Collection<ToDo> todos) {
+        perData.clear();
+        dateIndicizzate.clear();
+        for (ToDo td : todos) {
+            aggiorna(td);
+        }
+    }
+
+    /**
+     * Indicizza un ToDo nuovo o la cui data di scadenza potrebbe essere cambiata.
+     *
+     * @param td Il ToDo da (re)indicizzare.
+     */
+    void aggiorna(ToDo td) {
+        LocalDate nuova = td.getDataScadenza();
+        if (dateIndicizzate.containsKey(td) && Objects.equals(dateIndicizzate.get(td), nuova)) return;
+
+        rimuovi(td);
+        if (nuova == null) return;
+
+        perData.computeIfAbsent(nuova, k -> new LinkedHashSet<>()).add(td);
+        dateIndicizzate.put(td, nuova);
+    }
+
+    /**
+     * Rimuove un ToDo dall'indice.
+     *
+     * @param td Il ToDo da rimuovere.
+     */
+    void rimuovi(ToDo td) {
+        LocalDate vecchia = dateIndicizzate.remove(td);
+        if (vecchia == null) return;
+        Set<ToDo> gruppo = perData.get(vecchia);
+        if (gruppo == null) return;
+        gruppo.remove(td);
+        if (gruppo.isEmpty()) perData.remove(vecchia);
+    }
+
+    /**
+     * Restituisce i ToDo che scadono in una data specifica.
+     *
+     * @param data La data di scadenza.
+     * @return I ToDo corrispondenti.
+     */
+    List<ToDo> perData(LocalDate data) {
+        Set<ToDo> gruppo = perData.get(data);
+        return gruppo != null ? new ArrayList<>(gruppo) : new ArrayList<>();
+    }
+
+    /**
+     * Restituisce i ToDo che scadono in un intervallo di date (estremi inclusi), in ordine cronologico.
+     *
+     * @param da La prima data dell'intervallo.
+     * @param a  L'ultima data dell'intervallo.
+     * @return I ToDo corrispondenti.
+     */
+    List<ToDo> traDate(LocalDate da, LocalDate a) {
+        List<ToDo> risultati = new ArrayList<>();
+        if (a.isBefore(da)) return risultati;
+        for (Set<ToDo> gruppo : perData.subMap(da, true, a, true).values()) {
+            risultati.addAll(gruppo);
+        }
+        return risultati;
+    }
+
+    /**
+     * Restituisce i ToDo non completati con scadenza precedente a una data, in ordine cronologico.
+     *
+     * @param oggi La data di riferimento (esclusa).
+     * @return I ToDo scaduti e non completati.
+     */
+    List<ToDo> scadutiPrima(LocalDate oggi) {
+        List<ToDo> risultati = new ArrayList<>();
+        for (Set<ToDo> gruppo : perData.headMap(oggi, false).values()) {
+            for (ToDo td : gruppo) {
+                if (!td.isCompletato()) risultati.add(td);
+            }
+        }
+        return risultati;
+    }
+}
@@ -5,14 +5,17 @@ import model.TitoloBacheca;
 import model.Bacheca;
 import model.PermessoCondivisione;
 import model.Utente;
+import model.VarianteImmagine;
 import dao.ToDoDAO;
 import dao.UtenteDAO;
 import dao.postgresimpl.PostgresToDoDAO;
 import dao.postgresimpl.PostgresUtenteDAO;
 import database.DBConnection;
 
+import javax.swing.ImageIcon;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller principale (Facade/Boundary) dell'applicazione post-login.
@@ -45,7 +48,7 @@ public class MainController {
      * Costruisce il MainController.
      * <p>
      * Inizializza la catena di controller e i DAO necessari per l'utente che ha effettuato l'accesso.
-     * Configura le connessioni al database e prepara l'ambiente per la sessione utente.
+     * Configura l'accesso al pool di connessioni e prepara l'ambiente per la sessione utente.
      *
      * @param utente L'oggetto {@link Utente} che ha superato l'autenticazione.
      */
@@ -54,8 +57,8 @@ public class MainController {
 
         this.bachecaCtrl = new BachecaController(utenteLoggato);
 
-        UtenteDAO utenteDAO = new PostgresUtenteDAO(DBConnection.getConnection());
-        ToDoDAO todoDAO = new PostgresToDoDAO(DBConnection.getConnection(), utenteDAO);
+        UtenteDAO utenteDAO = new PostgresUtenteDAO(DBConnection.getDataSource());
+        ToDoDAO todoDAO = new PostgresToDoDAO(DBConnection.getDataSource(), utenteDAO);
 
         this.todoCtrl = new ToDoController(utenteLoggato, bachecaCtrl, todoDAO, utenteDAO);
     }
@@ -93,9 +96,10 @@ public class MainController {
      *
      * @param titolo           Il {@link TitoloBacheca} della bacheca da modificare.
      * @param nuovaDescrizione La nuova descrizione da impostare.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onEditBachecaDescrizione(TitoloBacheca titolo, String nuovaDescrizione) {
-        bachecaCtrl.modificaDescrizioneBacheca(titolo, nuovaDescrizione);
+    public CompletableFuture<Void> onEditBachecaDescrizione(TitoloBacheca titolo, String nuovaDescrizione) {
+        return bachecaCtrl.modificaDescrizioneBacheca(titolo, nuovaDescrizione);
     }
 
     // inizio modifica
@@ -106,9 +110,10 @@ public class MainController {
      *
      * @param datiNuovi L'oggetto ToDo contenente i dati inseriti dalla vista.
      * @param inBacheca Il {@link TitoloBacheca} di destinazione.
+     * @return Un future completato sull'EDT con il ToDo creato, una volta salvato.
      */
-    public void onAddToDo(ToDo datiNuovi, TitoloBacheca inBacheca) {
-        todoCtrl.creaToDo(datiNuovi, inBacheca);
+    public CompletableFuture<ToDo> onAddToDo(ToDo datiNuovi, TitoloBacheca inBacheca) {
+        return todoCtrl.creaToDo(datiNuovi, inBacheca);
     }
 
     /**
@@ -118,9 +123,10 @@ public class MainController {
      * @param td           Il {@link ToDo} target da modificare.
      * @param datiNuovi    Un oggetto ToDo contenente i nuovi dati da applicare.
      * @param nuovaBacheca La nuova bacheca di destinazione (gestisce lo spostamento).
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onEditToDo(ToDo td, ToDo datiNuovi, TitoloBacheca nuovaBacheca) {
-        todoCtrl.modificaToDo(td, datiNuovi, nuovaBacheca);
+    public CompletableFuture<Void> onEditToDo(ToDo td, ToDo datiNuovi, TitoloBacheca nuovaBacheca) {
+        return todoCtrl.modificaToDo(td, datiNuovi, nuovaBacheca);
     }
 
     //fine modifica
@@ -131,9 +137,10 @@ public class MainController {
      *
      * @param titolo      Il {@link TitoloBacheca} della nuova bacheca.
      * @param descrizione La descrizione opzionale.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onAddBacheca(TitoloBacheca titolo, String descrizione) {
-        bachecaCtrl.aggiungiBacheca(titolo, descrizione);
+    public CompletableFuture<Void> onAddBacheca(TitoloBacheca titolo, String descrizione) {
+        return bachecaCtrl.aggiungiBacheca(titolo, descrizione);
     }
 
     /**
@@ -141,9 +148,22 @@ public class MainController {
      * Inoltra la richiesta al {@link BachecaController}.
      *
      * @param titolo Il {@link TitoloBacheca} della bacheca da eliminare.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onDeleteBacheca(TitoloBacheca titolo) {
-        bachecaCtrl.eliminaBacheca(titolo);
+    public CompletableFuture<Void> onDeleteBacheca(TitoloBacheca titolo) {
+        return bachecaCtrl.eliminaBacheca(titolo);
+    }
+
+    /**
+     * Metodo ponte per avviare il caricamento in background dell'immagine di un ToDo.
+     * Inoltra la richiesta al {@link ToDoController}.
+     *
+     * @param td       Il {@link ToDo}.
+     * @param variante La {@link VarianteImmagine} minima richiesta.
+     * @return Un future completato con l'immagine sull'Event Dispatch Thread.
+     */
+    public CompletableFuture<ImageIcon> caricaImmagineAsync(ToDo td, VarianteImmagine variante) {
+        return todoCtrl.caricaImmagineAsync(td, variante);
     }
 
     /**
@@ -151,9 +171,10 @@ public class MainController {
      * Inoltra la richiesta al {@link ToDoController}.
      *
      * @param td Il {@link ToDo} da eliminare.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onDeleteToDo(ToDo td) {
-        todoCtrl.eliminaToDo(td);
+    public CompletableFuture<Void> onDeleteToDo(ToDo td) {
+        return todoCtrl.eliminaToDo(td);
     }
 
     /**
@@ -162,9 +183,10 @@ public class MainController {
      *
      * @param td    Il {@link ToDo} da aggiornare.
      * @param stato {@code true} se completato, {@code false} altrimenti.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onToggleCompletato(ToDo td, boolean stato) {
-        todoCtrl.setCompletato(td, stato);
+    public CompletableFuture<Void> onToggleCompletato(ToDo td, boolean stato) {
+        return todoCtrl.setCompletato(td, stato);
     }
 
     /**
@@ -188,14 +210,46 @@ public class MainController {
         return todoCtrl.getToDoByDate(date);
     }
 
+    /**
+     * Recupera i ToDo in scadenza in un intervallo di date (estremi inclusi).
+     * Utile per viste del tipo "prossimi giorni".
+     *
+     * @param da La prima data dell'intervallo.
+     * @param a  L'ultima data dell'intervallo.
+     * @return Una lista di {@link ToDo} in ordine cronologico.
+     */
+    public List<ToDo> getScadenzeTra(LocalDate da, LocalDate a) {
+        return todoCtrl.getToDoTraDate(da, a);
+    }
+
+    /**
+     * Recupera i ToDo in scadenza da oggi ai prossimi {@code giorni} giorni inclusi.
+     *
+     * @param giorni Il numero di giorni successivi a oggi da considerare.
+     * @return Una lista di {@link ToDo} in ordine cronologico.
+     */
+    public List<ToDo> getScadenzeProssimiGiorni(int giorni) {
+        LocalDate oggi = LocalDate.now();
+        return todoCtrl.getToDoTraDate(oggi, oggi.plusDays(giorni));
+    }
+
+    /**
+     * Recupera i ToDo non completati già scaduti.
+     *
+     * @return Una lista di {@link ToDo} in ordine cronologico.
+     */
+    public List<ToDo> getToDoScaduti() {
+        return todoCtrl.getToDoScaduti();
+    }
+
     /**
      * Metodo ponte per cercare utenti nel sistema (per la funzionalità di condivisione).
      * Inoltra la richiesta al {@link ToDoController}.
      *
      * @param query La stringa di ricerca (username).
-     * @return La lista di {@link Utente} trovati.
+     * @return Un future completato sull'EDT con la lista di {@link Utente} trovati.
      */
-    public List<Utente> cercaUtenti(String query) {
+    public CompletableFuture<List<Utente>> cercaUtenti(String query) {
         return todoCtrl.cercaUtenti(query);
     }
 
@@ -206,9 +260,10 @@ public class MainController {
      * @param todo     Il {@link ToDo} da condividere.
      * @param utente   L'{@link Utente} con cui condividere.
      * @param permesso Il livello di {@link PermessoCondivisione} da assegnare.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onAggiungiCondivisione(ToDo todo, Utente utente, PermessoCondivisione permesso) {
-        todoCtrl.onAggiungiCondivisione(todo, utente, permesso);
+    public CompletableFuture<Void> onAggiungiCondivisione(ToDo todo, Utente utente, PermessoCondivisione permesso) {
+        return todoCtrl.onAggiungiCondivisione(todo, utente, permesso);
     }
 
     /**
@@ -218,9 +273,10 @@ public class MainController {
      * @param todo          Il {@link ToDo} interessato.
      * @param utente        L'{@link Utente} interessato.
      * @param nuovoPermesso Il nuovo livello di {@link PermessoCondivisione}.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onModificaPermesso(ToDo todo, Utente utente, PermessoCondivisione nuovoPermesso) {
-        todoCtrl.onModificaPermesso(todo, utente, nuovoPermesso);
+    public CompletableFuture<Void> onModificaPermesso(ToDo todo, Utente utente, PermessoCondivisione nuovoPermesso) {
+        return todoCtrl.onModificaPermesso(todo, utente, nuovoPermesso);
     }
 
     /**
@@ -229,9 +285,10 @@ public class MainController {
      *
      * @param todo   Il {@link ToDo} da cui rimuovere la condivisione.
      * @param utente L'{@link Utente} da rimuovere.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onRimuoviCondivisione(ToDo todo, Utente utente) {
-        todoCtrl.onRimuoviCondivisione(todo, utente);
+    public CompletableFuture<Void> onRimuoviCondivisione(ToDo todo, Utente utente) {
+        return todoCtrl.onRimuoviCondivisione(todo, utente);
     }
 
     /**
@@ -239,27 +296,35 @@ public class MainController {
      * Inoltra la richiesta al {@link ToDoController}.
      *
      * @param id L'ID dell'utente.
-     * @return L'oggetto {@link Utente} corrispondente.
+     * @return Un future completato sull'EDT con l'{@link Utente} corrispondente, o {@code null} se non trovato.
      */
-    public Utente getUtenteById(int id) {
+    public CompletableFuture<Utente> getUtenteById(int id) {
         return todoCtrl.getUtenteById(id);
     }
 
     /**
-     * Metodo ponte per salvare l'ordine dei ToDo in una bacheca.
+     * Metodo ponte per spostare un ToDo in una posizione di una bacheca.
      * Inoltra la richiesta al {@link ToDoController}, tipicamente dopo un'operazione di Drag &amp; Drop.
      *
-     * @param bacheca La {@link Bacheca} di cui salvare l'ordine.
+     * @param td      Il {@link ToDo} spostato.
+     * @param bacheca La {@link Bacheca} di destinazione.
+     * @param indice  L'indice di inserimento nella lista visiva.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onSalvaOrdineBacheca(Bacheca bacheca) {
-        todoCtrl.salvaOrdineBacheca(bacheca);
+    public CompletableFuture<Void> onSpostaToDo(ToDo td, Bacheca bacheca, int indice) {
+        return todoCtrl.spostaToDo(td, bacheca, indice);
     }
     /**
      * Elimina l'utente attualmente loggato dal database.
+     * <p>
+     * L'eliminazione viene accodata dopo le scritture ancora in sospeso, che quindi
+     * terminano prima che l'utente venga rimosso.
+     *
+     * @return Un future completato sull'EDT al termine dell'eliminazione.
      */
-    public void eliminaAccount() {
-        // Usiamo i DAO corretti come definito nel tuo costruttore
-        UtenteDAO utenteDAO = new PostgresUtenteDAO(DBConnection.getConnection());
-        utenteDAO.deleteUtenteById(utenteLoggato.getIdUtente());
+    public CompletableFuture<Void> eliminaAccount() {
+        UtenteDAO utenteDAO = new PostgresUtenteDAO(DBConnection.getDataSource());
+        int idUtente = utenteLoggato.getIdUtente();
+        return bachecaCtrl.getCodaScritture().scrivi(() -> utenteDAO.deleteUtenteById(idUtente));
     }
 }
\ No newline at end of file
@@ -4,13 +4,21 @@ import dao.ToDoDAO;
 import dao.UtenteDAO;
 import model.ToDo;
 import model.Bacheca;
+import model.CampoToDo;
 import model.PermessoCondivisione;
 import model.TitoloBacheca;
 import model.Utente;
+import model.VarianteImmagine;
+import util.Rango;
 
-
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Controller (Control) responsabile della gestione delle attività (ToDo).
@@ -48,6 +56,48 @@ public class ToDoController {
      */
     private final UtenteDAO utenteDAO;
 
+    /**
+     * Messaggio per le operazioni rifiutate su una bacheca non ancora salvata.
+     */
+    private static final String BACHECA_NON_SALVATA = "La bacheca è ancora in fase di salvataggio, riprova tra un istante.";
+
+    /**
+     * Numero di thread dedicati al caricamento su richiesta delle immagini.
+     */
+    private static final int THREAD_IMMAGINI = 2;
+
+    /**
+     * Esecutore in background per il caricamento delle immagini (thread daemon).
+     */
+    private final ExecutorService esecutoreImmagini = Executors.newFixedThreadPool(THREAD_IMMAGINI, r -> {
+        Thread t = new Thread(r, "caricamento-immagini");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Caricamenti di immagini in corso, per ID del ToDo e variante ({@code "id:VARIANTE"}):
+     * richieste ripetute condividono lo stesso risultato.
+     */
+    private final Map<String, CompletableFuture<ImageIcon>> caricamentiInCorso = new ConcurrentHashMap<>();
+
+    /**
+     * Indice invertito sui testi dei ToDo caricati, mantenuto aggiornato da creazione, modifica ed eliminazione.
+     */
+    private final IndiceRicerca indiceRicerca = new IndiceRicerca();
+
+    /**
+     * Indice dei ToDo caricati per data di scadenza, mantenuto aggiornato da creazione, modifica ed eliminazione.
+     */
+    private final IndiceScadenze indiceScadenze = new IndiceScadenze();
+
+    /**
+     * Coda delle operazioni sul database (condivisa con il {@link BachecaController}).
+     * Tutte le scritture vengono eseguite in background, nell'ordine in cui sono state decise
+     * in memoria; i risultati tornano sull'Event Dispatch Thread.
+     */
+    private final CodaScritture coda;
+
     /**
      * Costruisce un nuovo controller per i ToDo.
      * <p>
@@ -64,6 +114,11 @@ public class ToDoController {
         this.bachecaCtrl = bCtrl;
         this.todoDAO = todoDAO;
         this.utenteDAO = utenteDAO;
+        this.coda = bCtrl.getCodaScritture();
+
+        // Gli indici in memoria seguono gli eventi: i ToDo di una bacheca eliminata non devono più comparire
+        bCtrl.getBusEventi().iscrivi(Evento.BachecaEliminata.class, e -> onBachecaEliminata(e.getBacheca().getToDos()));
+        bCtrl.getBusEventi().iscrivi(Evento.BachecaAggiunta.class, e -> indicizza(e.getBacheca().getToDos()));
 
         loadToDosFromDB();
     }
@@ -71,47 +126,45 @@ public class ToDoController {
     /**
      * Carica i ToDo dal database e li associa alle rispettive bacheche in memoria.
      * <p>
-     * Per ogni bacheca dell'utente, recupera:
+     * Con un'unica operazione DAO ({@link ToDoDAO#loadWorkspace(int)}) recupera:
      * <ol>
      * <li>I ToDo creati dall'utente stesso.</li>
      * <li>I ToDo condivisi con l'utente da altri, che appartengono a una bacheca
      * con lo stesso titolo (es. un ToDo "Lavoro" condiviso apparirà nella bacheca "Lavoro").</li>
      * </ol>
-     * I risultati vengono uniti evitando duplicati (con priorità ai ToDo propri).
+     * I risultati arrivano già raggruppati per titolo e senza duplicati (con priorità ai ToDo propri),
+     * quindi il costo del caricamento non dipende dal numero di bacheche.
+     * Se la lettura fallisce viene sollevata una {@link dao.DAOException}: un'area di lavoro
+     * caricata a metà non va mostrata, perché le modifiche successive la scriverebbero nel database.
      */
     private void loadToDosFromDB() {
-        for (Bacheca b : bachecaCtrl.getAllBacheche()) {
-
-            List<ToDo> myToDos = todoDAO.getAllToDosByBacheca(b.getIdBacheca());
+        Map<TitoloBacheca, List<ToDo>> workspace = todoDAO.loadWorkspace(utenteLoggato.getIdUtente());
 
-            List<ToDo> sharedToDos = todoDAO.getSharedToDosForUser(
-                    utenteLoggato.getIdUtente(),
-                    b.getTitolo()
-            );
-
-            Map<Integer, ToDo> combined = new LinkedHashMap<>();
-            for (ToDo td : myToDos) {
-                combined.put(td.getIdToDo(), td);
-            }
-            for (ToDo td : sharedToDos) {
-                combined.putIfAbsent(td.getIdToDo(), td);
-            }
-
-            b.setToDos(new ArrayList<>(combined.values()));
+        for (Bacheca b : bachecaCtrl.getAllBacheche()) {
+            List<ToDo> toDos = workspace.get(b.getTitolo());
+            b.setToDos(toDos != null ? toDos : new ArrayList<>());
         }
+
+        List<ToDo> tutti = getAllToDos();
+        indiceRicerca.ricostruisci(tutti);
+        indiceScadenze.ricostruisci(tutti);
     }
 
     // inizio mod
 
     /**
-     * Crea un nuovo ToDo, lo salva nel database e aggiorna il modello in memoria.
+     * Crea un nuovo ToDo, lo aggiunge subito al modello in memoria e ne accoda il salvataggio nel database.
+     * <p>
+     * L'ID generato dal database viene assegnato al ToDo dal thread delle scritture, prima di
+     * qualsiasi altra scrittura accodata dopo. Se l'inserimento fallisce, il ToDo viene rimosso
+     * dalla bacheca e viene pubblicato un {@link Evento.OperazioneFallita}.
      *
      * @param datiNuovi L'oggetto ToDo contenente i dati inseriti dalla vista.
      * @param inBacheca Il titolo della bacheca di destinazione.
-     * @return L'oggetto {@link ToDo} creato e persistito.
+     * @return Un future completato sull'EDT con il ToDo creato, una volta salvato.
      * @throws IllegalArgumentException Se il titolo è vuoto, la data è nulla o la bacheca non esiste.
      */
-    public ToDo creaToDo(ToDo datiNuovi, TitoloBacheca inBacheca) {
+    public CompletableFuture<ToDo> creaToDo(ToDo datiNuovi, TitoloBacheca inBacheca) {
         if (datiNuovi.getTitolo() == null || datiNuovi.getTitolo().trim().isEmpty())
             throw new IllegalArgumentException("Titolo obbligatorio");
         if (datiNuovi.getDataScadenza() == null)
@@ -119,6 +172,7 @@ public class ToDoController {
 
         Bacheca b = bachecaCtrl.getBacheca(inBacheca);
         if (b == null) throw new IllegalArgumentException("Bacheca di destinazione non trovata: " + inBacheca);
+        verificaSalvata(b);
 
         // Creiamo la vera istanza da salvare combinando i dati passati e quelli di sistema
         ToDo td = new ToDo(datiNuovi.getTitolo(), b.getIdBacheca(), utenteLoggato.getIdUtente());
@@ -129,14 +183,99 @@ public class ToDoController {
         td.setColoreSfondo(datiNuovi.getColoreSfondo());
         td.setImmagine(datiNuovi.getImmagine());
 
-        td.setPosizione(b.getToDos().size());
-
-        todoDAO.addToDo(td);
+        td.setPosizione(rangoInCoda(b));
 
         b.aggiungiToDo(td);
+        indiceRicerca.aggiungi(td);
+        indiceScadenze.aggiorna(td);
+        bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoCreato(td, b));
+
+        ToDo copia = new ToDo(td);
+        td.pulisciModifiche();
+        return coda.scriviInTransazione(() -> {
+                    todoDAO.addToDo(copia);
+                    // Assegnato qui, così le scritture accodate dopo vedono già l'ID
+                    td.setId(copia.getIdToDo());
+                    return copia;
+                })
+                .thenApply(salvata -> {
+                    if (td.getImmagine() == salvata.getImmagine()) {
+                        td.setMetadatiImmagine(salvata.getImmagineHash(), salvata.getImmagineDimensione());
+                    }
+                    return td;
+                })
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    b.rimuoviToDo(td);
+                    indiceRicerca.rimuovi(td);
+                    indiceScadenze.rimuovi(td);
+                    bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoEliminato(td, b));
+                    segnalaFallimento("Creazione del ToDo \"" + td.getTitolo() + "\" non riuscita.", ex);
+                });
+    }
 
-        bachecaCtrl.notifyChange();
-        return td;
+    /**
+     * Avvia in background il caricamento dell'immagine di un ToDo nella variante indicata.
+     * Va invocato dall'Event Dispatch Thread, l'unico che legge e modifica l'immagine del ToDo.
+     * <p>
+     * Se in memoria c'è già un'immagine adatta (vedi {@link ToDo#isImmagineCaricata(VarianteImmagine)})
+     * il future è già completato. Altrimenti i byte vengono letti e decodificati in background e
+     * associati al ToDo sull'EDT, a meno che nel frattempo l'immagine del ToDo non sia cambiata
+     * (nuova immagine dell'utente o variante più grande); se nel frattempo è cambiata l'impronta,
+     * l'immagine viene riletta.
+     * <p>
+     * Se la lettura fallisce il future viene completato con l'eccezione e il ToDo resta da caricare,
+     * così una richiesta successiva ritenta.
+     *
+     * @param td       Il ToDo di cui caricare l'immagine.
+     * @param variante La variante minima richiesta.
+     * @return Un future completato sull'EDT con l'immagine (o {@code null} se assente).
+     */
+    public CompletableFuture<ImageIcon> caricaImmagineAsync(ToDo td, VarianteImmagine variante) {
+        if (td.isImmagineCaricata(variante)) return CompletableFuture.completedFuture(td.getImmagine());
+
+        int id = td.getIdToDo();
+        String chiave = id + ":" + variante;
+        CompletableFuture<ImageIcon> caricamento = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> inCorso = caricamentiInCorso.putIfAbsent(chiave, caricamento);
+        if (inCorso != null) return inCorso;
+        // Registrata solo dopo l'inserimento: la rimozione non può avvenire dentro l'aggiornamento della mappa
+        caricamento.whenComplete((img, ex) -> caricamentiInCorso.remove(chiave, caricamento));
+
+        String hash = td.getImmagineHash();
+        CompletableFuture
+                .supplyAsync(() -> todoDAO.getImmagine(id, variante), esecutoreImmagini)
+                .thenComposeAsync(img -> associaImmagine(td, hash, img, variante, caricamento),
+                        SwingUtilities::invokeLater)
+                .whenComplete((img, ex) -> {
+                    if (ex != null) caricamento.completeExceptionally(ex);
+                    else caricamento.complete(img);
+                });
+        return caricamento;
+    }
+
+    /**
+     * Associa al ToDo l'immagine appena caricata, se è ancora quella attesa. Eseguito sull'EDT.
+     *
+     * @param td          Il ToDo a cui appartiene l'immagine.
+     * @param hash        L'impronta dell'immagine al momento della richiesta.
+     * @param img         L'immagine letta dal database.
+     * @param variante    La variante letta.
+     * @param caricamento Il caricamento in corso, da sostituire se l'immagine va riletta.
+     * @return Un future con l'immagine da mostrare per il ToDo.
+     */
+    private CompletableFuture<ImageIcon> associaImmagine(ToDo td, String hash, ImageIcon img,
+                                                         VarianteImmagine variante,
+                                                         CompletableFuture<ImageIcon> caricamento) {
+        // Nuova immagine dell'utente o variante più grande già in memoria: quella in memoria vince
+        if (td.isImmagineCaricata(variante)) return CompletableFuture.completedFuture(td.getImmagine());
+        if (Objects.equals(hash, td.getImmagineHash())) {
+            td.setImmagineCaricata(img, variante);
+            return CompletableFuture.completedFuture(img);
+        }
+        // Impronta cambiata nel frattempo (ToDo ricaricato): i byte letti non le corrispondono più
+        caricamentiInCorso.remove(td.getIdToDo() + ":" + variante, caricamento);
+        return caricaImmagineAsync(td, variante);
     }
 
     /**
@@ -145,21 +284,27 @@ public class ToDoController {
      * Gestisce anche lo spostamento del ToDo da una bacheca all'altra, se la bacheca
      * di destinazione è diversa da quella corrente. In tal caso, aggiorna le posizioni
      * sia nella bacheca di origine che in quella di destinazione.
+     * <p>
+     * Le modifiche sono applicate subito in memoria e salvate in background;
+     * se il salvataggio fallisce i campi modificati tornano ai valori (e alla bacheca) precedenti,
+     * salvo quelli modificati di nuovo nel frattempo.
      *
      * @param td           Il ToDo da modificare.
      * @param nuoviDati    L'oggetto ToDo contenente i nuovi dati da applicare.
      * @param nuovaBacheca La nuova bacheca di appartenenza.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      * @throws IllegalArgumentException Se il ToDo passato è nullo.
      */
-    public void modificaToDo(ToDo td, ToDo nuoviDati, TitoloBacheca nuovaBacheca) {
+    public CompletableFuture<Void> modificaToDo(ToDo td, ToDo nuoviDati, TitoloBacheca nuovaBacheca) {
         if (td == null) throw new IllegalArgumentException("ToDo nullo");
 
-        Bacheca bachecaCorrente = bachecaCtrl.getAllBacheche().stream()
-                .filter(b -> b.getToDos().contains(td))
-                .findFirst()
-                .orElse(null);
+        ToDo prima = new ToDo(td);
+        Bacheca bachecaCorrente = bachecaCtrl.getBachecaDi(td);
+        int indicePrima = bachecaCorrente != null ? bachecaCorrente.getToDos().indexOf(td) : -1;
+        String errore = "Modifica del ToDo \"" + td.getTitolo() + "\" non riuscita.";
 
         Bacheca bDest = bachecaCtrl.getBacheca(nuovaBacheca);
+        if (bDest != null && !bDest.equals(bachecaCorrente)) verificaSalvata(bDest);
 
         // Trasferiamo i nuovi dati nell'oggetto originale
         td.setTitolo(nuoviDati.getTitolo());
@@ -168,61 +313,162 @@ public class ToDoController {
         td.setDescrizione(nuoviDati.getDescrizione());
         td.setImmagine(nuoviDati.getImmagine());
         td.setColoreSfondo(nuoviDati.getColoreSfondo());
+        indiceRicerca.aggiorna(td);
+        indiceScadenze.aggiorna(td);
 
+        BusEventi bus = bachecaCtrl.getBusEventi();
         if (bDest == null) {
-            todoDAO.updateToDo(td);
-            bachecaCtrl.notifyChange();
-            return;
+            bus.pubblica(new Evento.ToDoModificato(td, bachecaCorrente, td.getModifiche()));
+            return salvaInBackground(td, prima, bachecaCorrente, indicePrima, errore);
         }
 
         if (bachecaCorrente != null && !bachecaCorrente.equals(bDest)) {
             bachecaCorrente.rimuoviToDo(td);
             td.setIdBacheca(bDest.getIdBacheca());
 
-            td.setPosizione(bDest.getToDos().size());
+            td.setPosizione(rangoInCoda(bDest));
             bDest.aggiungiToDo(td);
 
-            salvaOrdineBacheca(bachecaCorrente);
-
         } else if (bachecaCorrente == null) {
             td.setIdBacheca(bDest.getIdBacheca());
-            td.setPosizione(bDest.getToDos().size());
+            td.setPosizione(rangoInCoda(bDest));
             bDest.aggiungiToDo(td);
         }
 
-        todoDAO.updateToDo(td);
-        salvaOrdineBacheca(bDest);
-
-        bachecaCtrl.notifyChange();
+        if (!bDest.equals(bachecaCorrente)) {
+            bus.pubblica(new Evento.ToDoSpostato(td, bachecaCorrente, bDest, bDest.getToDos().size() - 1));
+        }
+        bus.pubblica(new Evento.ToDoModificato(td, bDest, td.getModifiche()));
+        return salvaInBackground(td, prima, bachecaCorrente, indicePrima, errore);
     }
 
-    // fine mod
-
     /**
-     * Elimina un ToDo dal sistema.
+     * Accoda il salvataggio dei campi modificati di un ToDo.
      * <p>
-     * Rimuove l'attività dal database e dalla lista in memoria della bacheca corrente.
-     * Successivamente, aggiorna l'ordine dei ToDo rimanenti per mantenere la sequenza.
+     * Al DAO viene passata una copia (con i campi modificati), così l'originale può continuare a essere
+     * modificato dall'interfaccia mentre la scrittura è in corso; i suoi campi vengono considerati
+     * subito allineati. L'ID viene letto al momento della scrittura, per coprire il caso di un ToDo
+     * il cui inserimento è ancora in coda.
+     * <p>
+     * Se il salvataggio fallisce, la modifica viene annullata in memoria con {@link #annullaModifica}.
      *
-     * @param td Il ToDo da eliminare.
+     * @param td               Il ToDo modificato.
+     * @param prima            La copia del ToDo presa prima della modifica.
+     * @param bachecaOriginale La bacheca che conteneva il ToDo prima della modifica.
+     * @param indiceOriginale  La posizione del ToDo nella bacheca originale.
+     * @param errore           Il messaggio da mostrare all'utente in caso di fallimento.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void eliminaToDo(ToDo td) {
-        todoDAO.deleteToDo(td.getIdToDo());
+    private CompletableFuture<Void> salvaInBackground(ToDo td, ToDo prima, Bacheca bachecaOriginale,
+                                                     int indiceOriginale, String errore) {
+        ToDo copia = new ToDo(td);
+        td.pulisciModifiche();
+        boolean conImmagine = copia.isModificato(CampoToDo.IMMAGINE);
+
+        return coda.scriviInTransazione(() -> {
+                    copia.setId(td.getIdToDo());
+                    todoDAO.updateToDo(copia);
+                    return copia;
+                })
+                .thenAccept(salvata -> {
+                    if (conImmagine && td.getImmagine() == salvata.getImmagine()) {
+                        td.setMetadatiImmagine(salvata.getImmagineHash(), salvata.getImmagineDimensione());
+                    }
+                })
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    annullaModifica(td, prima, copia, bachecaOriginale, indiceOriginale);
+                    segnalaFallimento(errore, ex);
+                });
+    }
 
-        Bacheca bachecaCorrente = null;
-        for (Bacheca b : bachecaCtrl.getAllBacheche()) {
-            if (b.getToDos().contains(td)) {
-                b.rimuoviToDo(td);
-                bachecaCorrente = b;
-                break;
+    /**
+     * Annulla in memoria una modifica non salvata, riportando ai valori precedenti i soli campi che
+     * il salvataggio fallito doveva scrivere. Le modifiche successive, già accodate su
+     * {@link CodaScritture}, non vengono toccate: un campo modificato di nuovo resta com'è e il ToDo
+     * torna nella bacheca originale solo se la sua bacheca non è cambiata ancora.
+     *
+     * @param td               Il ToDo da ripristinare.
+     * @param prima            La copia del ToDo presa prima della modifica.
+     * @param tentata          La copia passata al DAO, con i campi che non è stato possibile salvare.
+     * @param bachecaOriginale La bacheca che conteneva il ToDo prima della modifica.
+     * @param indiceOriginale  La posizione del ToDo nella bacheca originale.
+     */
+    private void annullaModifica(ToDo td, ToDo prima, ToDo tentata, Bacheca bachecaOriginale, int indiceOriginale) {
+        BusEventi bus = bachecaCtrl.getBusEventi();
+        Bacheca attuale = bachecaCtrl.getBachecaDi(td);
+        Set<CampoToDo> ripristinati = td.annullaModifiche(prima, tentata);
+        if (ripristinati.isEmpty()) return;
+
+        if (ripristinati.contains(CampoToDo.ID_BACHECA) && attuale != bachecaOriginale) {
+            if (attuale != null) attuale.rimuoviToDo(td);
+            if (bachecaOriginale != null) {
+                List<ToDo> lista = bachecaOriginale.getToDos();
+                lista.add(Math.max(0, Math.min(indiceOriginale, lista.size())), td);
             }
+            bus.pubblica(new Evento.ToDoSpostato(td, attuale, bachecaOriginale, indiceOriginale));
         }
 
-        if (bachecaCorrente != null) {
-            salvaOrdineBacheca(bachecaCorrente);
-        }
+        indiceRicerca.aggiorna(td);
+        indiceScadenze.aggiorna(td);
+        bus.pubblica(new Evento.ToDoModificato(td, bachecaCtrl.getBachecaDi(td), ripristinati));
+    }
+
+    /**
+     * Rifiuta un'operazione che scriverebbe l'ID di una bacheca non ancora salvata (vedi
+     * {@link BachecaController#isSalvata(Bacheca)}).
+     *
+     * @param b La bacheca di destinazione.
+     * @throws IllegalArgumentException Se la bacheca è ancora in fase di salvataggio.
+     */
+    private void verificaSalvata(Bacheca b) {
+        if (!bachecaCtrl.isSalvata(b)) throw new IllegalArgumentException(BACHECA_NON_SALVATA);
+    }
 
-        bachecaCtrl.notifyChange();
+    /**
+     * Pubblica la notifica di un'operazione fallita, dopo che la modifica in memoria è stata annullata.
+     *
+     * @param messaggio La descrizione dell'operazione, per l'utente.
+     * @param causa     L'eccezione sollevata dal DAO.
+     */
+    private void segnalaFallimento(String messaggio, Throwable causa) {
+        bachecaCtrl.getBusEventi().pubblica(new Evento.OperazioneFallita(messaggio, causa));
+    }
+
+    // fine mod
+
+    /**
+     * Elimina un ToDo dal sistema.
+     * <p>
+     * Rimuove subito l'attività dalla lista in memoria della bacheca corrente e ne accoda
+     * l'eliminazione dal database; se questa fallisce, il ToDo viene rimesso al suo posto.
+     * Grazie alle chiavi di ordinamento distanziate, i ToDo rimanenti non devono essere rinumerati.
+     *
+     * @param td Il ToDo da eliminare.
+     * @return Un future completato sull'EDT al termine dell'eliminazione.
+     */
+    public CompletableFuture<Void> eliminaToDo(ToDo td) {
+        indiceRicerca.rimuovi(td);
+        indiceScadenze.rimuovi(td);
+
+        Bacheca b = bachecaCtrl.getBachecaDi(td);
+        int indice = b != null ? b.getToDos().indexOf(td) : -1;
+        if (b != null) b.rimuoviToDo(td);
+
+        bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoEliminato(td, b));
+
+        return coda.scrivi(() -> todoDAO.deleteToDo(td.getIdToDo()))
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    if (b != null) {
+                        List<ToDo> lista = b.getToDos();
+                        lista.add(Math.min(indice, lista.size()), td);
+                    }
+                    indiceRicerca.aggiungi(td);
+                    indiceScadenze.aggiorna(td);
+                    bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoCreato(td, b));
+                    segnalaFallimento("Eliminazione del ToDo \"" + td.getTitolo() + "\" non riuscita.", ex);
+                });
     }
 
     /**
@@ -230,27 +476,47 @@ public class ToDoController {
      *
      * @param td         Il ToDo da aggiornare.
      * @param completato {@code true} per segnarlo come completato, {@code false} altrimenti.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void setCompletato(ToDo td, boolean completato) {
+    public CompletableFuture<Void> setCompletato(ToDo td, boolean completato) {
+        ToDo prima = new ToDo(td);
+        Bacheca b = bachecaCtrl.getBachecaDi(td);
+        int indice = b != null ? b.getToDos().indexOf(td) : -1;
+
         td.setCompletato(completato);
-        todoDAO.updateToDo(td);
-        bachecaCtrl.notifyChange();
+        bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoModificato(td, b, td.getModifiche()));
+        return salvaInBackground(td, prima, b, indice,
+                "Aggiornamento dello stato di \"" + td.getTitolo() + "\" non riuscito.");
     }
 
     /**
-     * Recupera tutti i ToDo che scadono in una data specifica filtrando quelli in memoria.
+     * Recupera tutti i ToDo che scadono in una data specifica, tramite l'indice delle scadenze in memoria.
      *
      * @param date La data di scadenza da cercare.
      * @return Una lista di {@link ToDo} corrispondenti.
      */
     public List<ToDo> getToDoByDate(LocalDate date) {
-        List<ToDo> risultati = new ArrayList<>();
-        for (ToDo td : getAllToDos()) {
-            if (td.getDataScadenza() != null && td.getDataScadenza().equals(date)) {
-                risultati.add(td); // Passiamo l'istanza originale!
-            }
-        }
-        return risultati;
+        return indiceScadenze.perData(date); // Istanze originali, non copie
+    }
+
+    /**
+     * Recupera i ToDo che scadono in un intervallo di date (estremi inclusi), in ordine cronologico.
+     *
+     * @param da La prima data dell'intervallo.
+     * @param a  L'ultima data dell'intervallo.
+     * @return Una lista di {@link ToDo} corrispondenti.
+     */
+    public List<ToDo> getToDoTraDate(LocalDate da, LocalDate a) {
+        return indiceScadenze.traDate(da, a);
+    }
+
+    /**
+     * Recupera i ToDo non completati la cui scadenza è già passata, in ordine cronologico.
+     *
+     * @return Una lista di {@link ToDo} scaduti.
+     */
+    public List<ToDo> getToDoScaduti() {
+        return indiceScadenze.scadutiPrima(LocalDate.now());
     }
 
     /**
@@ -268,34 +534,53 @@ public class ToDoController {
 
     /**
      * Cerca i ToDo che contengono una determinata stringa nel titolo o nella descrizione.
+     * <p>
+     * La ricerca è risolta sull'indice invertito in memoria, senza scandire tutti i ToDo.
      *
      * @param query La stringa di ricerca.
      * @return Una lista di {@link ToDo} corrispondenti.
      */
     public List<ToDo> searchToDo(String query) {
-        String q = query.toLowerCase();
-        List<ToDo> risultati = new ArrayList<>();
+        return indiceRicerca.cerca(query); // Istanze originali, non copie
+    }
 
-        for (ToDo td : getAllToDos()) {
-            boolean matchTitolo = td.getTitolo() != null && td.getTitolo().toLowerCase().contains(q);
-            boolean matchDesc = td.getDescrizione() != null && td.getDescrizione().toLowerCase().contains(q);
+    /**
+     * Rimuove dagli indici in memoria (ricerca e scadenze) i ToDo di una bacheca appena eliminata.
+     *
+     * @param toDos I ToDo che appartenevano alla bacheca.
+     */
+    private void onBachecaEliminata(List<ToDo> toDos) {
+        for (ToDo td : toDos) {
+            indiceRicerca.rimuovi(td);
+            indiceScadenze.rimuovi(td);
+        }
+    }
 
-            if (matchTitolo || matchDesc) {
-                risultati.add(td); // Passiamo l'istanza originale!
-            }
+    /**
+     * Aggiunge agli indici in memoria i ToDo di una bacheca (ri)comparsa,
+     * ad esempio dopo l'annullamento di un'eliminazione fallita.
+     *
+     * @param toDos I ToDo della bacheca.
+     */
+    private void indicizza(List<ToDo> toDos) {
+        for (ToDo td : toDos) {
+            indiceRicerca.aggiungi(td);
+            indiceScadenze.aggiorna(td);
         }
-        return risultati;
     }
 
     /**
      * Cerca utenti nel sistema per nome, escludendo l'utente loggato.
      * Utile per selezionare utenti con cui condividere un'attività.
      *
+     * La ricerca viene eseguita in background.
+     *
      * @param query La stringa di ricerca (username).
-     * @return Una lista di {@link Utente} trovati.
+     * @return Un future completato sull'EDT con la lista di {@link Utente} trovati.
      */
-    public List<Utente> cercaUtenti(String query) {
-        return utenteDAO.searchUtenti(query, utenteLoggato.getIdUtente());
+    public CompletableFuture<List<Utente>> cercaUtenti(String query) {
+        int idUtente = utenteLoggato.getIdUtente();
+        return coda.leggi(() -> utenteDAO.searchUtenti(query, idUtente));
     }
 
     /**
@@ -304,11 +589,13 @@ public class ToDoController {
      * @param todo     Il ToDo da condividere.
      * @param utente   L'utente con cui condividere.
      * @param permesso Il livello di permesso concesso.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onAggiungiCondivisione(ToDo todo, Utente utente, PermessoCondivisione permesso) {
-        todoDAO.aggiungiCondivisione(todo.getIdToDo(), utente.getIdUtente(), permesso);
+    public CompletableFuture<Void> onAggiungiCondivisione(ToDo todo, Utente utente, PermessoCondivisione permesso) {
+        PermessoCondivisione precedente = todo.getPermessoPerUtente(utente);
         todo.aggiungiOModificaCondivisione(utente, permesso);
-        bachecaCtrl.notifyChange();
+        return salvaCondivisione(todo, utente, precedente,
+                () -> todoDAO.aggiungiCondivisione(todo.getIdToDo(), utente.getIdUtente(), permesso));
     }
 
     /**
@@ -317,11 +604,13 @@ public class ToDoController {
      * @param todo          Il ToDo condiviso.
      * @param utente        L'utente la cui condivisione viene modificata.
      * @param nuovoPermesso Il nuovo livello di permesso.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onModificaPermesso(ToDo todo, Utente utente, PermessoCondivisione nuovoPermesso) {
-        todoDAO.aggiornaPermessoCondivisione(todo.getIdToDo(), utente.getIdUtente(), nuovoPermesso);
+    public CompletableFuture<Void> onModificaPermesso(ToDo todo, Utente utente, PermessoCondivisione nuovoPermesso) {
+        PermessoCondivisione precedente = todo.getPermessoPerUtente(utente);
         todo.aggiungiOModificaCondivisione(utente, nuovoPermesso);
-        bachecaCtrl.notifyChange();
+        return salvaCondivisione(todo, utente, precedente,
+                () -> todoDAO.aggiornaPermessoCondivisione(todo.getIdToDo(), utente.getIdUtente(), nuovoPermesso));
     }
 
     /**
@@ -329,40 +618,253 @@ public class ToDoController {
      *
      * @param todo   Il ToDo.
      * @param utente L'utente da rimuovere.
+     * @return Un future completato sull'EDT al termine del salvataggio.
      */
-    public void onRimuoviCondivisione(ToDo todo, Utente utente) {
-        todoDAO.rimuoviCondivisione(todo.getIdToDo(), utente.getIdUtente());
+    public CompletableFuture<Void> onRimuoviCondivisione(ToDo todo, Utente utente) {
+        PermessoCondivisione precedente = todo.getPermessoPerUtente(utente);
         todo.rimuoviCondivisione(utente);
-        bachecaCtrl.notifyChange();
+        return salvaCondivisione(todo, utente, precedente,
+                () -> todoDAO.rimuoviCondivisione(todo.getIdToDo(), utente.getIdUtente()));
     }
 
     /**
-     * Recupera un utente specifico tramite il suo ID.
+     * Notifica una condivisione già modificata in memoria e ne accoda il salvataggio;
+     * se fallisce, ripristina il permesso precedente dell'utente.
+     *
+     * @param todo       Il ToDo condiviso.
+     * @param utente     L'utente interessato.
+     * @param precedente Il permesso dell'utente prima della modifica, o {@code null} se non era condiviso.
+     * @param scrittura  L'operazione DAO da eseguire.
+     * @return Un future completato sull'EDT al termine del salvataggio.
+     */
+    private CompletableFuture<Void> salvaCondivisione(ToDo todo, Utente utente, PermessoCondivisione precedente,
+                                                      Runnable scrittura) {
+        BusEventi bus = bachecaCtrl.getBusEventi();
+        bus.pubblica(new Evento.CondivisioniModificate(todo, bachecaCtrl.getBachecaDi(todo)));
+
+        return coda.scrivi(scrittura)
+                .whenComplete((r, ex) -> {
+                    if (ex == null) return;
+                    if (precedente == null) todo.rimuoviCondivisione(utente);
+                    else todo.aggiungiOModificaCondivisione(utente, precedente);
+                    bus.pubblica(new Evento.CondivisioniModificate(todo, bachecaCtrl.getBachecaDi(todo)));
+                    segnalaFallimento("Aggiornamento delle condivisioni di \"" + todo.getTitolo() + "\" non riuscito.", ex);
+                });
+    }
+
+    /**
+     * Recupera in background un utente specifico tramite il suo ID.
      *
      * @param id L'identificativo dell'utente.
-     * @return L'oggetto {@link Utente} corrispondente.
+     * @return Un future completato sull'EDT con l'{@link Utente} corrispondente, o {@code null} se non trovato.
      */
-    public Utente getUtenteById(int id) {
-        return utenteDAO.getUtenteById(id);
+    public CompletableFuture<Utente> getUtenteById(int id) {
+        return coda.leggi(() -> utenteDAO.getUtenteById(id));
     }
 
     /**
-     * Ricalcola e persiste l'ordine dei ToDo all'interno di una bacheca.
+     * Sposta un ToDo in una posizione specifica di una bacheca (es. dopo un Drag &amp; Drop).
+     * <p>
+     * Al ToDo viene assegnata una chiave di ordinamento compresa tra quelle dei suoi nuovi vicini
+     * (vedi {@link Rango}), quindi viene scritta una sola riga. Se tra i vicini non c'è più spazio,
+     * o lo spazio rimasto è sotto la soglia, le chiavi della bacheca vengono ridistribuite
+     * con {@link #salvaOrdineBacheca(Bacheca)}.
+     * <p>
+     * Vicini e ridistribuzione considerano solo i ToDo del proprietario della bacheca: la posizione
+     * di un ToDo condiviso appartiene alla bacheca del suo proprietario e non viene mai riscritta.
+     * Per lo stesso motivo lo spostamento di un ToDo condiviso resta solo in memoria.
      * <p>
-     * Itera sulla lista dei ToDo della bacheca (che riflette l'ordine visivo corrente)
-     * e aggiorna il campo {@code posizione} nel database per ogni elemento il cui indice
-     * è cambiato.
+     * Lo spostamento è applicato subito in memoria; se la scrittura fallisce il ToDo torna
+     * nella posizione di partenza.
+     *
+     * @param td     Il ToDo da spostare.
+     * @param dest   La bacheca di destinazione.
+     * @param indice L'indice di inserimento nella lista visiva, calcolato prima di rimuovere il ToDo.
+     * @return Un future completato sull'EDT al termine della scrittura.
+     */
+    public CompletableFuture<Void> spostaToDo(ToDo td, Bacheca dest, int indice) {
+        if (!bachecaCtrl.isSalvata(dest)) {
+            IllegalStateException ex = new IllegalStateException(BACHECA_NON_SALVATA);
+            segnalaFallimento(BACHECA_NON_SALVATA, ex);
+            return CompletableFuture.failedFuture(ex);
+        }
+        Bacheca sorgente = bachecaCtrl.getBachecaDi(td);
+        int srcIndex = -1;
+
+        if (sorgente != null) {
+            srcIndex = sorgente.getToDos().indexOf(td);
+            if (sorgente.equals(dest)) {
+                if (indice > srcIndex) indice--;
+                if (indice == srcIndex) return CompletableFuture.completedFuture(null);
+            }
+            sorgente.rimuoviToDo(td);
+        }
+        long chiavePrima = td.getPosizione();
+        int idBachecaPrima = td.getIdBacheca();
+
+        List<ToDo> lista = dest.getToDos();
+        indice = Math.max(0, Math.min(indice, lista.size()));
+        lista.add(indice, td);
+        bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoSpostato(td, sorgente, dest, indice));
+
+        if (!isProprio(td, dest)) return CompletableFuture.completedFuture(null);
+
+        // Le chiavi dei ToDo condivisi appartengono ad altre bacheche: non sono vicini validi
+        List<Long> chiavi = new ArrayList<>(lista.size());
+        int indiceProprio = -1;
+        for (ToDo t : lista) {
+            if (t == td) indiceProprio = chiavi.size();
+            if (isProprio(t, dest)) chiavi.add(t.getPosizione());
+        }
+
+        Long chiave = Rango.perIndice(chiavi, indiceProprio);
+
+        CompletableFuture<Void> scrittura;
+        if (chiave == null) {
+            scrittura = salvaOrdineBacheca(dest, td);
+        } else {
+            td.setPosizione(chiave);
+            td.setIdBacheca(dest.getIdBacheca());
+            td.pulisciModifica(CampoToDo.POSIZIONE);
+            td.pulisciModifica(CampoToDo.ID_BACHECA);
+
+            chiavi.set(indiceProprio, chiave);
+            if (Rango.richiedeRibilanciamento(chiavi, indiceProprio)) {
+                // Spostamento e ribilanciamento in un'unica scrittura: non possono riuscire solo a metà
+                scrittura = salvaOrdineBacheca(dest, td);
+            } else {
+                scrittura = scriviPosizioni(dest.getIdBacheca(), List.of(td), new long[]{chiave});
+            }
+        }
+
+        int indiceOrigine = srcIndex;
+        return scrittura.whenComplete((r, ex) -> {
+            if (ex == null) return;
+            annullaSpostamento(td, dest, sorgente, indiceOrigine, chiavePrima, idBachecaPrima);
+            segnalaFallimento("Spostamento del ToDo \"" + td.getTitolo() + "\" non riuscito.", ex);
+        });
+    }
+
+    /**
+     * Riporta un ToDo nella bacheca e nella posizione precedenti a uno spostamento non salvato.
+     *
+     * @param td             Il ToDo spostato.
+     * @param dest           La bacheca in cui era stato spostato.
+     * @param sorgente       La bacheca di partenza, o {@code null} se sconosciuta.
+     * @param indiceOrigine  L'indice del ToDo nella bacheca di partenza.
+     * @param chiavePrima    La chiave di ordinamento precedente.
+     * @param idBachecaPrima L'ID della bacheca precedente.
+     */
+    private void annullaSpostamento(ToDo td, Bacheca dest, Bacheca sorgente, int indiceOrigine,
+                                    long chiavePrima, int idBachecaPrima) {
+        td.setPosizione(chiavePrima);
+        td.setIdBacheca(idBachecaPrima);
+        td.pulisciModifica(CampoToDo.POSIZIONE);
+        td.pulisciModifica(CampoToDo.ID_BACHECA);
+        if (sorgente == null) return;
+
+        dest.rimuoviToDo(td);
+        List<ToDo> lista = sorgente.getToDos();
+        int indice = Math.max(0, Math.min(indiceOrigine, lista.size()));
+        lista.add(indice, td);
+        bachecaCtrl.getBusEventi().pubblica(new Evento.ToDoSpostato(td, dest, sorgente, indice));
+    }
+
+    /**
+     * Ridistribuisce e persiste le chiavi di ordinamento dei ToDo di una bacheca.
+     * <p>
+     * Itera sui ToDo del proprietario della bacheca nell'ordine visivo corrente, assegna chiavi
+     * equidistanziate e raccoglie gli elementi la cui chiave è cambiata, oppure che sono stati
+     * appena spostati qui. I ToDo condivisi da altri utenti vengono saltati: la loro chiave
+     * ordina la bacheca del proprietario e non va toccata. Le nuove chiavi vengono
+     * applicate subito in memoria e scritte in background con un'unica operazione
+     * {@link ToDoDAO#updatePositions(int, int[], long[])}.
+     * <p>
+     * È il ribilanciamento invocato quando lo spazio tra due chiavi vicine si esaurisce.
      *
      * @param bacheca La bacheca di cui salvare l'ordinamento.
+     * @return Un future completato sull'EDT al termine della scrittura.
+     */
+    public CompletableFuture<Void> salvaOrdineBacheca(Bacheca bacheca) {
+        return salvaOrdineBacheca(bacheca, null);
+    }
+
+    /**
+     * Come {@link #salvaOrdineBacheca(Bacheca)}, ma scrive sempre anche il ToDo indicato (appena spostato
+     * e non ancora salvato), anche se la sua chiave ridistribuita coincide con quella in memoria.
+     *
+     * @param bacheca    La bacheca di cui salvare l'ordinamento.
+     * @param daScrivere Il ToDo da includere comunque nella scrittura, o {@code null}.
+     * @return Un future completato sull'EDT al termine della scrittura.
      */
-    public void salvaOrdineBacheca(Bacheca bacheca) {
+    private CompletableFuture<Void> salvaOrdineBacheca(Bacheca bacheca, ToDo daScrivere) {
         List<ToDo> toDos = bacheca.getToDos();
-        for (int i = 0; i < toDos.size(); i++) {
-            ToDo td = toDos.get(i);
-            if (td.getPosizione() != i) {
-                td.setPosizione(i);
-                todoDAO.updateToDo(td);
+        List<ToDo> modificati = new ArrayList<>();
+        long[] posizioni = new long[toDos.size()];
+        int n = 0;
+        int i = 0;
+
+        for (ToDo td : toDos) {
+            if (!isProprio(td, bacheca)) continue;
+            long chiave = Rango.distribuisci(i++);
+            boolean spostato = td.getIdBacheca() != bacheca.getIdBacheca();
+            if (td.getPosizione() != chiave || spostato || td == daScrivere) {
+                td.setPosizione(chiave);
+                if (spostato) td.setIdBacheca(bacheca.getIdBacheca());
+                // Posizione e bacheca vengono scritte qui sotto: non vanno riscritte da un successivo updateToDo
+                td.pulisciModifica(CampoToDo.POSIZIONE);
+                td.pulisciModifica(CampoToDo.ID_BACHECA);
+                modificati.add(td);
+                posizioni[n] = chiave;
+                n++;
             }
         }
+
+        if (n == 0) return CompletableFuture.completedFuture(null);
+        return scriviPosizioni(bacheca.getIdBacheca(), modificati, Arrays.copyOf(posizioni, n));
+    }
+
+    /**
+     * Verifica se un ToDo appartiene al proprietario della bacheca, e quindi vive nella bacheca stessa,
+     * invece di esservi mostrato perché condiviso da un altro utente.
+     *
+     * @param td      Il ToDo.
+     * @param bacheca La bacheca in cui è mostrato.
+     * @return {@code true} se la chiave di ordinamento del ToDo si riferisce a questa bacheca.
+     */
+    private static boolean isProprio(ToDo td, Bacheca bacheca) {
+        return td.getIdUtenteCreatore() == bacheca.getIdUtente();
+    }
+
+    /**
+     * Calcola la chiave di ordinamento per un ToDo aggiunto in coda a una bacheca.
+     *
+     * @param bacheca La bacheca di destinazione.
+     * @return Una chiave maggiore di tutte quelle dei ToDo del proprietario.
+     */
+    private long rangoInCoda(Bacheca bacheca) {
+        long max = Long.MIN_VALUE;
+        for (ToDo t : bacheca.getToDos()) {
+            if (isProprio(t, bacheca)) max = Math.max(max, t.getPosizione());
+        }
+        return max == Long.MIN_VALUE ? Rango.distribuisci(0) : Rango.dopo(max);
+    }
+
+    /**
+     * Accoda la scrittura di un gruppo di chiavi di ordinamento.
+     * Gli ID vengono letti al momento della scrittura, così un ToDo il cui inserimento è ancora
+     * in coda viene scritto con l'ID assegnato dal database.
+     *
+     * @param idBacheca L'ID della bacheca.
+     * @param toDos     I ToDo da aggiornare.
+     * @param posizioni Le nuove chiavi, nello stesso ordine di {@code toDos}.
+     * @return Un future completato sull'EDT al termine della scrittura.
+     */
+    private CompletableFuture<Void> scriviPosizioni(int idBacheca, List<ToDo> toDos, long[] posizioni) {
+        return coda.scrivi(() -> {
+            int[] ids = new int[toDos.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = toDos.get(i).getIdToDo();
+            todoDAO.updatePositions(idBacheca, ids, posizioni);
+        });
     }
 }
\ No newline at end of file
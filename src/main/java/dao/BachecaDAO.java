@@ -21,6 +21,7 @@ public interface BachecaDAO {
      * impostarlo sull'oggetto {@link Bacheca} passato come parametro.
      *
      * @param bacheca L'oggetto Bacheca da salvare.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void addBacheca(Bacheca bacheca);
 
@@ -48,13 +49,25 @@ public interface BachecaDAO {
      * della bacheca.
      *
      * @param bacheca L'oggetto {@link Bacheca} contenente i dati aggiornati.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void updateBacheca(Bacheca bacheca);
 
+    /**
+     * Aggiorna in un'unica operazione le sole posizioni ({@code posizioneB}) di più bacheche di un utente.
+     *
+     * @param idUtente  L'ID dell'utente proprietario delle bacheche.
+     * @param ids       Gli ID delle bacheche da aggiornare.
+     * @param positions Le nuove chiavi di posizione, nello stesso ordine di {@code ids}.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
+     */
+    void updatePositions(int idUtente, int[] ids, long[] positions);
+
     /**
      * Elimina una bacheca dal database utilizzando il suo ID.
      *
      * @param id L'identificativo della bacheca da rimuovere.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void deleteBacheca(int id);
 
@@ -77,6 +90,7 @@ public interface BachecaDAO {
      *
      * @param idUtente L'ID dell'utente di cui cercare le bacheche.
      * @return Una {@link List} delle {@link Bacheca} dell'utente.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<Bacheca> getBachecheByUtente(int idUtente);
 
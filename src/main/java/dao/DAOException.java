@@ -0,0 +1,22 @@
+package dao;
+
+/**
+ * Eccezione non controllata sollevata dalle operazioni di scrittura dei DAO (e dalle letture
+ * in background, come il caricamento delle immagini) quando il database rifiuta o non completa l'operazione.
+ * <p>
+ * Le scritture vengono eseguite in background dai controller: questa eccezione permette loro
+ * di accorgersi del fallimento e di annullare l'aggiornamento già applicato in memoria.
+ * L'errore originale ({@link java.sql.SQLException}) è disponibile come causa.
+ */
+public class DAOException extends RuntimeException {
+
+    /**
+     * Crea una nuova eccezione con il messaggio e la causa indicati.
+     *
+     * @param messaggio La descrizione dell'operazione fallita.
+     * @param causa     L'eccezione originale.
+     */
+    public DAOException(String messaggio, Throwable causa) {
+        super(messaggio, causa);
+    }
+}
@@ -4,6 +4,9 @@ import model.PermessoCondivisione;
 import model.ToDo;
 import model.TitoloBacheca;
 import model.Utente;
+import model.VarianteImmagine;
+
+import javax.swing.ImageIcon;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +32,7 @@ public interface ToDoDAO {
      * impostarlo sull'oggetto {@link ToDo} passato come parametro.
      *
      * @param todo L'oggetto {@link ToDo} da salvare.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void addToDo(ToDo todo);
 
@@ -37,9 +41,49 @@ public interface ToDoDAO {
      *
      * @param id L'identificativo univoco del ToDo.
      * @return L'oggetto {@link ToDo} corrispondente, o {@code null} se non trovato.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     ToDo getToDoById(int id);
 
+    /**
+     * Carica su richiesta i pixel dell'immagine di un ToDo, nella variante indicata.
+     * <p>
+     * I metodi di lista restituiscono solo i metadati dell'immagine (presenza, dimensione, impronta);
+     * questo metodo va invocato quando l'immagine deve essere effettivamente mostrata.
+     * Se la variante richiesta non è stata salvata (l'originale era già abbastanza piccolo),
+     * viene restituito l'originale.
+     *
+     * @param idTodo   L'identificativo del ToDo.
+     * @param variante La variante da caricare.
+     * @return L'immagine, o {@code null} se il ToDo non ne ha una.
+     * @throws DAOException Se la lettura dal database non va a buon fine: l'immagine
+     *                      non va considerata assente, la richiesta può essere ripetuta.
+     */
+    ImageIcon getImmagine(int idTodo, VarianteImmagine variante);
+
+    /**
+     * Restituisce gli ID di tutti i ToDo che hanno un'immagine salvata.
+     * Usato dai job di manutenzione che rielaborano le immagini (es. ricompressione).
+     *
+     * @return La lista degli ID.
+     * @throws DAOException Se la lettura dal database non va a buon fine: una lista vuota
+     *                      farebbe terminare il job come se non ci fosse nulla da fare.
+     */
+    List<Integer> getIdToDoConImmagine();
+
+    /**
+     * Ricodifica l'immagine salvata di un ToDo secondo la politica di codifica corrente,
+     * rigenerando anche le varianti ridotte.
+     * <p>
+     * L'immagine viene riscritta solo se la nuova codifica è più compatta e se nel frattempo
+     * non è stata sostituita (confronto sull'impronta): è quindi sicuro eseguire il metodo
+     * mentre l'applicazione è in uso, e ripeterlo.
+     *
+     * @param idTodo L'identificativo del ToDo.
+     * @return {@code true} se l'immagine è stata riscritta.
+     */
+    boolean ricomprimiImmagine(int idTodo);
+
     /**
      * Recupera tutti i ToDo presenti nel sistema.
      * <p>
@@ -53,13 +97,29 @@ public interface ToDoDAO {
      * Aggiorna i dati di un ToDo esistente nel database.
      *
      * @param todo L'oggetto {@link ToDo} contenente i dati aggiornati.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void updateToDo(ToDo todo);
 
+    /**
+     * Aggiorna in un'unica operazione le sole posizioni di un insieme di ToDo di una bacheca.
+     * <p>
+     * Pensato per i percorsi di riordinamento (es. Drag &amp; Drop): non riscrive gli altri campi,
+     * l'immagine o i link. I ToDo creati dal proprietario della bacheca vengono anche
+     * associati a essa, così che uno spostamento tra bacheche venga reso persistente.
+     *
+     * @param idBacheca L'ID della bacheca in cui si trovano i ToDo.
+     * @param ids       Gli ID dei ToDo da aggiornare.
+     * @param positions Le nuove chiavi di posizione, nello stesso ordine di {@code ids}.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
+     */
+    void updatePositions(int idBacheca, int[] ids, long[] positions);
+
     /**
      * Elimina un ToDo dal database tramite il suo ID.
      *
      * @param id L'identificativo del ToDo da eliminare.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void deleteToDo(int id);
 
@@ -68,9 +128,23 @@ public interface ToDoDAO {
      *
      * @param idBacheca L'ID della bacheca di appartenenza.
      * @return Una lista di {@link ToDo} ordinati per posizione.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<ToDo> getAllToDosByBacheca(int idBacheca);
 
+    /**
+     * Carica in un'unica interrogazione l'intero spazio di lavoro di un utente:
+     * tutti i ToDo delle sue bacheche e tutti i ToDo condivisi con lui.
+     * <p>
+     * I risultati sono raggruppati per titolo di bacheca (i ToDo condivisi finiscono nella
+     * bacheca con lo stesso titolo di quella di origine del creatore) e ordinati per posizione.
+     * In caso di duplicati prevale il ToDo proprio su quello condiviso.
+     *
+     * @param idUtente L'ID dell'utente che effettua l'accesso.
+     * @return Una mappa {@code TitoloBacheca -> ToDo} ordinati (propri prima dei condivisi).
+     * @throws DAOException Se la lettura dal database non va a buon fine.
+     */
+    Map<TitoloBacheca, List<ToDo>> loadWorkspace(int idUtente);
 
 
     /**
@@ -82,6 +156,7 @@ public interface ToDoDAO {
      * @param idUtente L'ID dell'utente.
      * @param endDate  La data limite (inclusa) per la scadenza.
      * @return Una lista di {@link ToDo} in scadenza.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<ToDo> getToDosEntroData(int idUtente, LocalDate endDate);
 
@@ -92,9 +167,25 @@ public interface ToDoDAO {
      * @param idUtente L'ID dell'utente che effettua la ricerca.
      * @param query    La stringa di testo da cercare.
      * @return Una lista di {@link ToDo} che corrispondono ai criteri.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<ToDo> searchToDos(int idUtente, String query);
 
+    /**
+     * Variante paginata di {@link #searchToDos(int, String)}.
+     * <p>
+     * I risultati sono ordinati per rilevanza decrescente (corrispondenze nel titolo prima
+     * di quelle nella sola descrizione) e, a parità, per ID.
+     *
+     * @param idUtente L'ID dell'utente che effettua la ricerca.
+     * @param query    La stringa di testo da cercare.
+     * @param limit    Il numero massimo di risultati, o un valore negativo per nessun limite.
+     * @param offset   Il numero di risultati da saltare.
+     * @return Una pagina di {@link ToDo} che corrispondono ai criteri.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
+     */
+    List<ToDo> searchToDos(int idUtente, String query, int limit, int offset);
+
     // --- Metodi per Condivisione ---
 
     /**
@@ -112,6 +203,7 @@ public interface ToDoDAO {
      * @param idTodo   L'ID del ToDo da condividere.
      * @param idUtente L'ID dell'utente destinatario.
      * @param permesso Il livello di permesso concesso.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void aggiungiCondivisione(int idTodo, int idUtente, PermessoCondivisione permesso);
 
@@ -121,6 +213,7 @@ public interface ToDoDAO {
      * @param idTodo   L'ID del ToDo.
      * @param idUtente L'ID dell'utente.
      * @param permesso Il nuovo livello di permesso.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void aggiornaPermessoCondivisione(int idTodo, int idUtente, PermessoCondivisione permesso);
 
@@ -129,6 +222,7 @@ public interface ToDoDAO {
      *
      * @param idTodo   L'ID del ToDo.
      * @param idUtente L'ID dell'utente da rimuovere.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void rimuoviCondivisione(int idTodo, int idUtente);
 
@@ -143,6 +237,7 @@ public interface ToDoDAO {
      * @param idUtente      L'ID dell'utente ricevente.
      * @param titoloBacheca Il titolo della bacheca di origine da filtrare.
      * @return Una lista di {@link ToDo} condivisi.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<ToDo> getSharedToDosForUser(int idUtente, TitoloBacheca titoloBacheca);
 
@@ -153,6 +248,7 @@ public interface ToDoDAO {
      * @param idUtente L'ID dell'utente.
      * @param date     La data di scadenza esatta.
      * @return Una lista di {@link ToDo}.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
      */
     List<ToDo> getToDosByDate(int idUtente, LocalDate date);
 }
\ No newline at end of file
@@ -59,6 +59,7 @@ public interface UtenteDAO {
      * Elimina un utente dal database utilizzando il suo ID.
      *
      * @param id L'identificativo dell'utente da rimuovere.
+     * @throws DAOException Se la scrittura nel database non va a buon fine.
      */
     void deleteUtenteById(int id);
 
@@ -1,16 +1,20 @@
 package dao.postgresimpl;
 
+import dao.DAOException;
 import dao.BachecaDAO;
 import database.DBConnection;
 import model.Bacheca;
 import model.TitoloBacheca;
 
+import javax.sql.DataSource;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,24 +29,24 @@ import java.util.logging.Logger;
 public class PostgresBachecaDAO implements BachecaDAO {
 
     private static final Logger LOGGER = Logger.getLogger(PostgresBachecaDAO.class.getName());
-    private Connection conn;
+    private final DataSource dataSource;
 
     /**
-     * Costruisce un'istanza del DAO utilizzando la connessione predefinita.
-     * Ottiene la connessione singleton tramite {@link DBConnection}.
+     * Costruisce un'istanza del DAO utilizzando il pool di connessioni predefinito.
+     * Ogni operazione prende in prestito una connessione da {@link DBConnection} e la restituisce al termine.
      */
     public PostgresBachecaDAO() {
-        this.conn = DBConnection.getConnection();
+        this.dataSource = DBConnection.getDataSource();
     }
 
     /**
-     * Costruisce un'istanza del DAO utilizzando una connessione specifica.
-     * Utile per testing o per gestire transazioni personalizzate.
+     * Costruisce un'istanza del DAO utilizzando una sorgente di connessioni specifica.
+     * Utile per testing o per configurazioni avanzate.
      *
-     * @param connection La connessione al database da utilizzare.
+     * @param dataSource La sorgente da cui ottenere le connessioni per ogni operazione.
      */
-    public PostgresBachecaDAO(Connection connection) {
-        this.conn = connection;
+    public PostgresBachecaDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
@@ -56,12 +60,13 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public void addBacheca(Bacheca bacheca) {
         String sql = "INSERT INTO bacheca (titolo, descrizione, id_utente, posizioneB) VALUES (?, ?, ?, ?) RETURNING id_bacheca";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, bacheca.getTitolo().name());
             pstmt.setString(2, bacheca.getDescrizione());
             pstmt.setInt(3, bacheca.getIdUtente());
-            pstmt.setInt(4, bacheca.getPosizioneB());
+            pstmt.setLong(4, bacheca.getPosizioneB());
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -70,6 +75,7 @@ public class PostgresBachecaDAO implements BachecaDAO {
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante addBacheca", e);
+            throw new DAOException("Errore durante addBacheca", e);
         }
     }
 
@@ -82,7 +88,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public Bacheca getBachecaById(int id) {
         String sql = "SELECT * FROM bacheca WHERE id_bacheca = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -91,7 +98,7 @@ public class PostgresBachecaDAO implements BachecaDAO {
                             TitoloBacheca.valueOf(rs.getString("titolo")),
                             rs.getString("descrizione"),
                             rs.getInt("id_utente"),
-                            rs.getInt("posizioneB")
+                            rs.getLong("posizioneB")
                     );
                 }
             }
@@ -111,7 +118,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public Bacheca getBachecaByTitoloAndUtente(TitoloBacheca titolo, int idUtente) {
         String sql = "SELECT * FROM bacheca WHERE titolo = ? AND id_utente = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, titolo.name());
             pstmt.setInt(2, idUtente);
             ResultSet rs = pstmt.executeQuery();
@@ -121,7 +129,7 @@ public class PostgresBachecaDAO implements BachecaDAO {
                         TitoloBacheca.valueOf(rs.getString("titolo")),
                         rs.getString("descrizione"),
                         rs.getInt("id_utente"),
-                        rs.getInt("posizioneB")
+                        rs.getLong("posizioneB")
                 );
             }
         } catch (SQLException e) {
@@ -144,7 +152,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
         List<Bacheca> bacheche = new ArrayList<>();
         String sql = "SELECT * FROM bacheca WHERE id_utente = ? ORDER BY posizioneB ASC";
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idUtente);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -154,12 +163,13 @@ public class PostgresBachecaDAO implements BachecaDAO {
                             TitoloBacheca.valueOf(rs.getString("titolo")),
                             rs.getString("descrizione"),
                             rs.getInt("id_utente"),
-                            rs.getInt("posizioneB")
+                            rs.getLong("posizioneB")
                     ));
                 }
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getBachecheByUtente", e);
+            throw new DAOException("Errore durante getBachecheByUtente", e);
         }
         return bacheche;
     }
@@ -174,16 +184,53 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public void updateBacheca(Bacheca bacheca) {
         String sql = "UPDATE bacheca SET descrizione = ?, posizioneB = ? WHERE id_bacheca = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, bacheca.getDescrizione());
-            pstmt.setInt(2, bacheca.getPosizioneB());
+            pstmt.setLong(2, bacheca.getPosizioneB());
             pstmt.setInt(3, bacheca.getIdBacheca());
 
             pstmt.executeUpdate();
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante updateBacheca", e);
+            throw new DAOException("Errore durante updateBacheca", e);
+        }
+    }
+
+    /**
+     * Aggiorna le posizioni di più bacheche con un solo UPDATE basato su {@code unnest}.
+     * Il filtro su {@code id_utente} impedisce di toccare bacheche di altri utenti.
+     *
+     * @param idUtente  L'ID dell'utente proprietario.
+     * @param ids       Gli ID delle bacheche da aggiornare.
+     * @param positions Le nuove chiavi di posizione, nello stesso ordine di {@code ids}.
+     */
+    @Override
+    public void updatePositions(int idUtente, int[] ids, long[] positions) {
+        if (ids.length == 0) return;
+
+        String sql = "UPDATE bacheca b SET posizioneB = v.posizione " +
+                "FROM unnest(?::integer[], ?::bigint[]) AS v(id_bacheca, posizione) " +
+                "WHERE b.id_bacheca = v.id_bacheca AND b.id_utente = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Array arrIds = conn.createArrayOf("integer", Arrays.stream(ids).boxed().toArray());
+            Array arrPos = conn.createArrayOf("bigint", Arrays.stream(positions).boxed().toArray());
+            try {
+                pstmt.setArray(1, arrIds);
+                pstmt.setArray(2, arrPos);
+                pstmt.setInt(3, idUtente);
+                pstmt.executeUpdate();
+            } finally {
+                arrIds.free();
+                arrPos.free();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante updatePositions", e);
+            throw new DAOException("Errore durante updatePositions", e);
         }
     }
 
@@ -195,13 +242,15 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public void deleteBacheca(int idBacheca) {
         String sql = "DELETE FROM bacheca WHERE id_bacheca = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, idBacheca);
             pstmt.executeUpdate();
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante deleteBacheca", e);
+            throw new DAOException("Errore durante deleteBacheca", e);
         }
     }
 
@@ -216,7 +265,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
     public List<Bacheca> getAllBacheche() {
         List<Bacheca> bacheche = new ArrayList<>();
         String sql = "SELECT * FROM bacheca ORDER BY posizioneB ASC";
-        try (Statement stmt = this.conn.createStatement();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 bacheche.add(new Bacheca(
@@ -224,7 +274,7 @@ public class PostgresBachecaDAO implements BachecaDAO {
                         TitoloBacheca.valueOf(rs.getString("titolo")),
                         rs.getString("descrizione"),
                         rs.getInt("id_utente"),
-                        rs.getInt("posizioneB")
+                        rs.getLong("posizioneB")
                 ));
             }
         } catch (SQLException e) {
@@ -247,7 +297,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
         String sql = "SELECT b.* FROM bacheca b " +
                 "JOIN utente u ON b.id_utente = u.id_utente " +
                 "WHERE u.username = ? ORDER BY b.posizioneB ASC";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -256,7 +307,7 @@ public class PostgresBachecaDAO implements BachecaDAO {
                         TitoloBacheca.valueOf(rs.getString("titolo")),
                         rs.getString("descrizione"),
                         rs.getInt("id_utente"),
-                        rs.getInt("posizioneB")
+                        rs.getLong("posizioneB")
                 ));
             }
         } catch (SQLException e) {
@@ -273,7 +324,8 @@ public class PostgresBachecaDAO implements BachecaDAO {
     @Override
     public void deleteAllBachecheByUserId(int userId) {
         String sql = "DELETE FROM bacheca WHERE id_utente = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             stmt.executeUpdate();
         } catch (SQLException e) {
@@ -1,26 +1,36 @@
 package dao.postgresimpl;
 
+import dao.DAOException;
 import dao.ToDoDAO;
+import database.ConnectionPool;
 import database.DBConnection;
 import model.*;
 import dao.UtenteDAO;
+import util.Immagini;
+import util.PoliticaImmagini;
 
 import javax.imageio.ImageIO;
+import javax.sql.DataSource;
 import javax.swing.ImageIcon;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,28 +49,139 @@ import java.util.logging.Logger;
 public class PostgresToDoDAO implements ToDoDAO {
 
     private static final Logger LOGGER = Logger.getLogger(PostgresToDoDAO.class.getName());
-    private Connection conn;
+
+    /**
+     * Colonne lette dalle query di lista. Esclude di proposito le colonne delle immagini:
+     * dei BYTEA si leggono solo impronta e dimensione, i pixel si caricano con {@link #getImmagine(int, VarianteImmagine)}.
+     */
+    private static final String COLONNE_TODO = "t.id_todo, t.titolo, t.descrizione, t.data_scadenza, t.colore_sfondo, " +
+            "t.stato, t.posizione, t.id_bacheca, t.id_utente_creatore, t.immagine_hash, t.immagine_dimensione";
+
+    /*
+     * Le query sui ToDo "propri o condivisi" sono divise in due rami di una UNION ALL: i ToDo delle
+     * bacheche dell'utente e quelli condivisi con lui (indice todo_condivisione(id_utente, id_todo)).
+     * Il secondo ramo esclude i ToDo che l'utente possiede già, quindi non serve deduplicare con GROUP BY.
+     * Proprietario e titolo della bacheca sono copiati su todo (id_utente_proprietario, titolo_bacheca)
+     * e mantenuti dai trigger di setup.sql: nessuna query deve raggiungere la tabella bacheca, e il
+     * ramo dei ToDo propri è una scansione dell'indice todo(id_utente_proprietario, data_scadenza).
+     * Le query sono package-private per essere verificate con EXPLAIN da VerificaPiani.
+     */
+
+    /**
+     * ToDo di una bacheca, nell'ordine di visualizzazione. Parametri: id bacheca.
+     */
+    static final String SQL_PER_BACHECA = "SELECT " + COLONNE_TODO + " FROM todo t WHERE t.id_bacheca = ? ORDER BY t.posizione ASC";
+
+    /**
+     * ToDo propri o condivisi con una data di scadenza.
+     * Parametri: id utente, data, id utente (due volte), data.
+     */
+    static final String SQL_PER_DATA = "SELECT " + COLONNE_TODO + " FROM todo t " +
+            "WHERE t.id_utente_proprietario = ? AND t.data_scadenza = ? " +
+            "UNION ALL " +
+            "SELECT " + COLONNE_TODO + " FROM todo t " +
+            "JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
+            "WHERE tc.id_utente = ? AND t.id_utente_proprietario <> ? AND t.data_scadenza = ?";
+
+    /**
+     * ToDo propri o condivisi non completati in scadenza tra oggi e una data.
+     * Parametri: id utente, data limite, id utente (due volte), data limite.
+     */
+    static final String SQL_ENTRO_DATA = "SELECT " + COLONNE_TODO + " FROM todo t " +
+            "WHERE t.id_utente_proprietario = ? AND t.stato = false AND t.data_scadenza BETWEEN CURRENT_DATE AND ? " +
+            "UNION ALL " +
+            "SELECT " + COLONNE_TODO + " FROM todo t " +
+            "JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
+            "WHERE tc.id_utente = ? AND t.id_utente_proprietario <> ? AND t.stato = false " +
+            "AND t.data_scadenza BETWEEN CURRENT_DATE AND ?";
+
+    private static final String FILTRO_RICERCA = "(t.ricerca @@ q.tsq OR t.titolo ILIKE q.likeq OR t.descrizione ILIKE q.likeq)";
+    private static final String RILEVANZA_RICERCA = "ts_rank(t.ricerca, q.tsq) + CASE WHEN t.titolo ILIKE q.likeq THEN 1 ELSE 0 END AS rilevanza";
+
+    /**
+     * Ricerca paginata tra i ToDo propri o condivisi, ordinata per rilevanza.
+     * Parametri: testo, pattern LIKE, id utente (tre volte), limite, offset.
+     */
+    static final String SQL_RICERCA = "WITH q AS (SELECT plainto_tsquery('italian', ?) AS tsq, ?::text AS likeq) " +
+            "SELECT " + COLONNE_TODO + ", " + RILEVANZA_RICERCA + " FROM todo t " +
+            "CROSS JOIN q " +
+            "WHERE t.id_utente_proprietario = ? AND " + FILTRO_RICERCA + " " +
+            "UNION ALL " +
+            "SELECT " + COLONNE_TODO + ", " + RILEVANZA_RICERCA + " FROM todo t " +
+            "JOIN todo_condivisione tc ON t.id_todo = tc.id_todo CROSS JOIN q " +
+            "WHERE tc.id_utente = ? AND t.id_utente_proprietario <> ? AND " + FILTRO_RICERCA + " " +
+            "ORDER BY rilevanza DESC, id_todo " +
+            "LIMIT ? OFFSET ?";
+
+    // Query dell'idratazione e dei percorsi di aggiornamento, preparate in anticipo su ogni connessione del pool
+    private static final String SQL_LINK_PER_TODO = "SELECT id_todo, url FROM todo_links WHERE id_todo = ANY(?) ORDER BY id_link";
+    private static final String SQL_CONDIVISIONI_PER_TODO = "SELECT tc.id_todo, u.id_utente, u.username, u.password, tc.permesso " +
+            "FROM todo_condivisione tc " +
+            "JOIN utente u ON tc.id_utente = u.id_utente " +
+            "WHERE tc.id_todo = ANY(?)";
+    private static final String SQL_LINK_ESISTENTI = "SELECT id_link, url FROM todo_links WHERE id_todo = ? ORDER BY id_link";
+    private static final String SQL_ELIMINA_LINK = "DELETE FROM todo_links WHERE id_link = ANY(?)";
+    private static final String SQL_AGGIORNA_POSIZIONI = "UPDATE todo t SET posizione = v.posizione, " +
+            "id_bacheca = CASE WHEN t.id_utente_creatore = b.id_utente THEN b.id_bacheca ELSE t.id_bacheca END " +
+            "FROM unnest(?::integer[], ?::bigint[]) AS v(id_todo, posizione), bacheca b " +
+            "WHERE t.id_todo = v.id_todo AND b.id_bacheca = ?";
+
+    private final DataSource dataSource;
     private UtenteDAO utenteDAO;
 
     /**
-     * Costruisce un'istanza del DAO utilizzando la connessione predefinita.
+     * Politica di codifica (formato, qualità e dimensione massima) delle immagini salvate.
+     */
+    private final PoliticaImmagini politicaImmagini;
+
+    /**
+     * Costruisce un'istanza del DAO utilizzando il pool di connessioni predefinito.
      * Inizializza internamente un {@link PostgresUtenteDAO} per gestire le dipendenze sugli utenti.
      */
     public PostgresToDoDAO() {
-        this.conn = DBConnection.getConnection();
-        this.utenteDAO = new PostgresUtenteDAO(this.conn);
+        this.dataSource = DBConnection.getDataSource();
+        this.utenteDAO = new PostgresUtenteDAO(this.dataSource);
+        this.politicaImmagini = PoliticaImmagini.predefinita();
+        preparaStatementFrequenti();
     }
 
     /**
      * Costruisce un'istanza del DAO con dipendenze iniettate.
      * Utile per testing o configurazioni avanzate.
      *
-     * @param connection La connessione al database.
+     * @param dataSource La sorgente da cui prendere in prestito una connessione per ogni operazione.
      * @param utenteDAO  L'istanza del DAO utenti da utilizzare.
      */
-    public PostgresToDoDAO(Connection connection, UtenteDAO utenteDAO) {
-        this.conn = connection;
+    public PostgresToDoDAO(DataSource dataSource, UtenteDAO utenteDAO) {
+        this(dataSource, utenteDAO, PoliticaImmagini.predefinita());
+    }
+
+    /**
+     * Costruisce un'istanza del DAO con dipendenze iniettate e una politica di codifica
+     * delle immagini diversa da quella predefinita.
+     *
+     * @param dataSource       La sorgente da cui prendere in prestito una connessione per ogni operazione.
+     * @param utenteDAO        L'istanza del DAO utenti da utilizzare.
+     * @param politicaImmagini La politica con cui codificare le immagini salvate.
+     */
+    public PostgresToDoDAO(DataSource dataSource, UtenteDAO utenteDAO, PoliticaImmagini politicaImmagini) {
+        this.dataSource = dataSource;
         this.utenteDAO = utenteDAO;
+        this.politicaImmagini = politicaImmagini;
+        preparaStatementFrequenti();
+    }
+
+    /**
+     * Se il DAO usa il pool dell'applicazione, vi registra le query eseguite più spesso
+     * (caricamento di una bacheca, idratazione di link e condivisioni, aggiornamento di link e posizioni),
+     * così ogni connessione le prepara una sola volta.
+     */
+    private void preparaStatementFrequenti() {
+        if (dataSource instanceof ConnectionPool) {
+            ((ConnectionPool) dataSource).preparaSuOgniConnessione(SQL_PER_BACHECA, SQL_LINK_PER_TODO,
+                    SQL_CONDIVISIONI_PER_TODO, SQL_LINK_ESISTENTI, SQL_ELIMINA_LINK, sqlInserisciLink(1),
+                    SQL_AGGIORNA_POSIZIONI);
+        }
     }
 
     //Metodi Helper per Conversione Tipi
@@ -88,25 +209,61 @@ public class PostgresToDoDAO implements ToDoDAO {
     }
 
     /**
-     * Converte un'immagine {@link ImageIcon} in un array di byte (formato PNG).
-     * Utilizzato per salvare l'immagine nel campo BLOB/BYTEA del database.
+     * Converte un'immagine {@link ImageIcon} nelle varianti da salvare nei campi BYTEA del database:
+     * l'originale e le versioni ridotte di {@link VarianteImmagine}, codificate secondo la
+     * {@link PoliticaImmagini} del DAO (JPEG per le immagini opache, PNG per quelle trasparenti).
+     * Una variante ridotta vale {@code null} se l'originale è già abbastanza stretto:
+     * in lettura viene sostituita dall'originale.
      *
      * @param icon L'icona da convertire.
-     * @return L'array di byte dell'immagine, o {@code null} se l'input è nullo o si verifica un errore IO.
-     */
-    private byte[] imageIconToBytes(ImageIcon icon) {
-        if (icon == null) return null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            Image img = icon.getImage();
-            BufferedImage bi = new BufferedImage(img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2 = bi.createGraphics();
-            g2.drawImage(img, 0, 0, null);
-            g2.dispose();
-            ImageIO.write(bi, "png", baos);
-            return baos.toByteArray();
+     * @return I byte di ogni variante; vuota se l'input è nullo.
+     * @throws DAOException Se la codifica fallisce: salvare senza immagine la perderebbe.
+     */
+    private Map<VarianteImmagine, byte[]> codificaVarianti(ImageIcon icon) {
+        Map<VarianteImmagine, byte[]> varianti = new EnumMap<>(VarianteImmagine.class);
+        if (icon == null) return varianti;
+        try {
+            varianti.putAll(codificaVarianti(toBufferedImage(icon.getImage())));
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Errore conversione ImageIcon in byte[]", e);
-            return null;
+            throw new DAOException("Errore durante la codifica dell'immagine", e);
+        }
+        return varianti;
+    }
+
+    private Map<VarianteImmagine, byte[]> codificaVarianti(BufferedImage img) throws IOException {
+        Map<VarianteImmagine, byte[]> varianti = new EnumMap<>(VarianteImmagine.class);
+        BufferedImage originale = politicaImmagini.limita(img);
+        varianti.put(VarianteImmagine.ORIGINALE, politicaImmagini.codifica(originale));
+
+        for (VarianteImmagine v : VarianteImmagine.values()) {
+            if (v == VarianteImmagine.ORIGINALE) continue;
+            BufferedImage ridotta = Immagini.riduciALarghezza(originale, v.getLarghezzaMassima());
+            varianti.put(v, ridotta != null ? politicaImmagini.codifica(ridotta) : null);
+        }
+        return varianti;
+    }
+
+    private BufferedImage toBufferedImage(Image img) {
+        if (img instanceof BufferedImage) return (BufferedImage) img;
+        BufferedImage bi = new BufferedImage(img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = bi.createGraphics();
+        g2.drawImage(img, 0, 0, null);
+        g2.dispose();
+        return bi;
+    }
+
+    /**
+     * Restituisce la colonna della tabella {@code todo} che contiene una variante dell'immagine.
+     *
+     * @param variante La variante.
+     * @return Il nome della colonna.
+     */
+    private static String colonnaImmagine(VarianteImmagine variante) {
+        switch (variante) {
+            case MINIATURA: return "immagine_miniatura";
+            case CARD: return "immagine_card";
+            default: return "immagine";
         }
     }
 
@@ -126,39 +283,67 @@ public class PostgresToDoDAO implements ToDoDAO {
         }
     }
 
+    /**
+     * Calcola l'impronta SHA-256 (esadecimale) dei byte di un'immagine.
+     *
+     * @param bytes I byte dell'immagine.
+     * @return L'impronta, o {@code null} se l'input è nullo.
+     */
+    private String impronta(byte[] bytes) {
+        if (bytes == null) return null;
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
     /**
      * Inserisce un nuovo ToDo nel database.
      * <p>
      * Salva tutti i campi principali e recupera l'ID generato. Successivamente,
-     * invoca {@link #updateLinksForToDo} per salvare i link associati.
+     * invoca {@link #sincronizzaLink} per salvare i link associati.
      *
      * @param todo Il ToDo da salvare.
      */
     @Override
     public void addToDo(ToDo todo) {
-        String sql = "INSERT INTO todo (titolo, descrizione, data_scadenza, colore_sfondo, immagine, stato, posizione, id_bacheca, id_utente_creatore) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id_todo";
+        String sql = "INSERT INTO todo (titolo, descrizione, data_scadenza, colore_sfondo, immagine, immagine_card, immagine_miniatura, " +
+                "immagine_hash, immagine_dimensione, stato, posizione, id_bacheca, id_utente_creatore) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id_todo";
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            Map<VarianteImmagine, byte[]> varianti = codificaVarianti(todo.getImmagine());
+            byte[] immagine = varianti.get(VarianteImmagine.ORIGINALE);
+            String hash = impronta(immagine);
 
             pstmt.setString(1, todo.getTitolo());
             pstmt.setString(2, todo.getDescrizione());
             pstmt.setObject(3, todo.getDataScadenza());
             pstmt.setString(4, colorToString(todo.getColoreSfondo()));
-            pstmt.setBytes(5, imageIconToBytes(todo.getImmagine()));
-            pstmt.setBoolean(6, todo.isCompletato());
-            pstmt.setInt(7, todo.getPosizione());
-            pstmt.setInt(8, todo.getIdBacheca());
-            pstmt.setInt(9, todo.getIdUtenteCreatore());
+            pstmt.setBytes(5, immagine);
+            pstmt.setBytes(6, varianti.get(VarianteImmagine.CARD));
+            pstmt.setBytes(7, varianti.get(VarianteImmagine.MINIATURA));
+            pstmt.setString(8, hash);
+            pstmt.setInt(9, immagine != null ? immagine.length : 0);
+            pstmt.setBoolean(10, todo.isCompletato());
+            pstmt.setLong(11, todo.getPosizione());
+            pstmt.setInt(12, todo.getIdBacheca());
+            pstmt.setInt(13, todo.getIdUtenteCreatore());
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     todo.setId(rs.getInt(1));
-                    updateLinksForToDo(todo.getIdToDo(), todo.getLinkURLs());
+                    todo.setMetadatiImmagine(hash, immagine != null ? immagine.length : 0);
+                    sincronizzaLink(conn, todo.getIdToDo(), todo.getLinkURLs(), false);
+                    todo.pulisciModifiche();
                 }
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante addToDo", e);
+            throw new DAOException("Errore durante addToDo", e);
         }
     }
 
@@ -170,20 +355,139 @@ public class PostgresToDoDAO implements ToDoDAO {
      */
     @Override
     public ToDo getToDoById(int id) {
-        String sql = "SELECT * FROM todo WHERE id_todo = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String sql = "SELECT " + COLONNE_TODO + " FROM todo t WHERE t.id_todo = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return hydrateToDo(rs);
+                    ToDo td = hydrateToDo(rs);
+                    hydrateRelazioni(conn, List.of(td));
+                    return td;
                 }
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getToDoById", e);
+            throw new DAOException("Errore durante getToDoById", e);
         }
         return null;
     }
 
+    /**
+     * Carica su richiesta i pixel dell'immagine di un ToDo, nella variante indicata.
+     * Per le varianti non salvate (originale già abbastanza stretto) viene letto l'originale.
+     *
+     * @param idTodo   L'ID del ToDo.
+     * @param variante La variante da caricare.
+     * @return L'immagine decodificata, o {@code null} se assente o non decodificabile.
+     * @throws DAOException Se la lettura dal database non va a buon fine.
+     */
+    @Override
+    public ImageIcon getImmagine(int idTodo, VarianteImmagine variante) {
+        String sql = "SELECT COALESCE(" + colonnaImmagine(variante) + ", immagine) FROM todo WHERE id_todo = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, idTodo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return bytesToImageIcon(rs.getBytes(1));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante getImmagine", e);
+            throw new DAOException("Errore durante getImmagine", e);
+        }
+        return null;
+    }
+
+    /**
+     * Recupera gli ID dei ToDo con un'immagine, senza leggere i BYTEA.
+     *
+     * @return La lista degli ID, in ordine crescente.
+     */
+    @Override
+    public List<Integer> getIdToDoConImmagine() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT id_todo FROM todo WHERE immagine IS NOT NULL ORDER BY id_todo";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante getIdToDoConImmagine", e);
+            throw new DAOException("Errore durante getIdToDoConImmagine", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Ricodifica l'immagine di un ToDo secondo la {@link PoliticaImmagini} del DAO.
+     * <p>
+     * La lettura e la scrittura usano due connessioni distinte, così la connessione non resta
+     * in prestito durante decodifica e codifica. Le immagini già in JPEG vengono saltate, per non
+     * perdere qualità a ogni esecuzione.
+     *
+     * @param idTodo L'ID del ToDo.
+     * @return {@code true} se l'immagine è stata riscritta.
+     */
+    @Override
+    public boolean ricomprimiImmagine(int idTodo) {
+        byte[] attuale;
+        String hashAttuale;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT immagine, immagine_hash FROM todo WHERE id_todo = ?")) {
+            pstmt.setInt(1, idTodo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return false;
+                attuale = rs.getBytes(1);
+                hashAttuale = rs.getString(2);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante ricomprimiImmagine", e);
+            throw new DAOException("Errore durante ricomprimiImmagine", e);
+        }
+        if (attuale == null || isJpeg(attuale)) return false;
+
+        Map<VarianteImmagine, byte[]> varianti;
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(attuale)) {
+            BufferedImage img = ImageIO.read(bais);
+            if (img == null) return false;
+            varianti = codificaVarianti(img);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Immagine non ricodificabile per il ToDo " + idTodo, e);
+            return false;
+        }
+        byte[] immagine = varianti.get(VarianteImmagine.ORIGINALE);
+        if (immagine.length >= attuale.length) return false;
+
+        String sql = "UPDATE todo SET immagine = ?, immagine_card = ?, immagine_miniatura = ?, " +
+                "immagine_hash = ?, immagine_dimensione = ? " +
+                "WHERE id_todo = ? AND immagine_hash IS NOT DISTINCT FROM ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setBytes(1, immagine);
+            pstmt.setBytes(2, varianti.get(VarianteImmagine.CARD));
+            pstmt.setBytes(3, varianti.get(VarianteImmagine.MINIATURA));
+            pstmt.setString(4, impronta(immagine));
+            pstmt.setInt(5, immagine.length);
+            pstmt.setInt(6, idTodo);
+            pstmt.setString(7, hashAttuale);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante ricomprimiImmagine", e);
+            throw new DAOException("Errore durante ricomprimiImmagine", e);
+        }
+    }
+
+    /**
+     * Verifica dai primi byte (marcatore SOI) se un'immagine è codificata in JPEG.
+     */
+    private static boolean isJpeg(byte[] bytes) {
+        return bytes.length > 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8;
+    }
+
     /**
      * Recupera tutti i ToDo di una bacheca, ordinati per posizione.
      *
@@ -193,9 +497,8 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public List<ToDo> getAllToDosByBacheca(int idBacheca) {
         List<ToDo> todos = new ArrayList<>();
-        String sql = "SELECT * FROM todo WHERE id_bacheca = ? ORDER BY posizione ASC";
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_PER_BACHECA)) {
             pstmt.setInt(1, idBacheca);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -203,18 +506,73 @@ public class PostgresToDoDAO implements ToDoDAO {
                     todos.add(hydrateToDo(rs));
                 }
             }
+            hydrateRelazioni(conn, todos);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getAllToDosByBacheca", e);
+            throw new DAOException("Errore durante getAllToDosByBacheca", e);
         }
         return todos;
     }
 
+    /**
+     * Carica tutti i ToDo propri e condivisi di un utente con una sola query (UNION ALL),
+     * seguita dall'idratazione in blocco di link e condivisioni.
+     * <p>
+     * Il numero di round trip resta costante indipendentemente dal numero di bacheche e di ToDo.
+     *
+     * @param idUtente L'ID dell'utente.
+     * @return Mappa {@code TitoloBacheca -> ToDo} con i propri prima dei condivisi.
+     */
+    @Override
+    public Map<TitoloBacheca, List<ToDo>> loadWorkspace(int idUtente) {
+        Map<TitoloBacheca, Map<Integer, ToDo>> raggruppati = new EnumMap<>(TitoloBacheca.class);
+        List<ToDo> todos = new ArrayList<>();
+
+        String sql = "SELECT " + COLONNE_TODO + ", t.titolo_bacheca, 0 AS origine FROM todo t " +
+                "WHERE t.id_utente_proprietario = ? " +
+                "UNION ALL " +
+                "SELECT " + COLONNE_TODO + ", t.titolo_bacheca, 1 AS origine FROM todo t " +
+                "JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
+                "WHERE tc.id_utente = ? " +
+                "ORDER BY origine, posizione";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, idUtente);
+            pstmt.setInt(2, idUtente);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TitoloBacheca titolo = TitoloBacheca.valueOf(rs.getString("titolo_bacheca"));
+                    Map<Integer, ToDo> gruppo = raggruppati.computeIfAbsent(titolo, k -> new LinkedHashMap<>());
+                    int id = rs.getInt("id_todo");
+                    if (!gruppo.containsKey(id)) {
+                        ToDo td = hydrateToDo(rs);
+                        gruppo.put(id, td);
+                        todos.add(td);
+                    }
+                }
+            }
+            hydrateRelazioni(conn, todos);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante loadWorkspace", e);
+            throw new DAOException("Errore durante loadWorkspace", e);
+        }
+
+        Map<TitoloBacheca, List<ToDo>> workspace = new EnumMap<>(TitoloBacheca.class);
+        for (Map.Entry<TitoloBacheca, Map<Integer, ToDo>> e : raggruppati.entrySet()) {
+            workspace.put(e.getKey(), new ArrayList<>(e.getValue().values()));
+        }
+        return workspace;
+    }
+
     /**
      * Metodo helper privato per ricostruire un oggetto {@link ToDo} da un {@link ResultSet}.
-     * Popola tutti i campi e recupera separatamente link, immagini e condivisioni.
+     * Popola i campi della riga corrente; link e condivisioni vengono caricati in blocco
+     * da {@link #hydrateRelazioni(Connection, List)}. Dell'immagine vengono letti solo i metadati.
      *
      * @param rs Il ResultSet posizionato sulla riga corrente.
-     * @return L'oggetto ToDo popolato.
+     * @return L'oggetto ToDo popolato con i dati della riga.
      * @throws SQLException Se si verifica un errore di accesso ai dati.
      */
     private ToDo hydrateToDo(ResultSet rs) throws SQLException {
@@ -225,74 +583,210 @@ public class PostgresToDoDAO implements ToDoDAO {
                 rs.getObject("data_scadenza", LocalDate.class),
                 stringToColor(rs.getString("colore_sfondo")),
                 rs.getBoolean("stato"),
-                rs.getInt("posizione"),
+                rs.getLong("posizione"),
                 rs.getInt("id_bacheca"),
                 rs.getInt("id_utente_creatore")
         );
 
-        td.setLinksDalDB(getLinksForToDo(td.getIdToDo()));
-        td.setImmagine(bytesToImageIcon(rs.getBytes("immagine")));
-        td.setCondivisioniDalDB(getCondivisioni(td.getIdToDo()));
+        td.setImmagineDalDB(rs.getString("immagine_hash"), rs.getInt("immagine_dimensione"));
 
         return td;
     }
 
     /**
-     * Recupera la lista di URL associati a un ToDo.
+     * Completa in blocco l'idratazione di un insieme di ToDo, caricando link e condivisioni
+     * con una sola query ciascuno ({@code WHERE id_todo = ANY(?)}) invece di due query per riga.
+     * <p>
+     * In questo modo il costo in round trip di un metodo di lista resta costante (3 query)
+     * indipendentemente dal numero di ToDo restituiti.
      *
-     * @param idTodo L'ID del ToDo.
-     * @return Lista di stringhe URL.
+     * @param conn  La connessione in prestito all'operazione corrente.
+     * @param todos I ToDo appena letti da idratare.
+     * @throws SQLException Se si verifica un errore di accesso ai dati.
      */
-    private List<String> getLinksForToDo(int idTodo) {
-        List<String> links = new ArrayList<>();
-        String sql = "SELECT url FROM todo_links WHERE id_todo = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, idTodo);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    links.add(rs.getString("url"));
+    private void hydrateRelazioni(Connection conn, List<ToDo> todos) throws SQLException {
+        if (todos.isEmpty()) return;
+
+        Map<Integer, ToDo> perId = new HashMap<>();
+        for (ToDo td : todos) {
+            perId.put(td.getIdToDo(), td);
+        }
+        Array ids = conn.createArrayOf("integer", perId.keySet().toArray());
+
+        try {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_LINK_PER_TODO)) {
+                pstmt.setArray(1, ids);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        perId.get(rs.getInt("id_todo")).getLinkURLs().add(rs.getString("url"));
+                    }
                 }
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.WARNING, "Errore getLinksForToDo", e);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_CONDIVISIONI_PER_TODO)) {
+                pstmt.setArray(1, ids);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Utente u = new Utente(
+                                rs.getInt("id_utente"),
+                                rs.getString("username"),
+                                rs.getString("password")
+                        );
+                        PermessoCondivisione p = PermessoCondivisione.fromString(rs.getString("permesso"));
+                        perId.get(rs.getInt("id_todo")).getCondivisioni().put(u, p);
+                    }
+                }
+            }
+        } finally {
+            ids.free();
         }
-        return links;
     }
 
     /**
-     * Aggiorna i link associati a un ToDo.
-     * Strategia: elimina tutti i link esistenti per quel ToDo e inserisce i nuovi.
+     * Allinea i link salvati di un ToDo alla nuova lista, scrivendo solo le differenze.
+     * <p>
+     * I link sono letti in ordine di {@code id_link}, quindi l'ordine della lista è dato dall'ordine di
+     * inserimento e un link nuovo può essere aggiunto solo in coda. Le righe esistenti vengono confrontate
+     * con la nuova lista come sottosequenza ordinata (la più lunga comune): quelle che non compaiono più
+     * vengono eliminate, quelle che compaiono restano dove sono. Se un link nuovo cade prima dell'ultimo
+     * conservato, da quel punto in poi la lista viene riscritta, perché non si può inserire a metà.
+     * Le eliminazioni sono un solo DELETE e gli inserimenti un solo INSERT a più righe: togliere un link
+     * o aggiungerne uno in fondo non riscrive gli altri, e una lista invariata non produce scritture.
      *
-     * @param idTodo L'ID del ToDo.
-     * @param links  La nuova lista di link.
+     * @param conn      La connessione in prestito all'operazione corrente.
+     * @param idTodo    L'ID del ToDo.
+     * @param links     La nuova lista di link.
+     * @param esistenti {@code false} per un ToDo appena inserito, che non ha ancora link salvati.
+     * @throws SQLException Se si verifica un errore di accesso ai dati.
      */
-    private void updateLinksForToDo(int idTodo, List<String> links) {
-        String sqlDelete = "DELETE FROM todo_links WHERE id_todo = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlDelete)) {
-            pstmt.setInt(1, idTodo);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Errore updateLinks (DELETE)", e);
+    private void sincronizzaLink(Connection conn, int idTodo, List<String> links, boolean esistenti) throws SQLException {
+        List<String> nuovi = links != null ? links : List.of();
+        List<Integer> idSalvati = new ArrayList<>();
+        List<String> urlSalvati = new ArrayList<>();
+
+        if (esistenti) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_LINK_ESISTENTI)) {
+                pstmt.setInt(1, idTodo);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        idSalvati.add(rs.getInt("id_link"));
+                        urlSalvati.add(rs.getString("url"));
+                    }
+                }
+            }
         }
 
-        if (links == null || links.isEmpty()) return;
+        int[] posizione = allineaLink(urlSalvati, nuovi);
 
-        String sqlInsert = "INSERT INTO todo_links (id_todo, url) VALUES (?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlInsert)) {
-            for (String link : links) {
-                pstmt.setInt(1, idTodo);
-                pstmt.setString(2, link);
-                pstmt.addBatch();
+        // Primo link nuovo che non può essere accodato: da lì in poi la lista va riscritta.
+        boolean[] conservato = new boolean[nuovi.size()];
+        int ultimoConservato = -1;
+        for (int p : posizione) {
+            if (p >= 0) {
+                conservato[p] = true;
+                ultimoConservato = Math.max(ultimoConservato, p);
+            }
+        }
+        int inizioCoda = ultimoConservato + 1;
+        for (int j = 0; j < ultimoConservato; j++) {
+            if (!conservato[j]) {
+                inizioCoda = j;
+                break;
+            }
+        }
+
+        List<Integer> daEliminare = new ArrayList<>();
+        for (int i = 0; i < posizione.length; i++) {
+            if (posizione[i] < 0 || posizione[i] >= inizioCoda) {
+                daEliminare.add(idSalvati.get(i));
+            }
+        }
+
+        if (!daEliminare.isEmpty()) {
+            Array ids = conn.createArrayOf("integer", daEliminare.toArray());
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_ELIMINA_LINK)) {
+                pstmt.setArray(1, ids);
+                pstmt.executeUpdate();
+            } finally {
+                ids.free();
+            }
+        }
+
+        List<String> daInserire = nuovi.subList(inizioCoda, nuovi.size());
+        if (daInserire.isEmpty()) return;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlInserisciLink(daInserire.size()))) {
+            int idx = 1;
+            for (String link : daInserire) {
+                pstmt.setInt(idx++, idTodo);
+                pstmt.setString(idx++, link);
+            }
+            int inseriti = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) inseriti++;
+            }
+            if (inseriti != daInserire.size()) {
+                throw new SQLException("Inseriti " + inseriti + " link su " + daInserire.size());
             }
-            pstmt.executeBatch();
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Errore updateLinks (INSERT)", e);
         }
     }
 
+    /**
+     * Abbina i link salvati a quelli della nuova lista secondo la sottosequenza comune più lunga,
+     * così da conservare il maggior numero possibile di righe senza cambiarne l'ordine.
+     *
+     * @param salvati Gli URL salvati, in ordine di {@code id_link}.
+     * @param nuovi   La nuova lista di link.
+     * @return Per ogni link salvato, l'indice del link corrispondente nella nuova lista, o -1 se va eliminato.
+     */
+    private static int[] allineaLink(List<String> salvati, List<String> nuovi) {
+        int n = salvati.size();
+        int m = nuovi.size();
+        int[] posizione = new int[n];
+        Arrays.fill(posizione, -1);
+        if (n == 0 || m == 0) return posizione;
+
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = salvati.get(i).equals(nuovi.get(j))
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (salvati.get(i).equals(nuovi.get(j))) {
+                posizione[i++] = j++;
+            } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return posizione;
+    }
+
+    /**
+     * Costruisce l'INSERT a più righe dei link ({@code VALUES (?, ?), (?, ?), ...}).
+     * Le righe sono inserite nell'ordine indicato, quindi ricevono {@code id_link} crescenti.
+     *
+     * @param righe Il numero di link da inserire.
+     * @return Il testo della query.
+     */
+    private static String sqlInserisciLink(int righe) {
+        StringBuilder sb = new StringBuilder("INSERT INTO todo_links (id_todo, url) VALUES ");
+        for (int i = 0; i < righe; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("(?, ?)");
+        }
+        return sb.append(" RETURNING id_link").toString();
+    }
+
     /**
      * Recupera i ToDo (propri o condivisi) che scadono in una data specifica.
-     * Esegue una JOIN tra ToDo, Bacheca e Condivisioni per filtrare correttamente.
+     * Propri e condivisi sono letti da due rami di una {@code UNION ALL} (vedi {@link #SQL_PER_DATA}).
      *
      * @param idUtente L'ID dell'utente che richiede i dati.
      * @param date     La data di scadenza.
@@ -301,30 +795,26 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public List<ToDo> getToDosByDate(int idUtente, LocalDate date) {
         List<ToDo> todos = new ArrayList<>();
-        String sql = "SELECT t.* FROM todo t " +
-                "LEFT JOIN bacheca b ON t.id_bacheca = b.id_bacheca " +
-                "LEFT JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
-                "WHERE (b.id_utente = ? OR tc.id_utente = ?) AND t.data_scadenza = ? " +
-                "GROUP BY t.id_todo";
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, idUtente);
-            pstmt.setInt(2, idUtente);
-            pstmt.setObject(3, date);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_PER_DATA)) {
+            impostaParametriUtenteData(pstmt, idUtente, date);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     todos.add(hydrateToDo(rs));
                 }
             }
+            hydrateRelazioni(conn, todos);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getToDosByDate", e);
+            throw new DAOException("Errore durante getToDosByDate", e);
         }
         return todos;
     }
 
     /**
      * Recupera i ToDo (propri o condivisi) non completati che scadono entro una data.
+     * La query ({@link #SQL_ENTRO_DATA}) è servita dall'indice parziale sui ToDo aperti.
      *
      * @param idUtente L'ID dell'utente.
      * @param endDate  La data limite.
@@ -333,95 +823,252 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public List<ToDo> getToDosEntroData(int idUtente, LocalDate endDate) {
         List<ToDo> todos = new ArrayList<>();
-        String sql = "SELECT t.* FROM todo t " +
-                "LEFT JOIN bacheca b ON t.id_bacheca = b.id_bacheca " +
-                "LEFT JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
-                "WHERE (b.id_utente = ? OR tc.id_utente = ?) AND t.stato = false " +
-                "AND t.data_scadenza <= ? AND t.data_scadenza >= CURRENT_DATE " +
-                "GROUP BY t.id_todo";
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, idUtente);
-            pstmt.setInt(2, idUtente);
-            pstmt.setObject(3, endDate);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_ENTRO_DATA)) {
+            impostaParametriUtenteData(pstmt, idUtente, endDate);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     todos.add(hydrateToDo(rs));
                 }
             }
+            hydrateRelazioni(conn, todos);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getToDosEntroData", e);
+            throw new DAOException("Errore durante getToDosEntroData", e);
         }
         return todos;
     }
 
+    /**
+     * Imposta i parametri di {@link #SQL_PER_DATA} e {@link #SQL_ENTRO_DATA}.
+     *
+     * @param pstmt    Lo statement da preparare.
+     * @param idUtente L'ID dell'utente.
+     * @param data     La data di riferimento della query.
+     * @throws SQLException Se l'impostazione di un parametro fallisce.
+     */
+    static void impostaParametriUtenteData(PreparedStatement pstmt, int idUtente, LocalDate data) throws SQLException {
+        pstmt.setInt(1, idUtente);
+        pstmt.setObject(2, data);
+        pstmt.setInt(3, idUtente);
+        pstmt.setInt(4, idUtente);
+        pstmt.setObject(5, data);
+    }
+
     /**
      * Cerca ToDo per titolo o descrizione (case-insensitive), inclusi quelli condivisi.
      *
      * @param idUtente L'ID dell'utente.
      * @param query    La stringa di ricerca.
-     * @return Lista di ToDo trovati.
+     * @return Lista di ToDo trovati, ordinati per rilevanza.
      */
     @Override
     public List<ToDo> searchToDos(int idUtente, String query) {
-        List<ToDo> todos = new ArrayList<>();
-        String sql = "SELECT t.* FROM todo t " +
-                "LEFT JOIN bacheca b ON t.id_bacheca = b.id_bacheca " +
-                "LEFT JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
-                "WHERE (b.id_utente = ? OR tc.id_utente = ?) " +
-                "AND (t.titolo ILIKE ? OR t.descrizione ILIKE ?) " +
-                "GROUP BY t.id_todo";
+        return searchToDos(idUtente, query, -1, 0);
+    }
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            String likeQuery = "%" + query.toLowerCase(Locale.ROOT) + "%";
-            pstmt.setInt(1, idUtente);
-            pstmt.setInt(2, idUtente);
-            pstmt.setString(3, likeQuery);
-            pstmt.setString(4, likeQuery);
+    /**
+     * Cerca ToDo per titolo o descrizione, con risultati ordinati per rilevanza e paginati.
+     * <p>
+     * La corrispondenza usa la colonna generata {@code ricerca} ({@code tsvector}, indice GIN) per le
+     * parole intere e {@code ILIKE} sugli indici trigrammi ({@code pg_trgm}) per le sottostringhe.
+     * ToDo propri e condivisi sono cercati in due rami di una {@code UNION ALL}, ognuno filtrato
+     * dal proprio indice, senza JOIN in OR né GROUP BY.
+     *
+     * @param idUtente L'ID dell'utente.
+     * @param query    La stringa di ricerca.
+     * @param limit    Il numero massimo di risultati, o un valore negativo per nessun limite.
+     * @param offset   Il numero di risultati da saltare.
+     * @return Una pagina di ToDo trovati.
+     */
+    @Override
+    public List<ToDo> searchToDos(int idUtente, String query, int limit, int offset) {
+        List<ToDo> todos = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_RICERCA)) {
+            impostaParametriRicerca(pstmt, idUtente, query, limit, offset);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     todos.add(hydrateToDo(rs));
                 }
             }
+            hydrateRelazioni(conn, todos);
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Errore during searchToDos", e);
+            LOGGER.log(Level.SEVERE, "Errore durante searchToDos", e);
+            throw new DAOException("Errore durante searchToDos", e);
         }
         return todos;
     }
 
+    /**
+     * Imposta i parametri di {@link #SQL_RICERCA}.
+     *
+     * @param pstmt    Lo statement da preparare.
+     * @param idUtente L'ID dell'utente.
+     * @param query    La stringa di ricerca.
+     * @param limit    Il numero massimo di risultati, o un valore negativo per nessun limite.
+     * @param offset   Il numero di risultati da saltare.
+     * @throws SQLException Se l'impostazione di un parametro fallisce.
+     */
+    static void impostaParametriRicerca(PreparedStatement pstmt, int idUtente, String query, int limit, int offset) throws SQLException {
+        pstmt.setString(1, query);
+        pstmt.setString(2, "%" + escapeLike(query) + "%");
+        pstmt.setInt(3, idUtente);
+        pstmt.setInt(4, idUtente);
+        pstmt.setInt(5, idUtente);
+        if (limit >= 0) pstmt.setInt(6, limit);
+        else pstmt.setNull(6, Types.INTEGER); // LIMIT NULL equivale a nessun limite
+        pstmt.setInt(7, Math.max(0, offset));
+    }
+
+    /**
+     * Esegue l'escape dei caratteri speciali di {@code LIKE} ({@code %}, {@code _} e {@code \}),
+     * così che la query dell'utente venga cercata letteralmente.
+     *
+     * @param testo Il testo da cercare.
+     * @return Il testo con i caratteri speciali preceduti da {@code \}.
+     */
+    private static String escapeLike(String testo) {
+        return testo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Imposta il valore di un singolo parametro di un {@link PreparedStatement}.
+     * Usato per comporre l'UPDATE minimale di {@link #updateToDo(ToDo)}.
+     */
+    @FunctionalInterface
+    private interface Parametro {
+        void imposta(PreparedStatement pstmt, int indice) throws SQLException;
+    }
+
     /**
      * Aggiorna un ToDo esistente nel database.
-     * Aggiorna anche i link associati.
+     * <p>
+     * Vengono scritte solo le colonne dei campi modificati dall'ultimo caricamento o salvataggio
+     * (vedi {@link ToDo#getModifiche()}): l'immagine viene ricodificata solo se è cambiata e i link
+     * vengono riscritti solo se la lista è cambiata. Se nulla è cambiato non viene eseguita alcuna query.
      *
      * @param todo Il ToDo con i dati aggiornati.
      */
     @Override
     public void updateToDo(ToDo todo) {
-        String sql = "UPDATE todo SET titolo = ?, descrizione = ?, data_scadenza = ?, colore_sfondo = ?, " +
-                "immagine = ?, stato = ?, posizione = ?, id_bacheca = ?, id_utente_creatore = ? " +
-                "WHERE id_todo = ?";
+        Set<CampoToDo> modifiche = todo.getModifiche();
+        if (modifiche.isEmpty()) return;
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        List<String> colonne = new ArrayList<>();
+        List<Parametro> parametri = new ArrayList<>();
 
-            pstmt.setString(1, todo.getTitolo());
-            pstmt.setString(2, todo.getDescrizione());
-            pstmt.setObject(3, todo.getDataScadenza());
-            pstmt.setString(4, colorToString(todo.getColoreSfondo()));
-            pstmt.setBytes(5, imageIconToBytes(todo.getImmagine()));
-            pstmt.setBoolean(6, todo.isCompletato());
-            pstmt.setInt(7, todo.getPosizione());
-            pstmt.setInt(8, todo.getIdBacheca());
-            pstmt.setInt(9, todo.getIdUtenteCreatore());
-            pstmt.setInt(10, todo.getIdToDo());
+        if (modifiche.contains(CampoToDo.TITOLO)) {
+            colonne.add("titolo");
+            parametri.add((p, i) -> p.setString(i, todo.getTitolo()));
+        }
+        if (modifiche.contains(CampoToDo.DESCRIZIONE)) {
+            colonne.add("descrizione");
+            parametri.add((p, i) -> p.setString(i, todo.getDescrizione()));
+        }
+        if (modifiche.contains(CampoToDo.DATA_SCADENZA)) {
+            colonne.add("data_scadenza");
+            parametri.add((p, i) -> p.setObject(i, todo.getDataScadenza()));
+        }
+        if (modifiche.contains(CampoToDo.COLORE_SFONDO)) {
+            colonne.add("colore_sfondo");
+            parametri.add((p, i) -> p.setString(i, colorToString(todo.getColoreSfondo())));
+        }
+        if (modifiche.contains(CampoToDo.STATO)) {
+            colonne.add("stato");
+            parametri.add((p, i) -> p.setBoolean(i, todo.isCompletato()));
+        }
+        if (modifiche.contains(CampoToDo.POSIZIONE)) {
+            colonne.add("posizione");
+            parametri.add((p, i) -> p.setLong(i, todo.getPosizione()));
+        }
+        if (modifiche.contains(CampoToDo.ID_BACHECA)) {
+            colonne.add("id_bacheca");
+            parametri.add((p, i) -> p.setInt(i, todo.getIdBacheca()));
+        }
+        if (modifiche.contains(CampoToDo.ID_UTENTE_CREATORE)) {
+            colonne.add("id_utente_creatore");
+            parametri.add((p, i) -> p.setInt(i, todo.getIdUtenteCreatore()));
+        }
 
-            pstmt.executeUpdate();
+        byte[] immagine = null;
+        String hash = null;
+        boolean conImmagine = modifiche.contains(CampoToDo.IMMAGINE) && todo.isImmagineCaricata();
+        if (conImmagine) {
+            Map<VarianteImmagine, byte[]> varianti = codificaVarianti(todo.getImmagine());
+            immagine = varianti.get(VarianteImmagine.ORIGINALE);
+            hash = impronta(immagine);
+            final byte[] bytes = immagine;
+            final String h = hash;
+            for (VarianteImmagine v : VarianteImmagine.values()) {
+                byte[] bytesVariante = varianti.get(v);
+                colonne.add(colonnaImmagine(v));
+                parametri.add((p, i) -> p.setBytes(i, bytesVariante));
+            }
+            colonne.add("immagine_hash");
+            parametri.add((p, i) -> p.setString(i, h));
+            colonne.add("immagine_dimensione");
+            parametri.add((p, i) -> p.setInt(i, bytes != null ? bytes.length : 0));
+        }
 
-            updateLinksForToDo(todo.getIdToDo(), todo.getLinkURLs());
+        try (Connection conn = dataSource.getConnection()) {
+            if (!colonne.isEmpty()) {
+                String sql = "UPDATE todo SET " + String.join(" = ?, ", colonne) + " = ? WHERE id_todo = ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    int idx = 1;
+                    for (Parametro parametro : parametri) {
+                        parametro.imposta(pstmt, idx++);
+                    }
+                    pstmt.setInt(idx, todo.getIdToDo());
+                    pstmt.executeUpdate();
+                }
+            }
+
+            if (modifiche.contains(CampoToDo.LINK)) {
+                sincronizzaLink(conn, todo.getIdToDo(), todo.getLinkURLs(), true);
+            }
+
+            if (conImmagine) {
+                todo.setMetadatiImmagine(hash, immagine != null ? immagine.length : 0);
+            }
+            todo.pulisciModifiche();
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante updateToDo", e);
+            throw new DAOException("Errore durante updateToDo", e);
+        }
+    }
+
+    /**
+     * Aggiorna le posizioni di più ToDo con un solo UPDATE basato su {@code unnest}.
+     * Essendo un'unica istruzione, l'aggiornamento è atomico.
+     *
+     * @param idBacheca L'ID della bacheca in cui si trovano i ToDo.
+     * @param ids       Gli ID dei ToDo da aggiornare.
+     * @param positions Le nuove chiavi di posizione, nello stesso ordine di {@code ids}.
+     */
+    @Override
+    public void updatePositions(int idBacheca, int[] ids, long[] positions) {
+        if (ids.length == 0) return;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_AGGIORNA_POSIZIONI)) {
+            Array arrIds = conn.createArrayOf("integer", Arrays.stream(ids).boxed().toArray());
+            Array arrPos = conn.createArrayOf("bigint", Arrays.stream(positions).boxed().toArray());
+            try {
+                pstmt.setArray(1, arrIds);
+                pstmt.setArray(2, arrPos);
+                pstmt.setInt(3, idBacheca);
+                pstmt.executeUpdate();
+            } finally {
+                arrIds.free();
+                arrPos.free();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante updatePositions", e);
+            throw new DAOException("Errore durante updatePositions", e);
         }
     }
 
@@ -433,13 +1080,15 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public void deleteToDo(int idTodo) {
         String sql = "DELETE FROM todo WHERE id_todo = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, idTodo);
             pstmt.executeUpdate();
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante deleteToDo", e);
+            throw new DAOException("Errore durante deleteToDo", e);
         }
     }
 
@@ -465,6 +1114,22 @@ public class PostgresToDoDAO implements ToDoDAO {
      */
     @Override
     public Map<Utente, PermessoCondivisione> getCondivisioni(int idTodo) {
+        try (Connection conn = dataSource.getConnection()) {
+            return getCondivisioni(conn, idTodo);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Errore getCondivisioni", e);
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Variante di {@link #getCondivisioni(int)} che riusa la connessione dell'operazione chiamante.
+     *
+     * @param conn   La connessione in prestito all'operazione corrente.
+     * @param idTodo L'ID del ToDo.
+     * @return Mappa {@code Utente -> PermessoCondivisione}.
+     */
+    private Map<Utente, PermessoCondivisione> getCondivisioni(Connection conn, int idTodo) {
         Map<Utente, PermessoCondivisione> mappa = new HashMap<>();
 
         String sql = "SELECT u.id_utente, u.username, u.password, tc.permesso " +
@@ -504,13 +1169,15 @@ public class PostgresToDoDAO implements ToDoDAO {
     public void aggiungiCondivisione(int idTodo, int idUtente, PermessoCondivisione permesso) {
         String sql = "INSERT INTO todo_condivisione (id_todo, id_utente, permesso) VALUES (?, ?, ?) " +
                 "ON CONFLICT (id_todo, id_utente) DO UPDATE SET permesso = EXCLUDED.permesso";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idTodo);
             pstmt.setInt(2, idUtente);
             pstmt.setString(3, permesso.name());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore aggiungiCondivisione", e);
+            throw new DAOException("Errore aggiungiCondivisione", e);
         }
     }
 
@@ -524,13 +1191,15 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public void aggiornaPermessoCondivisione(int idTodo, int idUtente, PermessoCondivisione permesso) {
         String sql = "UPDATE todo_condivisione SET permesso = ? WHERE id_todo = ? AND id_utente = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, permesso.name());
             pstmt.setInt(2, idTodo);
             pstmt.setInt(3, idUtente);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore aggiornaPermessoCondivisione", e);
+            throw new DAOException("Errore aggiornaPermessoCondivisione", e);
         }
     }
 
@@ -543,12 +1212,14 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public void rimuoviCondivisione(int idTodo, int idUtente) {
         String sql = "DELETE FROM todo_condivisione WHERE id_todo = ? AND id_utente = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idTodo);
             pstmt.setInt(2, idUtente);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore rimuoviCondivisione", e);
+            throw new DAOException("Errore rimuoviCondivisione", e);
         }
     }
 
@@ -563,16 +1234,15 @@ public class PostgresToDoDAO implements ToDoDAO {
     @Override
     public List<ToDo> getSharedToDosForUser(int idUtente, TitoloBacheca titoloBacheca) {
         List<ToDo> todos = new ArrayList<>();
-        String sql = "SELECT t.* " +
+        String sql = "SELECT " + COLONNE_TODO + " " +
                 "FROM todo t " +
                 "JOIN todo_condivisione tc ON t.id_todo = tc.id_todo " +
-                "JOIN bacheca b_creatore ON t.id_bacheca = b_creatore.id_bacheca " +
                 "WHERE tc.id_utente = ? " +
-                "  AND b_creatore.titolo = ? " +
-                "GROUP BY t.id_todo " +
+                "  AND t.titolo_bacheca = ? " +
                 "ORDER BY t.posizione ASC";
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idUtente);
             pstmt.setString(2, titoloBacheca.name());
 
@@ -581,8 +1251,10 @@ public class PostgresToDoDAO implements ToDoDAO {
                     todos.add(hydrateToDo(rs));
                 }
             }
+            hydrateRelazioni(conn, todos);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Errore durante getSharedToDosForUser", e);
+            throw new DAOException("Errore durante getSharedToDosForUser", e);
         }
         return todos;
     }
@@ -2,8 +2,10 @@ package dao.postgresimpl;
 
 import database.DBConnection;
 import model.Utente;
+import dao.DAOException;
 import dao.UtenteDAO;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,26 +19,26 @@ import java.util.logging.Level;
  * in the PostgreSQL database.
  */
 public class PostgresUtenteDAO implements UtenteDAO {
-    private final Connection connection;
+    private final DataSource dataSource;
     private static final Logger LOGGER = Logger.getLogger(PostgresUtenteDAO.class.getName());
     private static final String PASSWORD_COLUMN = "password";
 
     /**
      * Default constructor.
-     * Gets the Singleton connection from {@link DBConnection}.
+     * Borrows a connection from the {@link DBConnection} pool for every operation.
      */
     public PostgresUtenteDAO() {
-        this.connection = DBConnection.getConnection();
+        this.dataSource = DBConnection.getDataSource();
     }
 
     /**
-     * Constructor that accepts an external connection.
-     * Useful for testing purposes or managed transactions.
+     * Constructor that accepts an external connection source.
+     * Useful for testing purposes or custom pool configurations.
      *
-     * @param connection The SQL connection to use.
+     * @param dataSource The source used to obtain a connection for every operation.
      */
-    public PostgresUtenteDAO(Connection connection) {
-        this.connection = connection;
+    public PostgresUtenteDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
@@ -47,7 +49,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public void addUtente(Utente utente) {
         String sql ="INSERT INTO utente(username,password) VALUES (?, ?) RETURNING id_utente";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)){
             stmt.setString(1, utente.getUsername());
             stmt.setString(2, utente.getPassword()); // Password ALREADY HASHED
 
@@ -68,7 +71,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public Utente getUtenteByUsername(String username) {
         String sql = "SELECT id_utente, username, password FROM utente WHERE username = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, username);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -92,7 +96,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public void updateUtente(Utente utente) {
         String sql = "UPDATE utente SET password = ? WHERE id_utente = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, utente.getPassword()); // Update hash
             stmt.setInt(2, utente.getIdUtente());
             stmt.executeUpdate();
@@ -107,11 +112,13 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public void deleteUtenteById(int id) {
         String sql = "DELETE FROM utente WHERE id_utente = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error during deleteUtenteById: " + e.getMessage(), e);
+            throw new DAOException("Error during deleteUtenteById", e);
         }
     }
 
@@ -122,7 +129,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     public List<Utente> getAllUtenti() {
         List<Utente> utenti = new ArrayList<>();
         String sql = "SELECT id_utente, username, password FROM utente";
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -144,7 +152,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public Utente getUtenteById(int id) {
         String sql = "SELECT id_utente, username, password FROM utente WHERE id_utente = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -169,7 +178,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
     @Override
     public boolean utenteEsiste(String username) {
         String sql = "SELECT 1 FROM utente WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, username);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -193,7 +203,8 @@ public class PostgresUtenteDAO implements UtenteDAO {
         String sql = "SELECT id_utente, username, password FROM utente " +
                 "WHERE username ILIKE ? AND id_utente != ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, "%" + query + "%"); // ILIKE for case-insensitive
             stmt.setInt(2, idUtenteAttuale); // Excludes logged user
 
@@ -0,0 +1,176 @@
+package dao.postgresimpl;
+
+import database.DBConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verifica dei piani di esecuzione delle query principali di {@link PostgresToDoDAO}.
+ * <p>
+ * Per ogni query registra l'output di {@code EXPLAIN (COSTS OFF)} in un file di testo
+ * ({@code <cartella>/<query>.txt}). Alla prima esecuzione i file fanno da riferimento; alle
+ * successive un piano diverso viene salvato accanto come {@code <query>.nuovo.txt} e segnalato
+ * come possibile regressione, così una modifica a query o indici che cambia la strategia
+ * del planner non passa inosservata.
+ * <p>
+ * Le query vengono pianificate con {@code enable_seqscan} disattivato: su un database di prova con
+ * poche righe il planner preferirebbe comunque la scansione sequenziale, mentre così il piano mostra
+ * gli indici che la query è in grado di usare. Una {@code Seq Scan} rimasta nel piano indica quindi
+ * una query che nessun indice può servire, ed è sempre segnalata.
+ * <p>
+ * Uso: {@code VerificaPiani <idUtente> [cartella]} (cartella predefinita: {@code piani-sql}).
+ * Termina con codice 1 se rileva regressioni.
+ */
+public final class VerificaPiani {
+
+    private static final Logger LOGGER = Logger.getLogger(VerificaPiani.class.getName());
+
+    /**
+     * Imposta i parametri di una query da verificare.
+     */
+    @FunctionalInterface
+    private interface Parametri {
+        void imposta(PreparedStatement pstmt) throws SQLException;
+    }
+
+    /**
+     * Query da verificare, con il nome del file del suo piano.
+     */
+    private static final class Query {
+        private final String nome;
+        private final String sql;
+        private final Parametri parametri;
+
+        private Query(String nome, String sql, Parametri parametri) {
+            this.nome = nome;
+            this.sql = sql;
+            this.parametri = parametri;
+        }
+    }
+
+    /**
+     * Costruttore privato per nascondere quello pubblico implicito.
+     * <p>
+     * Questa classe contiene solo un metodo statico main e non deve essere istanziata.
+     */
+    private VerificaPiani() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Registra e confronta i piani delle query.
+     *
+     * @param args L'ID dell'utente con cui parametrizzare le query e, opzionalmente, la cartella dei piani.
+     * @throws SQLException Se l'interrogazione del database fallisce.
+     * @throws IOException  Se la lettura o la scrittura dei file dei piani fallisce.
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 1) {
+            LOGGER.severe("Uso: VerificaPiani <idUtente> [cartella]");
+            System.exit(2);
+        }
+        int idUtente = Integer.parseInt(args[0]);
+        Path cartella = Paths.get(args.length > 1 ? args[1] : "piani-sql");
+        Files.createDirectories(cartella);
+
+        int regressioni = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            int idBacheca = primaBacheca(conn, idUtente);
+            LocalDate oggi = LocalDate.now();
+
+            List<Query> query = List.of(
+                    new Query("todo_per_bacheca", PostgresToDoDAO.SQL_PER_BACHECA,
+                            p -> p.setInt(1, idBacheca)),
+                    new Query("todo_per_data", PostgresToDoDAO.SQL_PER_DATA,
+                            p -> PostgresToDoDAO.impostaParametriUtenteData(p, idUtente, oggi)),
+                    new Query("todo_entro_data", PostgresToDoDAO.SQL_ENTRO_DATA,
+                            p -> PostgresToDoDAO.impostaParametriUtenteData(p, idUtente, oggi.plusDays(7))),
+                    new Query("ricerca", PostgresToDoDAO.SQL_RICERCA,
+                            p -> PostgresToDoDAO.impostaParametriRicerca(p, idUtente, "riunione", 50, 0)));
+
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL enable_seqscan = off");
+            }
+            for (Query q : query) {
+                if (!confronta(cartella, q.nome, piano(conn, q.sql, q.parametri))) regressioni++;
+            }
+            conn.rollback();
+        } finally {
+            DBConnection.closeConnection();
+        }
+
+        if (regressioni > 0) {
+            LOGGER.severe(regressioni + " piani da verificare");
+            System.exit(1);
+        }
+        LOGGER.info("Piani invariati");
+    }
+
+    private static int primaBacheca(Connection conn, int idUtente) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id_bacheca FROM bacheca WHERE id_utente = ? ORDER BY posizioneB LIMIT 1")) {
+            pstmt.setInt(1, idUtente);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Esegue {@code EXPLAIN (COSTS OFF)} sulla query con i parametri indicati.
+     *
+     * @return Il piano, una riga per nodo.
+     */
+    private static String piano(Connection conn, String sql, Parametri parametri) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN (COSTS OFF) " + sql)) {
+            parametri.imposta(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sb.append(rs.getString(1)).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Confronta il piano con quello registrato, registrandolo se è il primo.
+     *
+     * @return {@code false} se il piano è cambiato o contiene una scansione sequenziale.
+     */
+    private static boolean confronta(Path cartella, String nome, String piano) throws IOException {
+        boolean ok = true;
+        if (piano.contains("Seq Scan")) {
+            LOGGER.log(Level.WARNING, "{0}: scansione sequenziale nel piano\n{1}", new Object[]{nome, piano});
+            ok = false;
+        }
+
+        Path riferimento = cartella.resolve(nome + ".txt");
+        if (!Files.exists(riferimento)) {
+            Files.writeString(riferimento, piano, StandardCharsets.UTF_8);
+            LOGGER.info(() -> nome + ": piano registrato come riferimento");
+            return ok;
+        }
+        if (!Files.readString(riferimento, StandardCharsets.UTF_8).equals(piano)) {
+            Files.writeString(cartella.resolve(nome + ".nuovo.txt"), piano, StandardCharsets.UTF_8);
+            LOGGER.log(Level.WARNING, "{0}: piano diverso dal riferimento\n{1}", new Object[]{nome, piano});
+            ok = false;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,213 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache dei {@link PreparedStatement} di una connessione fisica del {@link ConnectionPool}.
+ * <p>
+ * Gli statement sono indicizzati per testo SQL: quando un DAO prepara una query già vista sulla stessa
+ * connessione riceve lo statement esistente, con il piano già analizzato dal server. La {@code close()}
+ * del chiamante non chiude lo statement, ma ne azzera i parametri e lo rende di nuovo disponibile.
+ * <p>
+ * La cache è limitata: oltre {@code capacita} voci viene chiuso lo statement usato meno di recente.
+ * Uno statement ancora aperto dal chiamante non viene mai espulso né consegnato due volte; in quel
+ * caso viene preparato uno statement non in cache.
+ * <p>
+ * Come la connessione a cui appartiene, la cache è usata da un solo thread alla volta.
+ */
+final class CacheStatement {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheStatement.class.getName());
+
+    /**
+     * Statement in cache e stato del prestito al chiamante.
+     */
+    private static final class Voce {
+        private final PreparedStatement statement;
+        private boolean inUso;
+
+        private Voce(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final Connection fisica;
+    private final int capacita;
+
+    /**
+     * Voci in ordine di accesso: la prima è quella usata meno di recente.
+     */
+    private final Map<String, Voce> voci = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Numero di statement di {@link ConnectionPool#preparaSuOgniConnessione(String...)} già preparati.
+     */
+    private int preparatiInAnticipo = 0;
+
+    // Metriche condivise con il pool
+    private final AtomicLong riusi;
+    private final AtomicLong preparazioni;
+    private final AtomicLong espulsioni;
+
+    CacheStatement(Connection fisica, int capacita, AtomicLong riusi, AtomicLong preparazioni, AtomicLong espulsioni) {
+        this.fisica = fisica;
+        this.capacita = capacita;
+        this.riusi = riusi;
+        this.preparazioni = preparazioni;
+        this.espulsioni = espulsioni;
+    }
+
+    /**
+     * Restituisce uno statement per la query, riusando quello in cache se disponibile.
+     *
+     * @param sql         Il testo della query.
+     * @param connessione La connessione da restituire con {@link PreparedStatement#getConnection()}.
+     * @return Lo statement, da chiudere come di consueto al termine dell'uso.
+     * @throws SQLException Se la preparazione fallisce.
+     */
+    PreparedStatement prepara(String sql, Connection connessione) throws SQLException {
+        if (capacita <= 0) return fisica.prepareStatement(sql);
+
+        Voce voce = voci.get(sql);
+        if (voce != null && voce.inUso) {
+            // Stessa query già aperta dal chiamante (es. annidata): statement dedicato, fuori cache
+            return fisica.prepareStatement(sql);
+        }
+        if (voce != null) {
+            riusi.incrementAndGet();
+        } else {
+            voce = new Voce(fisica.prepareStatement(sql));
+            preparazioni.incrementAndGet();
+            voci.put(sql, voce);
+            rispettaCapacita();
+        }
+        voce.inUso = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new GestoreStatement(sql, voce, connessione));
+    }
+
+    /**
+     * Prepara gli statement registrati non ancora presenti in cache. Ogni statement viene descritto
+     * dal server ({@link PreparedStatement#getParameterMetaData()}), così analisi della query e
+     * verifica degli oggetti referenziati avvengono qui e non al primo utilizzo.
+     *
+     * @param registrati Gli statement da preparare; la lista può solo crescere.
+     */
+    void preparaInAnticipo(List<String> registrati) {
+        if (capacita <= 0) return;
+        while (preparatiInAnticipo < registrati.size()) {
+            String sql = registrati.get(preparatiInAnticipo++);
+            if (voci.containsKey(sql)) continue;
+            try {
+                PreparedStatement ps = fisica.prepareStatement(sql);
+                ps.getParameterMetaData();
+                preparazioni.incrementAndGet();
+                voci.put(sql, new Voce(ps));
+                rispettaCapacita();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Impossibile preparare in anticipo lo statement: " + sql, e);
+            }
+        }
+    }
+
+    /**
+     * Chiude tutti gli statement in cache.
+     */
+    void chiudi() {
+        for (Voce voce : voci.values()) chiudiStatement(voce.statement);
+        voci.clear();
+    }
+
+    private void rispettaCapacita() {
+        Iterator<Voce> it = voci.values().iterator();
+        while (voci.size() > capacita && it.hasNext()) {
+            Voce vecchia = it.next();
+            if (vecchia.inUso) continue;
+            it.remove();
+            chiudiStatement(vecchia.statement);
+            espulsioni.incrementAndGet();
+        }
+    }
+
+    private void rilascia(String sql, Voce voce) {
+        voce.inUso = false;
+        try {
+            voce.statement.clearParameters();
+            voce.statement.clearBatch();
+        } catch (SQLException e) {
+            // Statement non più utilizzabile: viene tolto dalla cache
+            voci.remove(sql, voce);
+            chiudiStatement(voce.statement);
+        }
+    }
+
+    private static void chiudiStatement(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Errore durante la chiusura di uno statement in cache", e);
+        }
+    }
+
+    /**
+     * Handler dello statement consegnato al chiamante: intercetta {@code close()} per restituire
+     * lo statement alla cache e impedisce l'uso dopo la chiusura.
+     */
+    private final class GestoreStatement implements InvocationHandler {
+        private final String sql;
+        private final Voce voce;
+        private final Connection connessione;
+        private boolean chiuso = false;
+
+        private GestoreStatement(String sql, Voce voce, Connection connessione) {
+            this.sql = sql;
+            this.voce = voce;
+            this.connessione = connessione;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!chiuso) {
+                        chiuso = true;
+                        rilascia(sql, voce);
+                    }
+                    return null;
+                case "isClosed":
+                    return chiuso || voce.statement.isClosed();
+                case "getConnection":
+                    return connessione;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (chiuso) {
+                throw new SQLException("Statement già chiuso.");
+            }
+            try {
+                return method.invoke(voce.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,730 @@
+package database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool di connessioni JDBC integrato, senza dipendenze esterne.
+ * <p>
+ * Sostituisce la singola {@link Connection} condivisa: ogni operazione DAO prende in prestito
+ * una connessione con {@link #getConnection()} e la restituisce chiudendola
+ * (tipicamente tramite {@code try-with-resources}). Il pool offre:
+ * <ul>
+ * <li>Dimensione minima e massima configurabili.</li>
+ * <li>Validazione al momento del prestito delle sole connessioni rimaste inattive
+ * oltre {@link #VALIDAZIONE_DOPO_INATTIVITA_MILLIS}.</li>
+ * <li>Eviction periodica delle connessioni inattive oltre la soglia di idle.</li>
+ * <li>Rilevamento dei leak (connessioni trattenute oltre una soglia); con la proprietà di sistema
+ * {@code todo.pool.tracciaLeak} la segnalazione include lo stack di chi ha preso la connessione.</li>
+ * <li>Timeout di acquisizione con metriche sui tempi di attesa.</li>
+ * <li>Cache LRU dei {@link java.sql.PreparedStatement} per connessione (vedi {@link CacheStatement}),
+ * con preparazione anticipata delle query registrate da {@link #preparaSuOgniConnessione(String...)}.</li>
+ * </ul>
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Timeout (in secondi) concesso a {@link Connection#isValid(int)} durante la validazione.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Inattività (in millisecondi) oltre la quale una connessione viene validata con
+     * {@link Connection#isValid(int)} prima del prestito. Una connessione restituita da poco
+     * era funzionante: validarla costerebbe un giro di rete in più per ogni operazione DAO.
+     */
+    static final long VALIDAZIONE_DOPO_INATTIVITA_MILLIS = 500;
+
+    /**
+     * Se {@code true} ogni prestito registra lo stack del chiamante, da mostrare nella segnalazione
+     * dei leak. Disattivato per impostazione predefinita perché ha un costo a ogni prestito.
+     */
+    private static final boolean TRACCIA_LEAK = Boolean.getBoolean("todo.pool.tracciaLeak");
+
+    /**
+     * Numero predefinito di statement tenuti in cache per ogni connessione.
+     */
+    public static final int DIMENSIONE_CACHE_STATEMENT_PREDEFINITA = 64;
+
+    /**
+     * Intervallo (in secondi) tra due esecuzioni del task di manutenzione.
+     */
+    private static final long MANUTENZIONE_INTERVALLO_SECONDI = 30;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int dimensioneCacheStatement;
+
+    /**
+     * Query preparate in anticipo su ogni connessione, nell'ordine di registrazione.
+     */
+    private final CopyOnWriteArrayList<String> statementDaPreparare = new CopyOnWriteArrayList<>();
+
+    /**
+     * Connessioni inattive disponibili al prestito (LIFO: le più recenti restano "calde").
+     */
+    private final Deque<ConnessioneInPool> inattive = new ArrayDeque<>();
+
+    /**
+     * Connessioni attualmente in prestito, usate per il rilevamento dei leak.
+     */
+    private final Set<ConnessioneInPool> inPrestito = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition disponibile = lock.newCondition();
+
+    /**
+     * Numero totale di connessioni fisiche aperte o in fase di apertura.
+     */
+    private int totale = 0;
+
+    private boolean chiuso = false;
+
+    private final ScheduledExecutorService manutenzione;
+
+    // Metriche
+    private final AtomicLong acquisizioni = new AtomicLong();
+    private final AtomicLong timeoutAcquisizione = new AtomicLong();
+    private final AtomicLong attesaTotaleNanos = new AtomicLong();
+    private final AtomicLong attesaMassimaNanos = new AtomicLong();
+    private final AtomicLong connessioniCreate = new AtomicLong();
+    private final AtomicLong connessioniDistrutte = new AtomicLong();
+    private final AtomicLong validazioniFallite = new AtomicLong();
+    private final AtomicLong leakRilevati = new AtomicLong();
+    private final AtomicLong statementRiusati = new AtomicLong();
+    private final AtomicLong statementPreparati = new AtomicLong();
+    private final AtomicLong statementEspulsi = new AtomicLong();
+
+    /**
+     * Costruisce un nuovo pool con la cache degli statement di dimensione predefinita
+     * ({@link #DIMENSIONE_CACHE_STATEMENT_PREDEFINITA}) e apre subito le connessioni minime.
+     *
+     * @param url                  URL JDBC del database.
+     * @param user                 Username per l'autenticazione.
+     * @param password             Password per l'autenticazione.
+     * @param minSize              Numero minimo di connessioni mantenute aperte.
+     * @param maxSize              Numero massimo di connessioni aperte contemporaneamente.
+     * @param acquireTimeoutMillis Tempo massimo di attesa per ottenere una connessione.
+     * @param idleTimeoutMillis    Tempo dopo il quale una connessione inattiva (oltre il minimo) viene chiusa.
+     * @param leakThresholdMillis  Tempo di prestito oltre il quale una connessione viene segnalata come leak.
+     * @throws IllegalArgumentException Se le dimensioni del pool non sono coerenti.
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+        this(url, user, password, minSize, maxSize, acquireTimeoutMillis, idleTimeoutMillis, leakThresholdMillis,
+                DIMENSIONE_CACHE_STATEMENT_PREDEFINITA);
+    }
+
+    /**
+     * Costruisce un nuovo pool e apre subito le connessioni minime.
+     *
+     * @param url                  URL JDBC del database.
+     * @param user                 Username per l'autenticazione.
+     * @param password             Password per l'autenticazione.
+     * @param minSize              Numero minimo di connessioni mantenute aperte.
+     * @param maxSize              Numero massimo di connessioni aperte contemporaneamente.
+     * @param acquireTimeoutMillis Tempo massimo di attesa per ottenere una connessione.
+     * @param idleTimeoutMillis    Tempo dopo il quale una connessione inattiva (oltre il minimo) viene chiusa.
+     * @param leakThresholdMillis  Tempo di prestito oltre il quale una connessione viene segnalata come leak.
+     * @param dimensioneCacheStatement Numero massimo di statement in cache per connessione (0 per disattivare la cache).
+     * @throws IllegalArgumentException Se le dimensioni del pool non sono coerenti.
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int dimensioneCacheStatement) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Dimensioni del pool non valide: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.dimensioneCacheStatement = dimensioneCacheStatement;
+
+        this.manutenzione = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-manutenzione");
+            t.setDaemon(true);
+            return t;
+        });
+        this.manutenzione.scheduleWithFixedDelay(this::eseguiManutenzione,
+                MANUTENZIONE_INTERVALLO_SECONDI, MANUTENZIONE_INTERVALLO_SECONDI, TimeUnit.SECONDS);
+
+        riempiFinoAlMinimo();
+    }
+
+    /**
+     * Prende in prestito una connessione dal pool.
+     * <p>
+     * Se non ci sono connessioni inattive e il pool ha raggiunto la dimensione massima,
+     * attende fino al timeout di acquisizione. Se la connessione era inattiva da più di
+     * {@link #VALIDAZIONE_DOPO_INATTIVITA_MILLIS} viene prima validata. Va chiusa dal chiamante
+     * per essere restituita al pool.
+     * <p>
+     * Se il thread corrente sta eseguendo una transazione di {@link TransactionManager} su questo pool,
+     * viene restituita la connessione della transazione.
+     *
+     * @return Una connessione valida in prestito.
+     * @throws SQLException Se il pool è chiuso, il timeout scade o la creazione fallisce.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection inTransazione = TransactionManager.connessioneCorrente(this);
+        if (inTransazione != null) return inTransazione;
+
+        long inizio = System.nanoTime();
+        long scadenza = inizio + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            ConnessioneInPool candidata = null;
+            boolean creaNuova = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (chiuso) throw new SQLException("Il pool di connessioni è chiuso.");
+                    candidata = inattive.pollFirst();
+                    if (candidata != null) break;
+                    if (totale < maxSize) {
+                        totale++;
+                        creaNuova = true;
+                        break;
+                    }
+                    long restante = scadenza - System.nanoTime();
+                    if (restante <= 0) {
+                        timeoutAcquisizione.incrementAndGet();
+                        throw new SQLException("Timeout di " + acquireTimeoutMillis
+                                + " ms nell'acquisizione di una connessione dal pool (attive: " + inPrestito.size() + ").");
+                    }
+                    try {
+                        disponibile.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Attesa di una connessione interrotta.", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (creaNuova) {
+                try {
+                    candidata = nuovaConnessione();
+                } catch (SQLException e) {
+                    rilasciaPosto();
+                    throw e;
+                }
+            } else if (!valida(candidata)) {
+                validazioniFallite.incrementAndGet();
+                distruggi(candidata);
+                continue;
+            }
+
+            registraAttesa(System.nanoTime() - inizio);
+            return presta(candidata);
+        }
+    }
+
+    /**
+     * Non supportato: il pool utilizza credenziali fisse.
+     *
+     * @param username Ignorato.
+     * @param password Ignorato.
+     * @return Mai.
+     * @throws SQLFeatureNotSupportedException Sempre.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Il pool utilizza credenziali fisse.");
+    }
+
+    /**
+     * Registra query da preparare in anticipo su ogni connessione, così il costo di analisi
+     * viene pagato una volta per connessione e non al primo utilizzo.
+     * <p>
+     * Le connessioni già aperte le preparano al prestito successivo, quelle nuove alla creazione.
+     * Le query già registrate vengono ignorate.
+     *
+     * @param sql Il testo delle query, identico a quello passato a {@code prepareStatement}.
+     */
+    public void preparaSuOgniConnessione(String... sql) {
+        for (String s : sql) {
+            statementDaPreparare.addIfAbsent(s);
+        }
+    }
+
+    /**
+     * Chiude il pool: le connessioni inattive vengono chiuse subito, quelle in prestito
+     * vengono chiuse al momento della restituzione.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (chiuso) return;
+            chiuso = true;
+            disponibile.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        manutenzione.shutdownNow();
+        svuotaInattive();
+        LOGGER.info("Pool di connessioni chiuso.");
+    }
+
+    /**
+     * Restituisce un'istantanea delle metriche del pool.
+     *
+     * @return Le {@link Statistiche} correnti.
+     */
+    public Statistiche getStatistiche() {
+        int numeroInattive;
+        int numeroTotale;
+        lock.lock();
+        try {
+            numeroInattive = inattive.size();
+            numeroTotale = totale;
+        } finally {
+            lock.unlock();
+        }
+        return new Statistiche(numeroTotale, inPrestito.size(), numeroInattive,
+                acquisizioni.get(), timeoutAcquisizione.get(),
+                attesaTotaleNanos.get(), attesaMassimaNanos.get(),
+                connessioniCreate.get(), connessioniDistrutte.get(),
+                validazioniFallite.get(), leakRilevati.get(),
+                statementRiusati.get(), statementPreparati.get(), statementEspulsi.get());
+    }
+
+    // --- Gestione interna ---
+
+    private Connection apriConnessioneFisica() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, password);
+        connessioniCreate.incrementAndGet();
+        return c;
+    }
+
+    /**
+     * Apre una connessione fisica e ne prepara in anticipo gli statement registrati.
+     */
+    private ConnessioneInPool nuovaConnessione() throws SQLException {
+        Connection fisica = apriConnessioneFisica();
+        ConnessioneInPool pc = new ConnessioneInPool(fisica, new CacheStatement(fisica, dimensioneCacheStatement,
+                statementRiusati, statementPreparati, statementEspulsi));
+        pc.statement.preparaInAnticipo(statementDaPreparare);
+        return pc;
+    }
+
+    private boolean valida(ConnessioneInPool pc) {
+        try {
+            if (pc.fisica.isClosed()) return false;
+            if (System.currentTimeMillis() - pc.ultimoUtilizzo < VALIDAZIONE_DOPO_INATTIVITA_MILLIS) return true;
+            return pc.fisica.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection presta(ConnessioneInPool pc) {
+        // Query registrate dopo l'apertura della connessione
+        pc.statement.preparaInAnticipo(statementDaPreparare);
+        pc.prestataDa = System.currentTimeMillis();
+        pc.tracciaPrestito = TRACCIA_LEAK ? new Throwable("Connessione presa in prestito da") : null;
+        pc.leakSegnalato = false;
+        inPrestito.add(pc);
+        acquisizioni.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new GestoreConnessione(pc));
+    }
+
+    /**
+     * Riporta nel pool una connessione restituita dal chiamante.
+     * Ripristina l'autocommit e scarta le connessioni non più utilizzabili.
+     *
+     * @param pc La connessione restituita.
+     */
+    private void restituisci(ConnessioneInPool pc) {
+        inPrestito.remove(pc);
+
+        boolean riutilizzabile;
+        try {
+            riutilizzabile = !pc.fisica.isClosed();
+            if (riutilizzabile && !pc.fisica.getAutoCommit()) {
+                pc.fisica.rollback();
+                pc.fisica.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Connessione scartata durante la restituzione al pool", e);
+            riutilizzabile = false;
+        }
+
+        if (!riutilizzabile) {
+            distruggi(pc);
+            return;
+        }
+
+        pc.ultimoUtilizzo = System.currentTimeMillis();
+        boolean chiudi;
+        lock.lock();
+        try {
+            chiudi = chiuso;
+            if (!chiudi) {
+                inattive.addFirst(pc);
+                disponibile.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (chiudi) distruggi(pc);
+    }
+
+    private void distruggi(ConnessioneInPool pc) {
+        pc.statement.chiudi();
+        try {
+            pc.fisica.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Errore durante la chiusura di una connessione fisica", e);
+        }
+        connessioniDistrutte.incrementAndGet();
+        rilasciaPosto();
+    }
+
+    private void rilasciaPosto() {
+        lock.lock();
+        try {
+            totale--;
+            disponibile.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void registraAttesa(long nanos) {
+        attesaTotaleNanos.addAndGet(nanos);
+        attesaMassimaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Task periodico: chiude le connessioni inattive oltre la soglia (senza scendere sotto
+     * il minimo), riapre quelle mancanti e segnala i possibili leak.
+     */
+    private void eseguiManutenzione() {
+        try {
+            long ora = System.currentTimeMillis();
+
+            Deque<ConnessioneInPool> daChiudere = new ArrayDeque<>();
+            lock.lock();
+            try {
+                Iterator<ConnessioneInPool> it = inattive.descendingIterator();
+                int eccedenti = totale - minSize;
+                while (it.hasNext() && eccedenti > 0) {
+                    ConnessioneInPool pc = it.next();
+                    if (ora - pc.ultimoUtilizzo > idleTimeoutMillis) {
+                        it.remove();
+                        daChiudere.add(pc);
+                        eccedenti--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (ConnessioneInPool pc : daChiudere) distruggi(pc);
+
+            riempiFinoAlMinimo();
+
+            for (ConnessioneInPool pc : inPrestito) {
+                if (!pc.leakSegnalato && ora - pc.prestataDa > leakThresholdMillis) {
+                    pc.leakSegnalato = true;
+                    leakRilevati.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Possibile leak: connessione in prestito da oltre "
+                            + (ora - pc.prestataDa) + " ms"
+                            + (TRACCIA_LEAK ? "" : " (avviare con -Dtodo.pool.tracciaLeak=true per lo stack del chiamante)"),
+                            pc.tracciaPrestito);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante la manutenzione del pool", e);
+        }
+    }
+
+    private void riempiFinoAlMinimo() {
+        while (true) {
+            lock.lock();
+            try {
+                if (chiuso || totale >= minSize) return;
+                totale++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                ConnessioneInPool pc = nuovaConnessione();
+                pc.ultimoUtilizzo = System.currentTimeMillis();
+                restituisciNuova(pc);
+            } catch (SQLException e) {
+                rilasciaPosto();
+                LOGGER.log(Level.SEVERE, "Impossibile aprire le connessioni minime del pool", e);
+                return;
+            }
+        }
+    }
+
+    private void restituisciNuova(ConnessioneInPool pc) {
+        pc.ultimoUtilizzo = System.currentTimeMillis();
+        lock.lock();
+        try {
+            inattive.addLast(pc);
+            disponibile.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void svuotaInattive() {
+        Deque<ConnessioneInPool> daChiudere;
+        lock.lock();
+        try {
+            daChiudere = new ArrayDeque<>(inattive);
+            inattive.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (ConnessioneInPool pc : daChiudere) distruggi(pc);
+    }
+
+    // --- Metodi DataSource non significativi per il pool ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Il pool registra tramite java.util.logging.
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Il pool non implementa " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Connessione fisica gestita dal pool, con i metadati di prestito.
+     */
+    private static final class ConnessioneInPool {
+        private final Connection fisica;
+        private final CacheStatement statement;
+        private volatile long ultimoUtilizzo;
+        private volatile long prestataDa;
+        private volatile Throwable tracciaPrestito;
+        private volatile boolean leakSegnalato;
+
+        private ConnessioneInPool(Connection fisica, CacheStatement statement) {
+            this.fisica = fisica;
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * Handler del proxy consegnato al chiamante: intercetta {@code close()} per restituire
+     * la connessione al pool e impedisce l'uso del proxy dopo la restituzione.
+     */
+    private final class GestoreConnessione implements InvocationHandler {
+        private final ConnessioneInPool pc;
+        private boolean restituita = false;
+
+        private GestoreConnessione(ConnessioneInPool pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!restituita) {
+                        restituita = true;
+                        restituisci(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return restituita || pc.fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.fisica + "]";
+                default:
+                    break;
+            }
+            if (restituita) {
+                throw new SQLException("Connessione già restituita al pool.");
+            }
+            if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                return pc.statement.prepara((String) args[0], (Connection) proxy);
+            }
+            try {
+                return method.invoke(pc.fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Istantanea immutabile delle metriche del pool.
+     */
+    public static final class Statistiche {
+        private final int totali;
+        private final int attive;
+        private final int inattive;
+        private final long acquisizioni;
+        private final long timeoutAcquisizione;
+        private final long attesaTotaleNanos;
+        private final long attesaMassimaNanos;
+        private final long connessioniCreate;
+        private final long connessioniDistrutte;
+        private final long validazioniFallite;
+        private final long leakRilevati;
+        private final long statementRiusati;
+        private final long statementPreparati;
+        private final long statementEspulsi;
+
+        private Statistiche(int totali, int attive, int inattive, long acquisizioni, long timeoutAcquisizione,
+                            long attesaTotaleNanos, long attesaMassimaNanos, long connessioniCreate,
+                            long connessioniDistrutte, long validazioniFallite, long leakRilevati,
+                            long statementRiusati, long statementPreparati, long statementEspulsi) {
+            this.totali = totali;
+            this.attive = attive;
+            this.inattive = inattive;
+            this.acquisizioni = acquisizioni;
+            this.timeoutAcquisizione = timeoutAcquisizione;
+            this.attesaTotaleNanos = attesaTotaleNanos;
+            this.attesaMassimaNanos = attesaMassimaNanos;
+            this.connessioniCreate = connessioniCreate;
+            this.connessioniDistrutte = connessioniDistrutte;
+            this.validazioniFallite = validazioniFallite;
+            this.leakRilevati = leakRilevati;
+            this.statementRiusati = statementRiusati;
+            this.statementPreparati = statementPreparati;
+            this.statementEspulsi = statementEspulsi;
+        }
+
+        /** @return Numero totale di connessioni fisiche aperte. */
+        public int getTotali() { return totali; }
+
+        /** @return Numero di connessioni attualmente in prestito. */
+        public int getAttive() { return attive; }
+
+        /** @return Numero di connessioni inattive disponibili. */
+        public int getInattive() { return inattive; }
+
+        /** @return Numero totale di acquisizioni riuscite. */
+        public long getAcquisizioni() { return acquisizioni; }
+
+        /** @return Numero di acquisizioni fallite per timeout. */
+        public long getTimeoutAcquisizione() { return timeoutAcquisizione; }
+
+        /** @return Tempo medio di acquisizione in millisecondi. */
+        public double getAttesaMediaMillis() {
+            return acquisizioni == 0 ? 0 : attesaTotaleNanos / 1_000_000.0 / acquisizioni;
+        }
+
+        /** @return Tempo massimo di acquisizione osservato in millisecondi. */
+        public double getAttesaMassimaMillis() { return attesaMassimaNanos / 1_000_000.0; }
+
+        /** @return Numero di connessioni fisiche create. */
+        public long getConnessioniCreate() { return connessioniCreate; }
+
+        /** @return Numero di connessioni fisiche chiuse. */
+        public long getConnessioniDistrutte() { return connessioniDistrutte; }
+
+        /** @return Numero di connessioni scartate perché non valide al prestito. */
+        public long getValidazioniFallite() { return validazioniFallite; }
+
+        /** @return Numero di possibili leak segnalati. */
+        public long getLeakRilevati() { return leakRilevati; }
+
+        /** @return Numero di statement riusati dalla cache. */
+        public long getStatementRiusati() { return statementRiusati; }
+
+        /** @return Numero di statement preparati e messi in cache (inclusi quelli preparati in anticipo). */
+        public long getStatementPreparati() { return statementPreparati; }
+
+        /** @return Numero di statement chiusi per fare spazio nella cache. */
+        public long getStatementEspulsi() { return statementEspulsi; }
+
+        /** @return Frazione delle richieste di statement servite dalla cache. */
+        public double getPercentualeRiusoStatement() {
+            long richieste = statementRiusati + statementPreparati;
+            return richieste == 0 ? 0 : (double) statementRiusati / richieste;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[totali=%d, attive=%d, inattive=%d, acquisizioni=%d, timeout=%d, "
+                            + "attesaMedia=%.2fms, attesaMax=%.2fms, create=%d, distrutte=%d, validazioniFallite=%d, leak=%d, "
+                            + "statementRiusati=%d, statementPreparati=%d, statementEspulsi=%d]",
+                    totali, attive, inattive, acquisizioni, timeoutAcquisizione,
+                    getAttesaMediaMillis(), getAttesaMassimaMillis(), connessioniCreate,
+                    connessioniDistrutte, validazioniFallite, leakRilevati,
+                    statementRiusati, statementPreparati, statementEspulsi);
+        }
+    }
+}
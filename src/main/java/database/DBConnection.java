@@ -1,24 +1,24 @@
 package database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Gestisce la connessione al database PostgreSQL utilizzando il pattern Singleton.
+ * Punto di accesso centralizzato al database PostgreSQL "Gestore-ToDo".
  * <p>
- * Questa classe funge da punto centralizzato per l'accesso al database "Gestore-ToDo".
- * Garantisce che esista un'unica istanza di {@link Connection} attiva per l'intera applicazione,
- * ottimizzando l'uso delle risorse e semplificando la gestione delle connessioni.
+ * Mantiene un unico {@link ConnectionPool} per l'intera applicazione (pattern Singleton),
+ * creato in modo lazy al primo utilizzo. I DAO prendono in prestito una connessione per
+ * ogni operazione e la restituiscono al pool chiudendola, così che caricamenti e salvataggi
+ * concorrenti possano procedere in parallelo invece di accodarsi su un'unica connessione.
  */
 public class DBConnection {
 
     /**
-     * L'istanza statica della connessione (Singleton).
+     * L'istanza statica del pool di connessioni (Singleton).
      */
-    private static Connection connection = null;
+    private static ConnectionPool pool = null;
 
     /**
      * URL di connessione JDBC per il database PostgreSQL locale.
@@ -36,6 +36,36 @@ public class DBConnection {
      */
     private static final String PASSWORD = "la_tua_password";
 
+    /**
+     * Numero minimo di connessioni mantenute aperte dal pool.
+     */
+    private static final int POOL_MIN_SIZE = 2;
+
+    /**
+     * Numero massimo di connessioni aperte contemporaneamente.
+     */
+    private static final int POOL_MAX_SIZE = 10;
+
+    /**
+     * Tempo massimo di attesa (ms) per ottenere una connessione dal pool.
+     */
+    private static final long ACQUIRE_TIMEOUT_MS = 5_000;
+
+    /**
+     * Tempo (ms) dopo il quale una connessione inattiva oltre il minimo viene chiusa.
+     */
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000L;
+
+    /**
+     * Tempo di prestito (ms) oltre il quale una connessione viene segnalata come possibile leak.
+     */
+    private static final long LEAK_THRESHOLD_MS = 60_000;
+
+    /**
+     * Numero massimo di prepared statement tenuti in cache per ogni connessione.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
     /**
      * Logger per la registrazione di eventi di connessione ed errori.
      */
@@ -49,45 +79,52 @@ public class DBConnection {
     }
 
     /**
-     * Restituisce l'unica istanza della connessione al database.
+     * Restituisce il pool di connessioni dell'applicazione.
      * <p>
-     * Implementa la "Lazy Initialization": se la connessione non è ancora stata creata
-     * o è stata chiusa, viene stabilita una nuova connessione caricando il driver PostgreSQL.
-     * Altrimenti, viene restituita l'istanza esistente.
+     * Implementa la "Lazy Initialization": al primo accesso carica il driver PostgreSQL,
+     * crea il pool e registra un hook di chiusura alla terminazione della JVM.
      *
-     * @return L'oggetto {@link Connection} attivo verso il database.
+     * @return Il {@link ConnectionPool} condiviso, utilizzabile come {@link javax.sql.DataSource}.
      */
-    public static Connection getConnection() {
-        if (connection == null) {
+    public static synchronized ConnectionPool getDataSource() {
+        if (pool == null) {
             try {
                 Class.forName("org.postgresql.Driver");
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-                LOGGER.info("Connessione al database stabilita.");
             } catch (ClassNotFoundException e) {
                 LOGGER.log(Level.SEVERE, "Errore: Driver PostgreSQL non trovato.", e);
-            } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "Errore di connessione al database", e);
             }
+            pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    ACQUIRE_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+            Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::closeConnection, "db-pool-shutdown"));
+            LOGGER.info("Pool di connessioni al database inizializzato.");
         }
-        return connection;
+        return pool;
     }
 
     /**
-     * Chiude la connessione al database se attualmente aperta.
+     * Prende in prestito una connessione dal pool.
      * <p>
-     * Rilascia le risorse occupate dalla connessione e imposta l'istanza statica
-     * a {@code null}, permettendo una successiva riconnessione pulita tramite {@link #getConnection()}.
+     * La connessione va chiusa dal chiamante (preferibilmente con {@code try-with-resources})
+     * per restituirla al pool.
+     *
+     * @return Una {@link Connection} valida in prestito.
+     * @throws SQLException Se non è possibile ottenere una connessione entro il timeout.
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-                LOGGER.info("Connessione al database chiusa.");
-            } catch (SQLException e) {
-                // Sostituito e.printStackTrace()
-                LOGGER.log(Level.SEVERE, "Errore durante la chiusura della connessione al database:", e);
-            }
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Chiude il pool di connessioni, se inizializzato.
+     * <p>
+     * Rilascia tutte le connessioni fisiche e imposta l'istanza statica a {@code null},
+     * permettendo una successiva reinizializzazione pulita tramite {@link #getDataSource()}.
+     */
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            LOGGER.info(() -> "Chiusura del pool: " + pool.getStatistiche());
+            pool.close();
+            pool = null;
         }
     }
-}
\ No newline at end of file
+}
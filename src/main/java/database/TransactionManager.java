@@ -0,0 +1,167 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gestore delle transazioni che comprendono più operazioni DAO.
+ * <p>
+ * {@link #inTransaction(Supplier)} prende in prestito una connessione dal pool dell'applicazione
+ * ({@link DBConnection#getDataSource()}), disattiva l'autocommit e la lega al thread corrente:
+ * finché il lavoro è in esecuzione, ogni {@link ConnectionPool#getConnection()} dello stesso thread
+ * restituisce quella connessione (la sua {@code close()} non ha effetto). I DAO partecipano quindi
+ * alla transazione senza modifiche. Al termine la transazione viene confermata con un solo commit,
+ * oppure annullata se il lavoro solleva un'eccezione: nessuno stato resta applicato a metà.
+ * <p>
+ * Le transazioni annidate si uniscono a quella esterna. Partecipano solo i DAO costruiti sul pool
+ * dell'applicazione.
+ * <p>
+ * Questa classe è definita come <i>utility class</i>: possiede un costruttore privato
+ * e tutti i suoi metodi sono statici.
+ */
+public final class TransactionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionManager.class.getName());
+
+    /**
+     * Transazione attiva sul thread corrente, o {@code null}.
+     */
+    private static final ThreadLocal<Transazione> corrente = new ThreadLocal<>();
+
+    /**
+     * Transazione legata a un thread: il pool che l'ha fornita e la vista della connessione
+     * consegnata ai DAO.
+     */
+    private static final class Transazione {
+        private final ConnectionPool pool;
+        private final Connection vista;
+
+        private Transazione(ConnectionPool pool, Connection connessione) {
+            this.pool = pool;
+            this.vista = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new GestoreVista(connessione));
+        }
+    }
+
+    /**
+     * Handler della connessione consegnata ai DAO durante una transazione: ignora {@code close()},
+     * perché la connessione viene restituita al pool solo al termine della transazione.
+     */
+    private static final class GestoreVista implements InvocationHandler {
+        private final Connection connessione;
+
+        private GestoreVista(Connection connessione) {
+            this.connessione = connessione;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connessione, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Costruttore privato per impedire l'istanziazione della classe.
+     */
+    private TransactionManager() {
+    }
+
+    /**
+     * Esegue un lavoro in un'unica transazione.
+     *
+     * @param lavoro Il lavoro da eseguire, tipicamente una sequenza di chiamate ai DAO.
+     * @param <T>    Il tipo del risultato.
+     * @return Il risultato del lavoro.
+     * @throws IllegalStateException Se non è possibile avviare o confermare la transazione
+     *                               (la causa è la {@link SQLException} originale).
+     * @throws RuntimeException      L'eccezione sollevata dal lavoro, dopo l'annullamento della transazione.
+     */
+    public static <T> T inTransaction(Supplier<T> lavoro) {
+        if (corrente.get() != null) return lavoro.get();
+
+        ConnectionPool pool = DBConnection.getDataSource();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            corrente.set(new Transazione(pool, conn));
+            T risultato;
+            try {
+                risultato = lavoro.get();
+            } catch (RuntimeException | Error e) {
+                annulla(conn, e);
+                throw e;
+            } finally {
+                corrente.remove();
+            }
+            conn.commit();
+            return risultato;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Transazione non completata", e);
+        }
+    }
+
+    /**
+     * Esegue un lavoro senza risultato in un'unica transazione.
+     *
+     * @param lavoro Il lavoro da eseguire.
+     * @throws IllegalStateException Se non è possibile avviare o confermare la transazione.
+     * @throws RuntimeException      L'eccezione sollevata dal lavoro, dopo l'annullamento della transazione.
+     */
+    public static void inTransaction(Runnable lavoro) {
+        inTransaction(() -> {
+            lavoro.run();
+            return null;
+        });
+    }
+
+    /**
+     * Indica se il thread corrente sta eseguendo una transazione.
+     *
+     * @return {@code true} se è attiva una transazione.
+     */
+    public static boolean isInTransaction() {
+        return corrente.get() != null;
+    }
+
+    /**
+     * Restituisce la connessione della transazione attiva sul thread corrente, se fornita dal pool indicato.
+     *
+     * @param pool Il pool a cui viene chiesta una connessione.
+     * @return La connessione della transazione, o {@code null} se non ce n'è una.
+     */
+    static Connection connessioneCorrente(ConnectionPool pool) {
+        Transazione t = corrente.get();
+        return t != null && t.pool == pool ? t.vista : null;
+    }
+
+    private static void annulla(Connection conn, Throwable causa) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            causa.addSuppressed(e);
+            LOGGER.log(Level.WARNING, "Annullamento della transazione non riuscito", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package gui.cards;
+
+import util.Immagini;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache delle immagini dei ToDo già ridimensionate per le card.
+ * <p>
+ * Le versioni ridotte sono indicizzate per ID del ToDo, impronta (hash) dell'immagine e larghezza:
+ * a ogni rinfresco le card riusano la stessa immagine scalata invece di ricalcolarla. Quando
+ * l'immagine di un ToDo cambia cambia anche la sua impronta, e le versioni precedenti vengono scartate.
+ * <p>
+ * La cache è limitata in byte ({@link #BUDGET_BYTE}, configurabile con la proprietà di sistema
+ * {@code todo.cacheImmagini.mb}) ed elimina per prime le immagini usate meno di recente. Le immagini
+ * sono tenute tramite {@link SoftReference}, quindi il garbage collector può liberarle in caso di
+ * memoria scarsa.
+ * <p>
+ * Questa classe è definita come <i>utility class</i>: possiede un costruttore privato
+ * e tutti i suoi metodi sono statici. Può essere usata da più thread: l'accesso alle voci è sincronizzato.
+ */
+final class CacheImmagini {
+
+    /**
+     * Occupazione massima stimata delle immagini in cache (4 byte per pixel).
+     */
+    static final long BUDGET_BYTE = Long.getLong("todo.cacheImmagini.mb", 32) * 1024 * 1024;
+
+    /**
+     * Chiave di una versione scalata.
+     */
+    private static final class Chiave {
+        private final int idToDo;
+        private final String hash;
+        private final int larghezza;
+
+        private Chiave(int idToDo, String hash, int larghezza) {
+            this.idToDo = idToDo;
+            this.hash = hash;
+            this.larghezza = larghezza;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chiave)) return false;
+            Chiave c = (Chiave) o;
+            return idToDo == c.idToDo && larghezza == c.larghezza && hash.equals(c.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idToDo, hash, larghezza);
+        }
+    }
+
+    /**
+     * Immagine in cache con la sua occupazione stimata.
+     */
+    private static final class Voce {
+        private final SoftReference<BufferedImage> immagine;
+        private final long byteOccupati;
+
+        private Voce(BufferedImage immagine) {
+            this.immagine = new SoftReference<>(immagine);
+            this.byteOccupati = 4L * immagine.getWidth() * immagine.getHeight();
+        }
+    }
+
+    /**
+     * Voci in ordine di accesso: la prima è quella usata meno di recente.
+     */
+    private static final Map<Chiave, Voce> voci = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Somma delle occupazioni delle voci presenti.
+     */
+    private static long byteOccupati;
+
+    /**
+     * Costruttore privato per impedire l'istanziazione della classe.
+     */
+    private CacheImmagini() {
+    }
+
+    /**
+     * Restituisce l'immagine ridotta alla larghezza indicata solo se è già in cache.
+     *
+     * @param idToDo    L'ID del ToDo.
+     * @param hash      L'impronta dell'immagine, o {@code null} se non disponibile.
+     * @param larghezza La larghezza desiderata.
+     * @return L'immagine scalata, o {@code null} se non è in cache.
+     */
+    static synchronized BufferedImage inCache(int idToDo, String hash, int larghezza) {
+        if (idToDo <= 0 || hash == null) return null;
+        Chiave chiave = new Chiave(idToDo, hash, larghezza);
+        Voce voce = voci.get(chiave);
+        if (voce == null) return null;
+        BufferedImage img = voce.immagine.get();
+        if (img == null) rimuovi(chiave, voce);
+        return img;
+    }
+
+    /**
+     * Restituisce l'immagine ridotta alla larghezza indicata, calcolandola solo se non è già in cache.
+     * <p>
+     * Le immagini senza impronta (appena scelte e non ancora salvate) o di ToDo non ancora salvati
+     * vengono scalate senza essere messe in cache.
+     *
+     * @param idToDo    L'ID del ToDo.
+     * @param hash      L'impronta dell'immagine, o {@code null} se non disponibile.
+     * @param sorgente  L'immagine originale (già caricata).
+     * @param larghezza La larghezza desiderata, minore di quella originale.
+     * @param altezza   L'altezza desiderata.
+     * @return L'immagine scalata.
+     */
+    static BufferedImage scalata(int idToDo, String hash, Image sorgente, int larghezza, int altezza) {
+        if (idToDo <= 0 || hash == null) return Immagini.riduci(sorgente, larghezza, altezza);
+
+        Chiave chiave = new Chiave(idToDo, hash, larghezza);
+        synchronized (CacheImmagini.class) {
+            Voce voce = voci.get(chiave);
+            if (voce != null) {
+                BufferedImage img = voce.immagine.get();
+                if (img != null) return img;
+                rimuovi(chiave, voce);
+            }
+        }
+
+        // Il ridimensionamento avviene fuori dal lock: due richieste concorrenti al più lo ripetono
+        BufferedImage img = Immagini.riduci(sorgente, larghezza, altezza);
+        synchronized (CacheImmagini.class) {
+            scartaVersioniPrecedenti(idToDo, hash);
+            Voce vecchia = voci.put(chiave, new Voce(img));
+            if (vecchia != null) byteOccupati -= vecchia.byteOccupati;
+            byteOccupati += 4L * larghezza * altezza;
+            rispettaBudget();
+        }
+        return img;
+    }
+
+    /**
+     * Elimina le voci di un ToDo con impronta diversa da quella indicata.
+     */
+    private static void scartaVersioniPrecedenti(int idToDo, String hashAttuale) {
+        Iterator<Map.Entry<Chiave, Voce>> it = voci.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Chiave, Voce> e = it.next();
+            Chiave c = e.getKey();
+            if (c.idToDo == idToDo && !c.hash.equals(hashAttuale)) {
+                byteOccupati -= e.getValue().byteOccupati;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Elimina le voci usate meno di recente finché l'occupazione rientra nel budget.
+     */
+    private static void rispettaBudget() {
+        Iterator<Voce> it = voci.values().iterator();
+        while (byteOccupati > BUDGET_BYTE && it.hasNext()) {
+            byteOccupati -= it.next().byteOccupati;
+            it.remove();
+        }
+    }
+
+    private static void rimuovi(Chiave chiave, Voce voce) {
+        voci.remove(chiave);
+        byteOccupati -= voce.byteOccupati;
+    }
+}
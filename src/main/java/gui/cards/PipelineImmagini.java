@@ -0,0 +1,110 @@
+package gui.cards;
+
+import controllers.MainController;
+import model.ToDo;
+import model.VarianteImmagine;
+
+import javax.swing.ImageIcon;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pipeline in background che prepara le immagini da mostrare nelle card.
+ * <p>
+ * Per ogni richiesta l'immagine viene prima caricata e decodificata dal {@link controllers.ToDoController}
+ * (se non è già in memoria), nella variante salvata più piccola sufficiente per la card
+ * (vedi {@link VarianteImmagine}), poi ridotta alla larghezza esatta della card e salvata in {@link CacheImmagini}. Il ridimensionamento gira su thread virtuali,
+ * ma al più {@link #MAX_RIDIMENSIONAMENTI} alla volta, così una bacheca con molte immagini
+ * non satura la CPU né blocca l'Event Dispatch Thread.
+ * <p>
+ * Le richieste possono essere annullate con {@link CompletableFuture#cancel(boolean)}: se la card
+ * non è più visualizzata prima che il ridimensionamento inizi, il lavoro viene saltato.
+ * <p>
+ * Questa classe è definita come <i>utility class</i>: possiede un costruttore privato
+ * e tutti i suoi metodi sono statici.
+ */
+final class PipelineImmagini {
+
+    /**
+     * Numero massimo di immagini ridimensionate contemporaneamente.
+     */
+    static final int MAX_RIDIMENSIONAMENTI = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Limita i ridimensionamenti concorrenti.
+     */
+    private static final Semaphore limite = new Semaphore(MAX_RIDIMENSIONAMENTI);
+
+    /**
+     * Esecutore dei ridimensionamenti, un thread virtuale per richiesta.
+     */
+    private static final ExecutorService esecutore = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("scala-immagini-", 0).factory());
+
+    /**
+     * Costruttore privato per impedire l'istanziazione della classe.
+     */
+    private PipelineImmagini() {
+    }
+
+    /**
+     * Restituisce subito l'immagine del ToDo alla larghezza indicata, se non richiede lavoro:
+     * l'originale è già in memoria e abbastanza piccola, oppure la versione ridotta è in cache.
+     *
+     * @param todo      Il ToDo con l'immagine.
+     * @param larghezza La larghezza massima disponibile nella card.
+     * @return L'icona pronta da mostrare, o {@code null} se va preparata con {@link #richiedi}.
+     */
+    static ImageIcon pronta(ToDo todo, int larghezza) {
+        BufferedImage scalata = CacheImmagini.inCache(todo.getIdToDo(), todo.getImmagineHash(), larghezza);
+        if (scalata != null) return new ImageIcon(scalata);
+
+        if (!todo.isImmagineCaricata(VarianteImmagine.perLarghezza(larghezza))) return null;
+        ImageIcon originale = todo.getImmagine();
+        return originale == null || originale.getIconWidth() <= larghezza ? originale : null;
+    }
+
+    /**
+     * Avvia la preparazione in background dell'immagine di un ToDo.
+     *
+     * @param todo      Il ToDo con l'immagine.
+     * @param ctrl      Il controller principale, per caricare l'immagine dal database.
+     * @param larghezza La larghezza massima disponibile nella card.
+     * @return Un future (completato su un thread qualsiasi) con l'icona da mostrare, o {@code null} se
+     *         il ToDo non ha più un'immagine. Annullandolo si salta il ridimensionamento.
+     */
+    static CompletableFuture<ImageIcon> richiedi(ToDo todo, MainController ctrl, int larghezza) {
+        CompletableFuture<ImageIcon> risultato = new CompletableFuture<>();
+        // Il caricamento è condiviso tra le card dello stesso ToDo, quindi non viene annullato
+        ctrl.caricaImmagineAsync(todo, VarianteImmagine.perLarghezza(larghezza)).whenComplete((originale, ex) -> {
+            if (risultato.isDone()) return;
+            if (ex != null) {
+                risultato.completeExceptionally(ex);
+            } else if (originale == null || originale.getIconWidth() <= larghezza) {
+                risultato.complete(originale);
+            } else {
+                esecutore.execute(() -> scala(todo, originale, larghezza, risultato));
+            }
+        });
+        return risultato;
+    }
+
+    private static void scala(ToDo todo, ImageIcon originale, int larghezza, CompletableFuture<ImageIcon> risultato) {
+        limite.acquireUninterruptibly();
+        try {
+            if (risultato.isDone()) return;
+
+            int altezza = Math.max(1, (int) ((double) originale.getIconHeight() / originale.getIconWidth() * larghezza));
+            BufferedImage scalata = CacheImmagini.scalata(todo.getIdToDo(), todo.getImmagineHash(),
+                    originale.getImage(), larghezza, altezza);
+            risultato.complete(new ImageIcon(scalata));
+        } catch (RuntimeException e) {
+            risultato.completeExceptionally(e);
+        } finally {
+            limite.release();
+        }
+    }
+}
@@ -16,6 +16,7 @@ import java.util.List;
 
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Pannello grafico che rappresenta una singola attività (ToDo) sotto forma di "card".
@@ -47,6 +48,60 @@ public class ToDoCard extends JPanel {
         }
     }
 
+    /**
+     * Il ToDo visualizzato dalla card.
+     */
+    private final ToDo todo;
+
+    /**
+     * Versione del ToDo al momento della costruzione della card.
+     */
+    private final long versioneVisualizzata;
+
+    /**
+     * Larghezza attuale della card (vedi {@link #ridimensiona(int)}).
+     */
+    private int larghezza;
+
+    /**
+     * Etichetta dell'immagine allegata, o {@code null} se il ToDo non ha un'immagine.
+     */
+    private JLabel etichettaImmagine;
+
+    /**
+     * Larghezza dell'immagine attualmente mostrata ({@code 0} se è ancora visibile il segnaposto).
+     */
+    private int larghezzaImmagine;
+
+    /**
+     * Preparazione dell'immagine in corso, annullata quando la card viene rimossa dalla vista.
+     */
+    private CompletableFuture<ImageIcon> richiestaImmagine;
+
+    /**
+     * Ritenta il caricamento dell'immagine al clic sul segnaposto di errore.
+     * Registrato sull'etichetta solo mentre l'errore è visibile, per non intercettare il trascinamento della card.
+     */
+    private final MouseAdapter riprovaImmagine = new MouseAdapter() {
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            etichettaImmagine.removeMouseListener(this);
+            etichettaImmagine.setCursor(null);
+            etichettaImmagine.setText("Caricamento immagine...");
+            aggiornaImmagine();
+        }
+    };
+
+    /**
+     * Il controller principale, usato per caricare l'immagine.
+     */
+    private final MainController ctrl;
+
+    /**
+     * Giorno di costruzione della card: lo stato "scaduto" e il blocco delle modifiche dipendono dalla data odierna.
+     */
+    private final LocalDate giornoVisualizzato;
+
     /**
      * Costruisce una nuova card per visualizzare un ToDo.
      * <p>
@@ -60,6 +115,12 @@ public class ToDoCard extends JPanel {
      * @param draggable {@code true} se la card deve essere trascinabile (Drag &amp; Drop), {@code false} altrimenti.
      */
     public ToDoCard(ToDo todo, MainController ctrl, int cardWidth, boolean draggable) {
+        this.todo = todo;
+        this.ctrl = ctrl;
+        this.versioneVisualizzata = todo.getVersione();
+        this.larghezza = cardWidth;
+        this.giornoVisualizzato = LocalDate.now();
+
         setLayout(new BorderLayout(0, 4));
 
         boolean scaduto = todo.getDataScadenza() != null && todo.getDataScadenza().isBefore(LocalDate.now());
@@ -74,20 +135,12 @@ public class ToDoCard extends JPanel {
 
         setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
 
-        Insets insets = getBorder().getBorderInsets(this);
-        int contentWidth = cardWidth - insets.left - insets.right;
-        if (contentWidth <= 0) contentWidth = 100;
+        int contentWidth = larghezzaContenuto();
 
         final int idUtenteLoggato = ctrl.getUtenteLoggato().getIdUtente();
         final boolean isAuthor = (idUtenteLoggato == todo.getIdUtenteCreatore());
-        final PermessoCondivisione mioPermesso = todo.getPermessoPerUtente(ctrl.getUtenteLoggato());
-
-        // --- LOGICA DI BLOCCO TEMPORALE ---
-        // Usiamo il metodo che abbiamo appena creato nel Model
-        boolean ancoraModificabile = todo.isModificabile();
 
-        // canEdit è true solo se l'utente ha i permessi E non è scaduto il tempo massimo
-        final boolean canEdit = (isAuthor || PermessoCondivisione.MODIFICA.equals(mioPermesso)) && ancoraModificabile;
+        final boolean canEdit = puoModificare(todo, ctrl);
 
         final boolean canDelete = isAuthor;
         final boolean canManageShares = isAuthor;
@@ -206,13 +259,23 @@ public class ToDoCard extends JPanel {
             contentPanel.add(desc);
         }
 
-        if (todo.getImmagine() != null) {
-            ImageIcon img = todo.getImmagine();
-            ImageIcon scaled = scaleIconToWidth(img, contentWidth);
-            JLabel imgLabel = new JLabel(scaled);
+        if (todo.hasImmagine()) {
+            JLabel imgLabel = new JLabel();
+            etichettaImmagine = imgLabel;
             imgLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
             imgLabel.setBorder(BorderFactory.createEmptyBorder(6, 0, 6, 0));
 
+            ImageIcon pronta = PipelineImmagini.pronta(todo, contentWidth);
+            if (pronta != null) {
+                imgLabel.setIcon(pronta);
+                larghezzaImmagine = contentWidth;
+            } else {
+                // Segnaposto finché l'immagine non è pronta: la preparazione parte quando la card viene mostrata
+                imgLabel.setText("Caricamento immagine...");
+                imgLabel.setFont(new Font("SansSerif", Font.ITALIC, 12));
+                imgLabel.setForeground(textColor);
+            }
+
             contentPanel.add(imgLabel);
         }
 
@@ -255,17 +318,167 @@ public class ToDoCard extends JPanel {
         add(footer, BorderLayout.SOUTH);
     }
 
+    /**
+     * Verifica se l'utente loggato può modificare un ToDo: deve esserne l'autore o avere il permesso
+     * di modifica, e il tempo massimo per le modifiche non deve essere scaduto.
+     *
+     * @param todo Il ToDo da verificare.
+     * @param ctrl Il controller principale, per conoscere l'utente loggato.
+     * @return {@code true} se il ToDo è modificabile dall'utente.
+     */
+    public static boolean puoModificare(ToDo todo, MainController ctrl) {
+        boolean isAuthor = ctrl.getUtenteLoggato().getIdUtente() == todo.getIdUtenteCreatore();
+        PermessoCondivisione mioPermesso = todo.getPermessoPerUtente(ctrl.getUtenteLoggato());
+        // canEdit è true solo se l'utente ha i permessi E non è scaduto il tempo massimo
+        return (isAuthor || PermessoCondivisione.MODIFICA.equals(mioPermesso)) && todo.isModificabile();
+    }
+
+    /**
+     * Restituisce il ToDo visualizzato dalla card.
+     *
+     * @return Il ToDo associato.
+     */
+    public ToDo getToDo() {
+        return todo;
+    }
+
+    /**
+     * Verifica se la card riflette ancora lo stato attuale del suo ToDo e può essere riutilizzata
+     * invece di essere ricostruita (eventualmente dopo un {@link #ridimensiona(int)}).
+     *
+     * @return {@code true} se né il ToDo né il giorno corrente sono cambiati.
+     */
+    public boolean isAggiornata() {
+        return todo.getVersione() == versioneVisualizzata
+                && giornoVisualizzato.equals(LocalDate.now());
+    }
+
+    /**
+     * Adegua la card a una nuova larghezza senza ricostruirla.
+     * <p>
+     * Testi e pulsanti si adattano da soli al layout; l'unico contenuto che dipende dalla larghezza
+     * è l'immagine, che viene riscalata solo se è già in memoria.
+     *
+     * @param cardWidth La nuova larghezza della card (in pixel).
+     */
+    public void ridimensiona(int cardWidth) {
+        if (cardWidth == larghezza) return;
+        larghezza = cardWidth;
+        setMaximumSize(new Dimension(cardWidth, Integer.MAX_VALUE));
+
+        if (isDisplayable()) aggiornaImmagine();
+        revalidate();
+    }
+
+    /**
+     * Quando la card entra nella vista, avvia la preparazione dell'immagine se quella mostrata
+     * manca o ha una larghezza diversa da quella attuale.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        aggiornaImmagine();
+    }
+
+    /**
+     * Quando la card esce dalla vista, annulla la preparazione dell'immagine ancora in corso.
+     */
+    @Override
+    public void removeNotify() {
+        if (richiestaImmagine != null) {
+            richiestaImmagine.cancel(false);
+            richiestaImmagine = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Mostra l'immagine alla larghezza attuale della card: subito se è già pronta, altrimenti
+     * la richiede a {@link PipelineImmagini} e la sostituisce al segnaposto (o alla versione
+     * precedente) quando arriva. Una richiesta precedente ancora in corso viene annullata.
+     */
+    private void aggiornaImmagine() {
+        int richiesta = larghezzaContenuto();
+        if (etichettaImmagine == null || larghezzaImmagine == richiesta) return;
+
+        ImageIcon pronta = PipelineImmagini.pronta(todo, richiesta);
+        if (pronta != null) {
+            mostraImmagine(pronta, richiesta);
+            return;
+        }
+
+        if (richiestaImmagine != null) richiestaImmagine.cancel(false);
+        CompletableFuture<ImageIcon> futuro = PipelineImmagini.richiedi(todo, ctrl, richiesta);
+        richiestaImmagine = futuro;
+        futuro.whenComplete((img, ex) -> SwingUtilities.invokeLater(() -> {
+            if (richiestaImmagine != futuro) return;
+            richiestaImmagine = null;
+            if (ex != null || (img == null && todo.hasImmagine())) {
+                // Se è già mostrata un'altra versione dell'immagine la teniamo: il prossimo ridimensionamento ritenta
+                if (etichettaImmagine.getIcon() == null) mostraErroreImmagine();
+            } else {
+                mostraImmagine(img, richiesta);
+            }
+        }));
+    }
+
+    private void mostraImmagine(ImageIcon img, int larghezzaMostrata) {
+        larghezzaImmagine = larghezzaMostrata;
+        etichettaImmagine.removeMouseListener(riprovaImmagine);
+        etichettaImmagine.setCursor(null);
+        if (img == null) {
+            etichettaImmagine.setVisible(false);
+        } else {
+            etichettaImmagine.setText(null);
+            etichettaImmagine.setIcon(img);
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Sostituisce il segnaposto con un messaggio di errore cliccabile per ritentare.
+     * La larghezza mostrata resta azzerata, così anche un ridimensionamento o una nuova
+     * visualizzazione della card ritentano il caricamento.
+     */
+    private void mostraErroreImmagine() {
+        larghezzaImmagine = 0;
+        etichettaImmagine.setIcon(null);
+        etichettaImmagine.setText("Immagine non caricata (clic per riprovare)");
+        etichettaImmagine.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        etichettaImmagine.removeMouseListener(riprovaImmagine);
+        etichettaImmagine.addMouseListener(riprovaImmagine);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Calcola la larghezza disponibile per il contenuto, al netto del bordo.
+     *
+     * @return La larghezza in pixel dell'area interna della card.
+     */
+    private int larghezzaContenuto() {
+        Insets insets = getBorder().getBorderInsets(this);
+        int contentWidth = larghezza - insets.left - insets.right;
+        return contentWidth > 0 ? contentWidth : 100;
+    }
+
     private void mostraCondivisioni(ToDo todo, MainController ctrl) {
         Map<Utente, PermessoCondivisione> condivisioni = todo.getCondivisioni();
         int idUtenteLoggato = ctrl.getUtenteLoggato().getIdUtente();
         int idAutore = todo.getIdUtenteCreatore();
 
-        Utente autore = ctrl.getUtenteById(idAutore);
-        if (autore == null) {
-            JOptionPane.showMessageDialog(this, "Errore nel recuperare l'autore.", "Errore", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+        ctrl.getUtenteById(idAutore).whenComplete((autore, ex) -> {
+            if (ex != null || autore == null) {
+                JOptionPane.showMessageDialog(this, "Errore nel recuperare l'autore.", "Errore", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            mostraPartecipanti(autore, condivisioni, idUtenteLoggato);
+        });
+    }
 
+    private void mostraPartecipanti(Utente autore, Map<Utente, PermessoCondivisione> condivisioni, int idUtenteLoggato) {
+        int idAutore = autore.getIdUtente();
         StringBuilder sb = new StringBuilder("<html><b>Partecipanti:</b><br>");
 
         String nomeAutore = autore.getUsername();
@@ -395,23 +608,6 @@ public class ToDoCard extends JPanel {
 
 
 
-    private ImageIcon scaleIconToWidth(ImageIcon src, int maxWidth) {
-        if (src == null) return null;
-        if (maxWidth <= 0) maxWidth = 100;
-
-        int w = src.getIconWidth();
-        int h = src.getIconHeight();
-        if (w <= maxWidth) return src;
-
-        int newW = maxWidth;
-        int newH = (int) ((double) h / w * newW);
-
-        if (newH <= 0) newH = 1;
-
-        Image scaled = src.getImage().getScaledInstance(newW, newH, Image.SCALE_AREA_AVERAGING);
-        return new ImageIcon(scaled);
-    }
-
     /**
      * Calcola il colore del testo (Bianco o Nero) in base alla luminosità dello sfondo
      * per garantire il massimo contrasto e leggibilità.
@@ -419,7 +615,7 @@ public class ToDoCard extends JPanel {
      * @param background Il colore di sfondo.
      * @return Color.WHITE se lo sfondo è scuro, Color.BLACK se è chiaro.
      */
-    private Color getContrastingColor(Color background) {
+    static Color getContrastingColor(Color background) {
         if (background == null) return Color.BLACK;
         // Formula per la luminanza percepita: 0.299*R + 0.587*G + 0.114*B
         double luminance = 0.299 * background.getRed() + 0.587 * background.getGreen() + 0.114 * background.getBlue();
@@ -430,7 +626,7 @@ public class ToDoCard extends JPanel {
     /**
      * Rende il colore molto pallido (pastello) per le card scadute.
      */
-    private Color getFadedColor(Color original) {
+    static Color getFadedColor(Color original) {
         if (original == null) return Color.WHITE;
         int r = (int) (original.getRed() + (255 - original.getRed()) * 0.85);
         int g = (int) (original.getGreen() + (255 - original.getGreen()) * 0.85);
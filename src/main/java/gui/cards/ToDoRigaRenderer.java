@@ -0,0 +1,106 @@
+package gui.cards;
+
+import model.ToDo;
+import util.ColorsConstant;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDate;
+
+/**
+ * Renderer compatto di un {@link ToDo} per le liste virtualizzate delle bacheche molto grandi.
+ * <p>
+ * A differenza di {@link ToDoCard}, che costruisce un pannello con pulsanti e listener per ogni ToDo,
+ * questo renderer è un <i>flyweight</i>: un unico pannello con poche etichette viene riconfigurato
+ * e "timbrato" da {@link JList} per ogni riga visibile, quindi memoria e tempo di layout non
+ * crescono con il numero di ToDo. Tutte le righe hanno la stessa altezza ({@link #ALTEZZA_RIGA}),
+ * così la lista non deve misurare le righe fuori dallo schermo.
+ */
+public class ToDoRigaRenderer extends JPanel implements ListCellRenderer<ToDo> {
+
+    /**
+     * Altezza fissa di ogni riga, spaziatura inclusa.
+     */
+    public static final int ALTEZZA_RIGA = 64;
+
+    /**
+     * Larghezza dell'area a sinistra che mostra lo stato di completamento (cliccabile nella lista).
+     */
+    public static final int LARGHEZZA_STATO = 30;
+
+    /** Numero massimo di caratteri della descrizione mostrati nella riga. */
+    private static final int MAX_DESC_CHARS = 80;
+
+    private final JLabel stato = new JLabel();
+    private final JLabel titolo = new JLabel();
+    private final JLabel descrizione = new JLabel();
+    private final JLabel scadenza = new JLabel();
+    private final JLabel condivisioni = new JLabel();
+
+    /**
+     * Costruisce il renderer e i suoi componenti, riutilizzati per tutte le righe.
+     */
+    public ToDoRigaRenderer() {
+        setLayout(new BorderLayout(6, 0));
+        setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 0, 8, 0, ColorsConstant.LIGHT_GREY),
+                BorderFactory.createEmptyBorder(6, 6, 6, 10)));
+
+        stato.setFont(new Font("SansSerif", Font.PLAIN, 18));
+        stato.setPreferredSize(new Dimension(LARGHEZZA_STATO - 6, 0));
+        stato.setVerticalAlignment(SwingConstants.TOP);
+
+        titolo.setFont(new Font("SansSerif", Font.BOLD, 14));
+        descrizione.setFont(new Font("SansSerif", Font.PLAIN, 12));
+
+        JPanel testi = new JPanel(new GridLayout(2, 1));
+        testi.setOpaque(false);
+        testi.add(titolo);
+        testi.add(descrizione);
+
+        scadenza.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        condivisioni.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        condivisioni.setHorizontalAlignment(SwingConstants.RIGHT);
+
+        JPanel destra = new JPanel(new GridLayout(2, 1));
+        destra.setOpaque(false);
+        destra.add(scadenza);
+        destra.add(condivisioni);
+
+        add(stato, BorderLayout.WEST);
+        add(testi, BorderLayout.CENTER);
+        add(destra, BorderLayout.EAST);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends ToDo> list, ToDo todo, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        boolean scaduto = todo.getDataScadenza() != null && todo.getDataScadenza().isBefore(LocalDate.now());
+        boolean showScaduto = scaduto && !todo.isCompletato();
+
+        Color baseColor = todo.getColoreSfondo() != null ? todo.getColoreSfondo() : Color.WHITE;
+        Color bgColor = showScaduto ? ToDoCard.getFadedColor(baseColor) : baseColor;
+        Color textColor = ToDoCard.getContrastingColor(bgColor);
+        setBackground(isSelected ? bgColor.darker() : bgColor);
+        Color testo = isSelected ? ToDoCard.getContrastingColor(bgColor.darker()) : textColor;
+
+        stato.setText(todo.isCompletato() ? "☑" : "☐");
+        stato.setForeground(testo);
+
+        titolo.setText(todo.getTitolo());
+        titolo.setForeground(showScaduto ? Color.RED : testo);
+
+        String desc = todo.getDescrizione() != null ? todo.getDescrizione().replace('\n', ' ') : "";
+        descrizione.setText(desc.length() > MAX_DESC_CHARS ? desc.substring(0, MAX_DESC_CHARS) + "…" : desc);
+        descrizione.setForeground(testo);
+
+        scadenza.setText(todo.getDataScadenza() != null ? todo.getDataScadenza().toString() : "Senza data");
+        scadenza.setForeground(testo);
+
+        int nCondivisioni = todo.getCondivisioni() != null ? todo.getCondivisioni().size() : 0;
+        condivisioni.setText(nCondivisioni > 0 ? "👥 " + nCondivisioni : (todo.hasImmagine() ? "🖼" : ""));
+        condivisioni.setForeground(testo);
+
+        return this;
+    }
+}
@@ -3,18 +3,26 @@ package gui.dialogs.tododialog;
 import controllers.MainController;
 import model.ToDo;
 import model.TitoloBacheca;
+import model.VarianteImmagine;
 import util.ColorsConstant;
+import util.Immagini;
+import util.PoliticaImmagini;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Pannello grafico (View) per la visualizzazione e modifica dei dettagli di un {@link ToDo}.
@@ -25,7 +33,7 @@ import java.util.List;
  * <li>Descrizione (opzionale, con limite caratteri).</li>
  * <li>Data di scadenza (formato rigoroso AAAA-MM-GG).</li>
  * <li>Link URL esterni.</li>
- * <li>Immagine allegata (con ridimensionamento automatico e limite di peso).</li>
+ * <li>Immagine allegata (letta in background e ridotta già in decodifica).</li>
  * <li>Colore di sfondo personalizzato.</li>
  * <li>Bacheca di appartenenza.</li>
  * </ul>
@@ -73,12 +81,22 @@ public class ToDoDetailsView extends JPanel {
      */
     private String selectedImageName;
 
+    /**
+     * Lettura in corso dell'immagine (scelta dall'utente o quella già salvata del ToDo),
+     * o {@code null} se non ce ne sono. Il salvataggio è bloccato finché la lettura non termina.
+     */
+    private CompletableFuture<?> letturaImmagine;
+
+    /**
+     * {@code true} se il caricamento dell'immagine già salvata del ToDo è fallito e l'utente
+     * non ne ha scelta un'altra: salvare ora la rimuoverebbe, quindi il salvataggio la ricarica.
+     */
+    private boolean immagineEsistenteMancante = false;
+
     private static final int MAX_TITOLO_CHARS = 35;
     private static final int MAX_DESC_CHARS = 350;
-    private static final long MAX_IMAGE_BYTES = 2 * 1024 * 1024; // 2MB
+    private static final long MAX_IMAGE_BYTES = 50L * 1024 * 1024; // 50MB, l'immagine viene comunque ridotta
     private static final int MAX_FILENAME_CHARS = 25;
-    private static final int MAX_IMAGE_WIDTH = 400;
-    private static final int MAX_IMAGE_HEIGHT = 400;
 
     /**
      * Costruisce il pannello dei dettagli.
@@ -142,12 +160,8 @@ public class ToDoDetailsView extends JPanel {
             descrizioneArea.setText(toEdit.getDescrizione() != null ? toEdit.getDescrizione() : "");
             dataField.setText(toEdit.getDataScadenza() != null ? toEdit.getDataScadenza().toString() : "");
             if (toEdit.getLinkURLs() != null) toEdit.getLinkURLs().forEach(linksModel::addElement);
-            if (toEdit.getImmagine() != null) {
-                selectedImage = toEdit.getImmagine();
-                selectedImageName = "Immagine caricata";
-                selectedImageLabel.setText(troncaTesto(selectedImageName, MAX_FILENAME_CHARS));
-                removeImageBtn.setVisible(true);
-            }
+            // L'immagine non viene caricata con le liste: la recuperiamo in background
+            if (toEdit.hasImmagine()) caricaImmagineEsistente();
             if (toEdit.getColoreSfondo() != null) selectedColor[0] = toEdit.getColoreSfondo();
             bachecaCombo.setSelectedItem(defaultBacheca);
         } else if (defaultBacheca != null) {
@@ -249,36 +263,22 @@ public class ToDoDetailsView extends JPanel {
 
         chooseImgBtn.addActionListener(e -> {
             JFileChooser fc = new JFileChooser();
-            fc.setFileFilter(new FileNameExtensionFilter("Immagini (max 2MB)", "jpg", "jpeg", "png", "gif"));
+            fc.setFileFilter(new FileNameExtensionFilter("Immagini", "jpg", "jpeg", "png", "gif"));
             int ret = fc.showOpenDialog(this);
             if (ret == JFileChooser.APPROVE_OPTION) {
-                try {
-                    File f = fc.getSelectedFile();
-                    if (f.length() > MAX_IMAGE_BYTES) throw new Exception("File troppo grande");
-                    ImageIcon raw = new ImageIcon(f.getAbsolutePath());
-                    int w = raw.getIconWidth(), h = raw.getIconHeight();
-                    ImageIcon scaled;
-                    if (w <= MAX_IMAGE_WIDTH && h <= MAX_IMAGE_HEIGHT) scaled = raw;
-                    else {
-                        double ratio = Math.max((double) w / MAX_IMAGE_WIDTH, (double) h / MAX_IMAGE_HEIGHT);
-                        int newW = (int) (w / ratio), newH = (int) (h / ratio);
-                        scaled = new ImageIcon(raw.getImage().getScaledInstance(newW, newH, Image.SCALE_SMOOTH));
-                    }
-                    selectedImage = scaled;
-                    selectedImageName = f.getName();
-                    selectedImageLabel.setText(troncaTesto(selectedImageName, MAX_FILENAME_CHARS));
-                    removeImageBtn.setVisible(true);
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Impossibile caricare immagine: " + ex.getMessage(), "Errore", JOptionPane.ERROR_MESSAGE);
-                    selectedImage = null;
-                    selectedImageName = null;
-                    selectedImageLabel.setText("Nessuna immagine.");
-                    removeImageBtn.setVisible(false);
+                File f = fc.getSelectedFile();
+                if (f.length() > MAX_IMAGE_BYTES) {
+                    mostraErroreImmagine("File troppo grande");
+                    return;
                 }
+                caricaImmagine(f);
             }
         });
 
         removeImageBtn.addActionListener(e -> {
+            if (letturaImmagine != null) letturaImmagine.cancel(false);
+            letturaImmagine = null;
+            immagineEsistenteMancante = false;
             selectedImage = null;
             selectedImageName = null;
             selectedImageLabel.setText("Nessuna immagine.");
@@ -323,6 +323,11 @@ public class ToDoDetailsView extends JPanel {
 
         annulla.addActionListener(e -> SwingUtilities.getWindowAncestor(this).dispose());
         salva.addActionListener(e -> {
+            if (immagineEsistenteMancante) caricaImmagineEsistente();
+            if (letturaImmagine != null) {
+                JOptionPane.showMessageDialog(this, "Attendi il caricamento dell'immagine.", "Attenzione", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             try {
                 String titolo = titoloField.getText().trim();
                 String desc = descrizioneArea.getText();
@@ -435,6 +440,95 @@ public class ToDoDetailsView extends JPanel {
         label.setForeground(length > max ? Color.RED : Color.GRAY);
     }
 
+    /**
+     * Legge in background l'immagine scelta, già ridotta alla dimensione massima delle immagini salvate
+     * ({@link PoliticaImmagini#getDimensioneMassima()}, vedi {@link Immagini#leggiRidotta}), e la imposta
+     * come immagine selezionata. Le varianti più piccole per card e miniature le genera il DAO al salvataggio.
+     * La decodifica avviene su un thread virtuale, così anche foto molto grandi
+     * non bloccano l'interfaccia.
+     *
+     * @param f Il file scelto dall'utente.
+     */
+    private void caricaImmagine(File f) {
+        if (letturaImmagine != null) letturaImmagine.cancel(false);
+        immagineEsistenteMancante = false;
+        selectedImageLabel.setText("Caricamento immagine...");
+        removeImageBtn.setVisible(true);
+
+        int dimensioneMassima = PoliticaImmagini.predefinita().getDimensioneMassima();
+        CompletableFuture<BufferedImage> lettura = CompletableFuture.supplyAsync(() -> {
+            try {
+                return Immagini.leggiRidotta(f, dimensioneMassima, dimensioneMassima);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, r -> Thread.ofVirtual().name("lettura-immagine").start(r));
+        letturaImmagine = lettura;
+
+        lettura.whenComplete((img, ex) -> SwingUtilities.invokeLater(() -> {
+            // Ignora il risultato se nel frattempo l'utente ha scelto un'altra immagine o l'ha rimossa
+            if (letturaImmagine != lettura) return;
+            letturaImmagine = null;
+            if (ex != null) {
+                Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (causa instanceof UncheckedIOException) causa = causa.getCause();
+                mostraErroreImmagine(causa.getMessage());
+                return;
+            }
+            selectedImage = new ImageIcon(img);
+            selectedImageName = f.getName();
+            selectedImageLabel.setText(troncaTesto(selectedImageName, MAX_FILENAME_CHARS));
+        }));
+    }
+
+    /**
+     * Carica in background l'immagine già salvata del ToDo in modifica e la imposta come
+     * immagine selezionata. Se il caricamento fallisce l'immagine resta da caricare:
+     * il salvataggio ritenta invece di rimuoverla.
+     */
+    private void caricaImmagineEsistente() {
+        if (letturaImmagine != null) letturaImmagine.cancel(false);
+        immagineEsistenteMancante = false;
+        selectedImageLabel.setText("Caricamento immagine...");
+        removeImageBtn.setVisible(true);
+
+        // Copia del future condiviso: annullarla non interrompe il caricamento per le card
+        CompletableFuture<ImageIcon> caricamento = ctrl.caricaImmagineAsync(toEdit, VarianteImmagine.ORIGINALE)
+                .thenApply(img -> img);
+        letturaImmagine = caricamento;
+
+        caricamento.whenComplete((img, ex) -> SwingUtilities.invokeLater(() -> {
+            if (letturaImmagine != caricamento) return;
+            letturaImmagine = null;
+            if (ex != null) {
+                immagineEsistenteMancante = true;
+                selectedImageLabel.setText("Immagine non caricata.");
+                return;
+            }
+            if (img == null) {
+                selectedImageLabel.setText("Nessuna immagine.");
+                removeImageBtn.setVisible(false);
+                return;
+            }
+            selectedImage = img;
+            selectedImageName = "Immagine caricata";
+            selectedImageLabel.setText(troncaTesto(selectedImageName, MAX_FILENAME_CHARS));
+        }));
+    }
+
+    /**
+     * Mostra un errore di caricamento dell'immagine e azzera la selezione.
+     *
+     * @param messaggio La descrizione dell'errore.
+     */
+    private void mostraErroreImmagine(String messaggio) {
+        JOptionPane.showMessageDialog(this, "Impossibile caricare immagine: " + messaggio, "Errore", JOptionPane.ERROR_MESSAGE);
+        selectedImage = null;
+        selectedImageName = null;
+        selectedImageLabel.setText("Nessuna immagine.");
+        removeImageBtn.setVisible(false);
+    }
+
     /**
      * Tronca una stringa per scopi di visualizzazione (anteprima).
      *
@@ -178,14 +178,18 @@ public class ToDoSharingView extends JPanel {
         String query = searchField.getText().trim();
         if(query.isEmpty()) return;
         searchListModel.clear();
-        List<Utente> risultati = ctrl.cercaUtenti(query);
-
-        Map<Utente,PermessoCondivisione> giaCondivisi = toEdit.getCondivisioni();
-        List<Integer> idGia = giaCondivisi.keySet().stream().map(Utente::getIdUtente).toList();
-
-        for(Utente u: risultati){
-            if(!idGia.contains(u.getIdUtente())) searchListModel.addElement(u);
-        }
+        // La ricerca gira in background: i risultati arrivano sull'EDT
+        ctrl.cercaUtenti(query).thenAccept(risultati -> {
+            if(!query.equals(searchField.getText().trim())) return;
+            searchListModel.clear();
+
+            Map<Utente,PermessoCondivisione> giaCondivisi = toEdit.getCondivisioni();
+            List<Integer> idGia = giaCondivisi.keySet().stream().map(Utente::getIdUtente).toList();
+
+            for(Utente u: risultati){
+                if(!idGia.contains(u.getIdUtente())) searchListModel.addElement(u);
+            }
+        });
     }
 
     /**
@@ -196,7 +200,7 @@ public class ToDoSharingView extends JPanel {
         Utente u = searchList.getSelectedValue();
         if(u==null){ JOptionPane.showMessageDialog(this,"Seleziona un utente dai risultati della ricerca.","Errore",JOptionPane.WARNING_MESSAGE); return; }
         PermessoCondivisione p = (PermessoCondivisione) permessoCombo.getSelectedItem();
-        ctrl.onAggiungiCondivisione(toEdit,u,p);
+        ctrl.onAggiungiCondivisione(toEdit,u,p).whenComplete((r,ex)->{ if(ex!=null) loadSharedUsers(); });
         loadSharedUsers();
         searchListModel.removeElement(u);
     }
@@ -210,7 +214,7 @@ public class ToDoSharingView extends JPanel {
         if(sel==null){ JOptionPane.showMessageDialog(this,"Seleziona un utente dalla lista.","Errore",JOptionPane.WARNING_MESSAGE); return; }
         int conf = JOptionPane.showConfirmDialog(this,"Rimuovere "+sel.getKey().getUsername()+" dalla condivisione?","Conferma Rimozione",JOptionPane.YES_NO_OPTION);
         if(conf==JOptionPane.YES_OPTION){
-            ctrl.onRimuoviCondivisione(toEdit,sel.getKey());
+            ctrl.onRimuoviCondivisione(toEdit,sel.getKey()).whenComplete((r,ex)->{ if(ex!=null) loadSharedUsers(); });
             loadSharedUsers();
         }
     }
@@ -224,7 +228,7 @@ public class ToDoSharingView extends JPanel {
         if(sel==null){ JOptionPane.showMessageDialog(this,"Seleziona un utente dalla lista.","Errore",JOptionPane.WARNING_MESSAGE); return; }
         PermessoCondivisione nuovo = (PermessoCondivisione) JOptionPane.showInputDialog(this,"Seleziona il nuovo permesso per "+sel.getKey().getUsername()+":","Modifica Permesso",JOptionPane.QUESTION_MESSAGE,null,PermessoCondivisione.values(),sel.getValue());
         if(nuovo!=null && nuovo!=sel.getValue()){
-            ctrl.onModificaPermesso(toEdit,sel.getKey(),nuovo);
+            ctrl.onModificaPermesso(toEdit,sel.getKey(),nuovo).whenComplete((r,ex)->{ if(ex!=null) loadSharedUsers(); });
             loadSharedUsers();
         }
     }
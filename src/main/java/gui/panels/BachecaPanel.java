@@ -1,7 +1,7 @@
 package gui.panels;
 
-import controllers.BachecaController;
 import gui.cards.ToDoCard;
+import gui.cards.ToDoRigaRenderer;
 import util.ColorsConstant;
 import model.Bacheca;
 import model.ToDo;
@@ -12,12 +12,16 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.dnd.*;
 import java.awt.datatransfer.*;
 import java.time.LocalDate;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +50,13 @@ public class BachecaPanel extends JPanel {
         }
     }
 
+    /**
+     * Numero di ToDo visualizzati oltre il quale la bacheca passa alla lista virtualizzata
+     * ({@link JList} con {@link ToDoRigaRenderer}), che materializza solo le righe visibili.
+     * Configurabile con la proprietà di sistema {@code todo.listaVirtuale.soglia}.
+     */
+    private static final int SOGLIA_LISTA_VIRTUALE = Integer.getInteger("todo.listaVirtuale.soglia", 300);
+
     /** Numero massimo di caratteri per la descrizione mostrata nell'header. */
     private static final int MAX_DESC_CHARS_VIEW = 50;
 
@@ -62,14 +73,38 @@ public class BachecaPanel extends JPanel {
     private final MainController mainCtrl;
 
     /** Larghezza interna calcolata per le card. */
-    private final int cardInnerWidth;
+    private int cardInnerWidth;
 
     /** Altezza dell'area della lista (per allineamento pixel-perfect). */
-    private final int listHeight;
+    private int listHeight;
 
     /** Pannello contenitore della lista di ToDo. */
     private JPanel listPanel;
 
+    /** Contenitore di {@link #listPanel} visualizzato nell'area scorrevole in modalità a card. */
+    private final JPanel listContainer;
+
+    /** Lista virtualizzata usata al posto delle card per le bacheche molto grandi (creata su richiesta). */
+    private JList<ToDo> listaVirtuale;
+
+    /** Modello della lista virtualizzata. */
+    private ModelloToDo modelloVirtuale;
+
+    /** Riconciliatore delle card della lista, che evita di ricostruire quelle invariate. */
+    private final ListaCarte carte;
+
+    /** Indica se la lista mostra attualmente il messaggio di bacheca vuota. */
+    private boolean mostraVuoto;
+
+    /** Intestazione della bacheca. */
+    private final JPanel header;
+
+    /** Area di testo con la descrizione (troncata) della bacheca. */
+    private final JTextArea desc;
+
+    /** Area scorrevole che contiene la lista. */
+    private final JScrollPane scroll;
+
     /** Stringa del filtro attualmente selezionato. */
     private String currentFiltro;
 
@@ -100,7 +135,7 @@ public class BachecaPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
 
         //HEADER
-        JPanel header = new JPanel(new BorderLayout(8, 0));
+        header = new JPanel(new BorderLayout(8, 0));
         header.setBackground(ColorsConstant.LIGHT_GREY);
         header.setBorder(new EmptyBorder(6, 6, 6, 6));
 
@@ -110,10 +145,7 @@ public class BachecaPanel extends JPanel {
         JLabel title = new JLabel(bacheca.getTitolo().toString());
         title.setFont(new Font("SansSerif", Font.BOLD, 16));
 
-        String descText = bacheca.getDescrizione() != null ? bacheca.getDescrizione() : "";
-        descText = troncaTesto(descText, MAX_DESC_CHARS_VIEW);
-
-        JTextArea desc = new JTextArea(descText);
+        desc = new JTextArea(testoDescrizione());
         desc.setLineWrap(true);
         desc.setWrapStyleWord(true);
         desc.setEditable(false);
@@ -141,14 +173,16 @@ public class BachecaPanel extends JPanel {
 
         // CREAZIONE AREA DELLA LISTA
         listPanel = new JPanel();
+        listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
+        carte = new ListaCarte(listPanel);
         listPanel.setBackground(ColorsConstant.LIGHT_GREY);
         listPanel.setBorder(new EmptyBorder(0, 0, 0, 0));
 
-        JPanel listContainer = new JPanel(new BorderLayout());
+        listContainer = new JPanel(new BorderLayout());
         listContainer.setBackground(ColorsConstant.LIGHT_GREY);
         listContainer.add(listPanel, BorderLayout.NORTH);
 
-        JScrollPane scroll = new JScrollPane(
+        scroll = new JScrollPane(
                 listContainer,
                 JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
                 JScrollPane.HORIZONTAL_SCROLLBAR_NEVER
@@ -162,17 +196,62 @@ public class BachecaPanel extends JPanel {
 
         //INIZIALIZZAZIONE DATI E DND
         aggiornaLista();
-        configuraDragAndDrop(listContainer, listPanel);
+        configuraDragAndDrop(listContainer,
+                p -> computeInsertIndex(listPanel, SwingUtilities.convertPoint(listContainer, p, listPanel)));
 
         int totalHeight = listHeight + header.getPreferredSize().height + 32;
         setPreferredSize(new Dimension(width, totalHeight));
     }
 
     /**
-     * Svuota il pannello, applica i filtri salvati in memoria e ridisegna le card.
+     * Restituisce la bacheca rappresentata dal pannello.
+     *
+     * @return La bacheca associata.
+     */
+    public Bacheca getBacheca() {
+        return bacheca;
+    }
+
+    /**
+     * Aggiorna il pannello esistente invece di ricostruirlo: adegua le dimensioni, l'intestazione
+     * e la lista, ricostruendo solo le card dei ToDo effettivamente cambiati.
+     *
+     * @param width      La larghezza totale del pannello.
+     * @param listHeight L'altezza dell'area scorrevole.
+     */
+    public void aggiorna(int width, int listHeight) {
+        String descText = testoDescrizione();
+        if (!descText.equals(desc.getText())) desc.setText(descText);
+
+        ridimensiona(width, listHeight);
+        aggiornaLista();
+    }
+
+    /**
+     * Adegua il pannello a nuove dimensioni senza rileggere i ToDo della bacheca:
+     * le card esistenti vengono solo ridimensionate (vedi {@link ToDoCard#ridimensiona(int)}).
+     * Usato durante il ridimensionamento della finestra.
+     *
+     * @param width      La larghezza totale del pannello.
+     * @param listHeight L'altezza dell'area scorrevole.
+     */
+    public void ridimensiona(int width, int listHeight) {
+        if (width - 16 == cardInnerWidth && listHeight == this.listHeight) return;
+        this.cardInnerWidth = width - 16;
+        this.listHeight = listHeight;
+        scroll.setPreferredSize(new Dimension(width - 16, listHeight));
+        setPreferredSize(new Dimension(width, listHeight + header.getPreferredSize().height + 32));
+
+        if (mostraVuoto) listPanel.setPreferredSize(new Dimension(cardInnerWidth, listHeight - 40));
+        if (listaVirtuale != null) listaVirtuale.setFixedCellWidth(cardInnerWidth);
+        carte.ridimensiona(cardInnerWidth);
+        revalidate();
+    }
+
+    /**
+     * Applica i filtri salvati in memoria e allinea la lista delle card ai ToDo della bacheca.
      */
     private void aggiornaLista() {
-        listPanel.removeAll();
         LocalDate oggi = LocalDate.now();
 
         List<ToDo> filtrati = bacheca.getToDos().stream()
@@ -200,32 +279,178 @@ public class BachecaPanel extends JPanel {
                 })
                 .collect(Collectors.toList());
 
+        if (filtrati.size() >= SOGLIA_LISTA_VIRTUALE) {
+            mostraListaVirtuale(filtrati);
+            return;
+        }
+        if (scroll.getViewport().getView() != listContainer) {
+            scroll.setViewportView(listContainer);
+            modelloVirtuale.imposta(List.of());
+        }
+
         if (filtrati.isEmpty()) {
             // Forza il pannello a prendere tutta l'altezza per centrare perfettamente il testo
-            listPanel.setLayout(new GridBagLayout());
             listPanel.setPreferredSize(new Dimension(cardInnerWidth, listHeight - 40));
+            if (mostraVuoto) return;
+
+            carte.svuota();
+            listPanel.removeAll();
+            listPanel.setLayout(new GridBagLayout());
 
             JLabel empty = new JLabel("Nessun ToDo in programma");
             empty.setFont(new Font("SansSerif", Font.ITALIC, 14));
             empty.setForeground(new Color(150, 150, 150));
             listPanel.add(empty);
+            mostraVuoto = true;
+
+            listPanel.revalidate();
+            listPanel.repaint();
         } else {
-            // Ripristina l'altezza dinamica (null) per permettere lo scorrimento
+            if (mostraVuoto) {
+                // Ripristina l'altezza dinamica (null) per permettere lo scorrimento
+                listPanel.removeAll();
+                listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
+                listPanel.setPreferredSize(null);
+                mostraVuoto = false;
+            }
+            carte.riconcilia(filtrati, cardInnerWidth, td -> new ToDoCard(td, mainCtrl, cardInnerWidth, true));
+        }
+    }
+
+    /**
+     * Visualizza i ToDo nella lista virtualizzata, creandola al primo utilizzo.
+     * Le card della modalità normale vengono rilasciate.
+     *
+     * @param filtrati I ToDo da visualizzare, già filtrati e ordinati.
+     */
+    private void mostraListaVirtuale(List<ToDo> filtrati) {
+        if (listaVirtuale == null) creaListaVirtuale();
+
+        if (scroll.getViewport().getView() != listaVirtuale) {
+            carte.svuota();
+            listPanel.removeAll();
             listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
             listPanel.setPreferredSize(null);
+            mostraVuoto = false;
+            scroll.setViewportView(listaVirtuale);
+        }
+
+        listaVirtuale.setFixedCellWidth(cardInnerWidth);
+        modelloVirtuale.imposta(filtrati);
+    }
 
-            listPanel.add(Box.createRigidArea(new Dimension(0, 10)));
-            for (ToDo td : filtrati) {
-                ToDoCard card = new ToDoCard(td, mainCtrl, cardInnerWidth, true);
-                card.setAlignmentX(Component.CENTER_ALIGNMENT);
-                card.setMaximumSize(new Dimension(cardInnerWidth, Integer.MAX_VALUE));
-                listPanel.add(card);
-                listPanel.add(Box.createRigidArea(new Dimension(0, 8)));
+    /**
+     * Crea la lista virtualizzata: righe ad altezza fissa disegnate da un unico {@link ToDoRigaRenderer},
+     * trascinamento per il riordino, clic sullo stato per completare e doppio clic (o tasto destro)
+     * per aprire la card completa del ToDo in un popup.
+     */
+    private void creaListaVirtuale() {
+        modelloVirtuale = new ModelloToDo();
+        listaVirtuale = new JList<>(modelloVirtuale);
+        listaVirtuale.setCellRenderer(new ToDoRigaRenderer());
+        listaVirtuale.setFixedCellHeight(ToDoRigaRenderer.ALTEZZA_RIGA);
+        listaVirtuale.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        listaVirtuale.setBackground(ColorsConstant.LIGHT_GREY);
+        listaVirtuale.setBorder(new EmptyBorder(10, 0, 0, 0));
+
+        listaVirtuale.setDragEnabled(true);
+        listaVirtuale.setTransferHandler(new TransferHandler() {
+            @Override
+            protected Transferable createTransferable(JComponent c) {
+                ToDo td = listaVirtuale.getSelectedValue();
+                if (td == null || !ToDoCard.puoModificare(td, mainCtrl)) return null;
+                return new Transferable() {
+                    @Override
+                    public DataFlavor[] getTransferDataFlavors() {
+                        return new DataFlavor[]{TODO_FLAVOR};
+                    }
+                    @Override
+                    public boolean isDataFlavorSupported(DataFlavor flavor) {
+                        return TODO_FLAVOR.equals(flavor);
+                    }
+                    @Override
+                    public Object getTransferData(DataFlavor flavor) {
+                        return td;
+                    }
+                };
             }
+            @Override
+            public int getSourceActions(JComponent c) {
+                return MOVE;
+            }
+        });
+
+        listaVirtuale.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = indiceRigaSotto(e.getPoint());
+                if (i < 0) return;
+                ToDo td = modelloVirtuale.getElementAt(i);
+                Rectangle r = listaVirtuale.getCellBounds(i, i);
+
+                if (SwingUtilities.isRightMouseButton(e) || e.getClickCount() == 2) {
+                    mostraCardCompleta(td, r);
+                } else if (e.getX() - r.x < ToDoRigaRenderer.LARGHEZZA_STATO && ToDoCard.puoModificare(td, mainCtrl)) {
+                    mainCtrl.onToggleCompletato(td, !td.isCompletato());
+                }
+            }
+        });
+
+        configuraDragAndDrop(listaVirtuale, p -> {
+            int i = listaVirtuale.locationToIndex(p);
+            if (i < 0) return modelloVirtuale.getSize();
+            Rectangle r = listaVirtuale.getCellBounds(i, i);
+            return p.y < r.y + r.height / 2 ? i : i + 1;
+        });
+    }
+
+    /**
+     * Restituisce l'indice della riga sotto un punto, o -1 se il punto non cade su una riga.
+     */
+    private int indiceRigaSotto(Point p) {
+        int i = listaVirtuale.locationToIndex(p);
+        if (i < 0 || !listaVirtuale.getCellBounds(i, i).contains(p)) return -1;
+        return i;
+    }
+
+    /**
+     * Mostra sopra la riga la {@link ToDoCard} completa del ToDo, con tutte le sue azioni
+     * (link, condivisioni, modifica, eliminazione).
+     */
+    private void mostraCardCompleta(ToDo td, Rectangle riga) {
+        JPopupMenu popup = new JPopupMenu();
+        popup.setLayout(new BorderLayout());
+        popup.add(new ToDoCard(td, mainCtrl, cardInnerWidth, false), BorderLayout.CENTER);
+        popup.show(listaVirtuale, riga.x, riga.y);
+    }
+
+    /**
+     * Modello della lista virtualizzata: espone la lista dei ToDo filtrati senza copiarla elemento per elemento.
+     */
+    private static final class ModelloToDo extends AbstractListModel<ToDo> {
+        private List<ToDo> todos = List.of();
+
+        private void imposta(List<ToDo> nuovi) {
+            int vecchiaDimensione = todos.size();
+            todos = nuovi;
+            if (vecchiaDimensione > nuovi.size()) fireIntervalRemoved(this, nuovi.size(), vecchiaDimensione - 1);
+            else if (vecchiaDimensione < nuovi.size()) fireIntervalAdded(this, vecchiaDimensione, nuovi.size() - 1);
+            if (!nuovi.isEmpty()) fireContentsChanged(this, 0, nuovi.size() - 1);
         }
 
-        listPanel.revalidate();
-        listPanel.repaint();
+        @Override
+        public int getSize() {
+            return todos.size();
+        }
+
+        @Override
+        public ToDo getElementAt(int index) {
+            return todos.get(index);
+        }
+    }
+
+    private String testoDescrizione() {
+        return troncaTesto(bacheca.getDescrizione() != null ? bacheca.getDescrizione() : "", MAX_DESC_CHARS_VIEW);
     }
 
     /**
@@ -304,9 +529,14 @@ public class BachecaPanel extends JPanel {
         bachecaMenu.show(editBtn, 0, editBtn.getHeight());
     }
 
-    private void configuraDragAndDrop(JPanel targetContainer, JPanel targetList) {
-        final BachecaController bc = mainCtrl.getBachecaController();
-
+    /**
+     * Registra il drop target per lo spostamento dei ToDo su un componente della bacheca.
+     *
+     * @param targetContainer    Il componente che riceve il drop.
+     * @param indiceInserimento  Calcola l'indice di inserimento da un punto nelle coordinate di {@code targetContainer}.
+     */
+    private void configuraDragAndDrop(JComponent targetContainer, ToIntFunction<Point> indiceInserimento) {
+        final Border bordoOriginale = targetContainer.getBorder();
         new DropTarget(targetContainer, DnDConstants.ACTION_MOVE, new DropTargetAdapter() {
             @Override
             public void dragEnter(DropTargetDragEvent dtde) {
@@ -316,7 +546,7 @@ public class BachecaPanel extends JPanel {
 
             @Override
             public void dragExit(DropTargetEvent dte) {
-                targetContainer.setBorder(null);
+                targetContainer.setBorder(bordoOriginale);
             }
 
             @Override
@@ -330,52 +560,22 @@ public class BachecaPanel extends JPanel {
                     Transferable tr = dtde.getTransferable();
                     ToDo td = (ToDo) tr.getTransferData(TODO_FLAVOR);
 
-                    Point dropPointOnList = SwingUtilities.convertPoint(targetContainer, dtde.getLocation(), targetList);
-
-                    Bacheca sorgente = null;
-                    for (Bacheca b : bc.getAllBacheche()) {
-                        if (b.getToDos().contains(td)) {
-                            sorgente = b;
-                            break;
-                        }
-                    }
-
                     boolean isFilteredOrSorted = !"Tutti".equals(currentFiltro) || !"Predefinito".equals(currentOrdina);
                     int insertIndex;
 
                     if (isFilteredOrSorted) {
                         insertIndex = bacheca.getToDos().size();
                     } else {
-                        insertIndex = computeInsertIndex(targetList, dropPointOnList);
-                    }
-
-                    if (sorgente != null && sorgente.equals(bacheca)) {
-                        int srcIndex = sorgente.getToDos().indexOf(td);
-                        if (srcIndex != -1) {
-                            sorgente.rimuoviToDo(td);
-                            if (insertIndex > srcIndex) insertIndex--;
-                        }
-                    } else if (sorgente != null) {
-                        sorgente.rimuoviToDo(td);
-                    }
-
-                    if (insertIndex < 0) insertIndex = 0;
-                    if (insertIndex > bacheca.getToDos().size()) insertIndex = bacheca.getToDos().size();
-
-                    bacheca.getToDos().add(insertIndex, td);
-
-                    mainCtrl.onSalvaOrdineBacheca(bacheca);
-                    if (sorgente != null && !sorgente.equals(bacheca)) {
-                        mainCtrl.onSalvaOrdineBacheca(sorgente);
+                        insertIndex = indiceInserimento.applyAsInt(dtde.getLocation());
                     }
 
-                    bc.notifyChange();
+                    mainCtrl.onSpostaToDo(td, bacheca, insertIndex);
                     dtde.dropComplete(true);
                 } catch (Exception ex) {
                     LOGGER.log(Level.SEVERE, "Errore imprevisto durante il Drag and Drop del ToDo", ex);
                     try { dtde.dropComplete(false); } catch (Exception ignored) {}
                 } finally {
-                    targetContainer.setBorder(null);
+                    targetContainer.setBorder(bordoOriginale);
                 }
             }
         }, true);
@@ -20,6 +20,21 @@ import java.util.List;
  */
 public class InScadenzaPanel extends JPanel {
 
+    /** Il controller principale per il recupero dei dati. */
+    private final MainController mainCtrl;
+
+    /** Messaggio mostrato quando non ci sono scadenze per oggi. */
+    private final JLabel empty;
+
+    /** Area scorrevole che contiene la lista delle card. */
+    private final JScrollPane scroll;
+
+    /** Riconciliatore delle card della lista, che evita di ricostruire quelle invariate. */
+    private final ListaCarte carte;
+
+    /** Larghezza delle card. */
+    private int cardWidth;
+
     /**
      * Costruisce il pannello delle scadenze giornaliere.
      * <p>
@@ -33,6 +48,7 @@ public class InScadenzaPanel extends JPanel {
      * la dimensione delle {@link ToDoCard} contenute.
      */
     public InScadenzaPanel(MainController mainCtrl, int panelWidth) {
+        this.mainCtrl = mainCtrl;
         setLayout(new BorderLayout());
 
         setBackground(ColorsConstant.LIGHT_GREY);
@@ -43,52 +59,75 @@ public class InScadenzaPanel extends JPanel {
         header.setBorder(new EmptyBorder(6, 6, 6, 6));
         add(header, BorderLayout.NORTH);
 
+        empty = new JLabel("Nessuna scadenza per oggi");
+        empty.setHorizontalAlignment(SwingConstants.CENTER);
+        empty.setFont(new Font("SansSerif", Font.ITALIC, 14));
+        empty.setForeground(new Color(150, 150, 150));
+
+        empty.setBorder(new EmptyBorder(0, 0, 45, 0));
+
+        JPanel list = new JPanel();
+        list.setLayout(new BoxLayout(list, BoxLayout.Y_AXIS));
+        list.setBackground(ColorsConstant.LIGHT_GREY);
+        list.setBorder(new EmptyBorder(0, 0, 0, 0));
+        carte = new ListaCarte(list);
+
+        JPanel listContainer = new JPanel(new BorderLayout());
+        listContainer.setBackground(ColorsConstant.LIGHT_GREY);
+        listContainer.add(list, BorderLayout.NORTH);
+
+        scroll = new JScrollPane(
+                listContainer,
+                JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                JScrollPane.HORIZONTAL_SCROLLBAR_NEVER
+        );
+        scroll.setBorder(null);
+        scroll.getViewport().setBackground(ColorsConstant.LIGHT_GREY);
+        scroll.getVerticalScrollBar().setPreferredSize(new Dimension(0, 0));
+
+        aggiorna(panelWidth);
+    }
+
+    /**
+     * Aggiorna il pannello esistente con le scadenze odierne correnti,
+     * ricostruendo solo le card dei ToDo effettivamente cambiati.
+     *
+     * @param panelWidth La larghezza del pannello.
+     */
+    public void aggiorna(int panelWidth) {
+        ridimensiona(panelWidth);
+
         List<ToDo> scadOggiRaw = mainCtrl.getScadenzeOggi();
         List<ToDo> scadOggi = deduplicateById(scadOggiRaw);
 
-        if (scadOggi == null || scadOggi.isEmpty()) {
-            JLabel empty = new JLabel("Nessuna scadenza per oggi");
-            empty.setHorizontalAlignment(SwingConstants.CENTER);
-            empty.setFont(new Font("SansSerif", Font.ITALIC, 14));
-            empty.setForeground(new Color(150, 150, 150));
-
-            empty.setBorder(new EmptyBorder(0, 0, 45, 0));
+        Component attuale = ((BorderLayout) getLayout()).getLayoutComponent(BorderLayout.CENTER);
+        Component desiderato = scadOggi.isEmpty() ? empty : scroll;
+        if (attuale != desiderato) {
+            if (attuale != null) remove(attuale);
+            add(desiderato, BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        }
 
-            add(empty, BorderLayout.CENTER);
+        if (scadOggi.isEmpty()) {
+            carte.svuota();
         } else {
-            JPanel list = new JPanel();
-            list.setLayout(new BoxLayout(list, BoxLayout.Y_AXIS));
-            list.setBackground(ColorsConstant.LIGHT_GREY);
-            list.setBorder(new EmptyBorder(0, 0, 0, 0));
-
-            list.add(Box.createRigidArea(new Dimension(0, 10)));
-            int cardWidth = panelWidth - 16;
-
-            for (ToDo td : scadOggi) {
-                ToDoCard card = new ToDoCard(td, mainCtrl, cardWidth, false);
-                card.setAlignmentX(Component.CENTER_ALIGNMENT);
-                card.setMaximumSize(new Dimension(cardWidth, Integer.MAX_VALUE));
-                list.add(card);
-                list.add(Box.createRigidArea(new Dimension(0, 8)));
-            }
-
-            JPanel listContainer = new JPanel(new BorderLayout());
-            listContainer.setBackground(ColorsConstant.LIGHT_GREY);
-            listContainer.add(list, BorderLayout.NORTH);
-
-            JScrollPane scroll = new JScrollPane(
-                    listContainer,
-                    JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
-                    JScrollPane.HORIZONTAL_SCROLLBAR_NEVER
-            );
-            scroll.setBorder(null);
-            scroll.getViewport().setBackground(ColorsConstant.LIGHT_GREY);
-            scroll.getVerticalScrollBar().setPreferredSize(new Dimension(0, 0));
-
-            add(scroll, BorderLayout.CENTER);
+            carte.riconcilia(scadOggi, cardWidth, td -> new ToDoCard(td, mainCtrl, cardWidth, false));
         }
     }
 
+    /**
+     * Adegua le card già visualizzate a una nuova larghezza del pannello, senza ricalcolare le scadenze.
+     * Usato durante il ridimensionamento della finestra.
+     *
+     * @param panelWidth La larghezza del pannello.
+     */
+    public void ridimensiona(int panelWidth) {
+        if (panelWidth - 16 == cardWidth) return;
+        this.cardWidth = panelWidth - 16;
+        carte.ridimensiona(cardWidth);
+    }
+
     /**
      * Rimuove i duplicati da una lista di ToDo preservandone l'ordine di inserimento originale.
      * <p>
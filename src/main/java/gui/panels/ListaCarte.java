@@ -0,0 +1,141 @@
+package gui.panels;
+
+import gui.cards.ToDoCard;
+import model.ToDo;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Riconciliatore delle {@link ToDoCard} contenute in un pannello a lista verticale.
+ * <p>
+ * Mantiene le card già costruite associate al rispettivo {@link ToDo} e, a ogni aggiornamento,
+ * ricostruisce solo quelle il cui ToDo è cambiato (vedi {@link ToDoCard#isAggiornata()}).
+ * Un cambio di larghezza non ricostruisce le card: vengono solo ridimensionate.
+ * Le card e gli spaziatori già presenti nel pannello vengono riordinati sul posto con
+ * {@link Container#setComponentZOrder(Component, int)}: si aggiungono solo le card ricostruite
+ * e si rimuovono solo quelle non più visualizzate.
+ */
+final class ListaCarte {
+
+    /** Spazio verticale in testa alla lista. */
+    private static final int MARGINE_SUPERIORE = 10;
+
+    /** Spazio verticale dopo ogni card. */
+    private static final int SPAZIO_TRA_CARTE = 8;
+
+    /** Il pannello (con {@code BoxLayout} verticale) che contiene le card. */
+    private final JPanel lista;
+
+    /** Card attualmente visualizzate, per identità del ToDo. */
+    private final Map<ToDo, ToDoCard> carte = new IdentityHashMap<>();
+
+    /**
+     * Crea un riconciliatore per il pannello indicato.
+     *
+     * @param lista Il pannello che ospita le card.
+     */
+    ListaCarte(JPanel lista) {
+        this.lista = lista;
+    }
+
+    /**
+     * Allinea il contenuto del pannello alla lista di ToDo indicata.
+     *
+     * @param todos     I ToDo da visualizzare, nell'ordine desiderato.
+     * @param cardWidth La larghezza delle card.
+     * @param fabbrica  Funzione che costruisce una nuova card per un ToDo.
+     * @return {@code true} se il pannello è stato modificato.
+     */
+    boolean riconcilia(List<ToDo> todos, int cardWidth, Function<ToDo, ToDoCard> fabbrica) {
+        List<ToDoCard> desiderate = new ArrayList<>(todos.size());
+        Map<ToDo, ToDoCard> nuove = new IdentityHashMap<>();
+        for (ToDo td : todos) {
+            ToDoCard card = carte.get(td);
+            if (card == null || !card.isAggiornata()) {
+                card = fabbrica.apply(td);
+                card.setAlignmentX(Component.CENTER_ALIGNMENT);
+                card.setMaximumSize(new Dimension(cardWidth, Integer.MAX_VALUE));
+            } else {
+                card.ridimensiona(cardWidth);
+            }
+            desiderate.add(card);
+            nuove.put(td, card);
+        }
+        carte.clear();
+        carte.putAll(nuove);
+
+        List<ToDoCard> attuali = carteVisualizzate();
+        if (attuali.equals(desiderate)) return false;
+
+        // Disposizione voluta: margine, poi ogni card seguita dal suo spaziatore
+        List<Component> spaziatori = spaziatoriVisualizzati();
+        List<Component> disposizione = new ArrayList<>(2 * desiderate.size() + 1);
+        disposizione.add(!spaziatori.isEmpty()
+                ? spaziatori.remove(0) : Box.createRigidArea(new Dimension(0, MARGINE_SUPERIORE)));
+        for (ToDoCard card : desiderate) {
+            disposizione.add(card);
+            disposizione.add(!spaziatori.isEmpty()
+                    ? spaziatori.remove(0) : Box.createRigidArea(new Dimension(0, SPAZIO_TRA_CARTE)));
+        }
+
+        for (int i = 0; i < disposizione.size(); i++) {
+            Component c = disposizione.get(i);
+            if (i < lista.getComponentCount() && lista.getComponent(i) == c) continue;
+            if (c.getParent() == lista) {
+                lista.setComponentZOrder(c, i);
+            } else {
+                lista.add(c, i);
+            }
+        }
+        // In coda restano le card non più visualizzate e gli spaziatori in eccesso
+        while (lista.getComponentCount() > disposizione.size()) {
+            lista.remove(lista.getComponentCount() - 1);
+        }
+
+        lista.revalidate();
+        lista.repaint();
+        return true;
+    }
+
+    /**
+     * Adegua tutte le card visualizzate a una nuova larghezza, senza ricostruirle né riordinarle.
+     *
+     * @param cardWidth La nuova larghezza delle card.
+     */
+    void ridimensiona(int cardWidth) {
+        for (ToDoCard card : carte.values()) card.ridimensiona(cardWidth);
+        lista.revalidate();
+    }
+
+    /**
+     * Dimentica le card costruite, ad esempio quando il pannello mostra lo stato vuoto.
+     */
+    void svuota() {
+        carte.clear();
+    }
+
+    /**
+     * Spaziatori già nel pannello, nell'ordine in cui compaiono: il primo è il margine superiore.
+     */
+    private List<Component> spaziatoriVisualizzati() {
+        List<Component> spaziatori = new ArrayList<>();
+        for (Component c : lista.getComponents()) {
+            if (c instanceof Box.Filler) spaziatori.add(c);
+        }
+        return spaziatori;
+    }
+
+    private List<ToDoCard> carteVisualizzate() {
+        List<ToDoCard> visualizzate = new ArrayList<>();
+        for (Component c : lista.getComponents()) {
+            if (c instanceof ToDoCard) visualizzate.add((ToDoCard) c);
+        }
+        return visualizzate;
+    }
+}
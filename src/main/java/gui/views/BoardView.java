@@ -1,5 +1,6 @@
 package gui.views;
 
+import controllers.Evento;
 import controllers.MainController;
 import gui.dialogs.AddBachecaDialog;
 import gui.panels.BachecaPanel;
@@ -15,7 +16,10 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,6 +70,11 @@ public class BoardView extends JFrame {
      */
     private static final int GAP_BETWEEN = 8;
 
+    /**
+     * Attesa in millisecondi dopo l'ultimo evento di ridimensionamento prima di ridisporre le colonne.
+     */
+    private static final int RITARDO_RIDIMENSIONAMENTO = 80;
+
     /**
      * Flag che indica se il pannello delle "Scadenze di oggi" deve essere visibile.
      */
@@ -77,6 +86,30 @@ public class BoardView extends JFrame {
     /** Query per data attualmente attiva per il filtraggio della vista. */
     private String currentDateQuery = null;
 
+    /**
+     * Pannelli delle bacheche già costruiti, per identità della bacheca:
+     * vengono riutilizzati e aggiornati a ogni rinfresco invece di essere ricreati.
+     */
+    private final Map<Bacheca, BachecaPanel> pannelliBacheche = new IdentityHashMap<>();
+
+    /** Pannello delle scadenze di oggi, creato alla prima visualizzazione e poi riutilizzato. */
+    private InScadenzaPanel pannelloScadenze;
+
+    /** Larghezza delle colonne calcolata dall'ultimo {@link #refreshCenter()}. */
+    private int larghezzaColonna;
+
+    /** Colonne attualmente presenti nel pannello centrale, nell'ordine di visualizzazione. */
+    private List<JPanel> colonneVisualizzate = new ArrayList<>();
+
+    /** Altezza delle liste calcolata dall'ultimo rinfresco o ridimensionamento. */
+    private int altezzaLista;
+
+    /**
+     * Timer che accorpa gli eventi di ridimensionamento della finestra: ogni evento lo fa ripartire,
+     * e le colonne vengono ridisposte una sola volta quando il trascinamento si ferma.
+     */
+    private final Timer timerRidimensionamento = new Timer(RITARDO_RIDIMENSIONAMENTO, e -> ridimensionaColonne());
+
     /**
      * Costruisce la finestra principale (Dashboard) dell'applicazione.
      * <p>
@@ -90,9 +123,11 @@ public class BoardView extends JFrame {
         this.utenteLoggato = utente;
         mainCtrl = new MainController(utenteLoggato);
 
-        try {
-            mainCtrl.getBachecaController().addChangeListener(this::refreshCenter);
-        } catch (Exception ignored) {}
+        mainCtrl.getBachecaController().getBusEventi().iscriviLotto(this::applicaEventi);
+        mainCtrl.getBachecaController().getBusEventi().iscrivi(Evento.OperazioneFallita.class, e ->
+                JOptionPane.showMessageDialog(this,
+                        e.getMessaggio() + "\nLe modifiche sono state annullate.",
+                        "Errore di salvataggio", JOptionPane.ERROR_MESSAGE));
 
         setTitle("Dashboard di " + utenteLoggato.getUsername());
         setSize(1200, 700);
@@ -109,10 +144,11 @@ public class BoardView extends JFrame {
         centerPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         add(centerPanel, BorderLayout.CENTER);
 
+        timerRidimensionamento.setRepeats(false);
         addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                SwingUtilities.invokeLater(BoardView.this::refreshCenter);
+                timerRidimensionamento.restart();
             }
         });
 
@@ -198,10 +234,11 @@ public class BoardView extends JFrame {
     /**
      * Aggiorna e ridisegna il pannello centrale della dashboard.
      * <p>
-     * Questo metodo viene chiamato all'inizializzazione, al ridimensionamento della finestra
-     * e ogni volta che i dati cambiano. Calcola dinamicamente la larghezza delle colonne
-     * (bacheche) in base allo spazio disponibile e ridisegna i componenti {@link BachecaPanel}
-     * e {@link InScadenzaPanel}.
+     * Questo metodo viene chiamato all'inizializzazione e quando cambiano le bacheche o la vista
+     * (il ridimensionamento della finestra passa invece da {@link #ridimensionaColonne()}). Calcola dinamicamente la larghezza delle colonne
+     * (bacheche) in base allo spazio disponibile e aggiorna i componenti {@link BachecaPanel}
+     * e {@link InScadenzaPanel} già esistenti, che a loro volta ricostruiscono solo le card
+     * dei ToDo cambiati. Le colonne vengono riposizionate solo se cambiano le bacheche visualizzate.
      */
     public void refreshCenter() {
         if (currentTextQuery != null) {
@@ -214,48 +251,180 @@ public class BoardView extends JFrame {
             return;
         }
 
-        centerPanel.removeAll();
-        centerPanel.setLayout(new BoxLayout(centerPanel, BoxLayout.X_AXIS));
-
-        int containerWidth = Math.max(400, getContentPane().getWidth());
         List<model.Bacheca> bacheche = mainCtrl.getBachecaController().getAllBacheche();
-        int columns = bacheche.size() + (showInScadenza ? 1 : 0);
-        if (columns == 0) columns = 1;
+        int widthPer = calcolaLarghezzaColonna(bacheche.size() + (showInScadenza ? 1 : 0));
 
-        int totalGaps = Math.max(0, (columns - 1) * GAP_BETWEEN);
-        int widthPer = (containerWidth - totalGaps) / columns;
-        widthPer = Math.max(MIN_BACHECA_WIDTH, Math.min(MAX_BACHECA_WIDTH, widthPer));
+        int availableHeight = availableHeight();
+        larghezzaColonna = widthPer;
+        altezzaLista = availableHeight;
 
-        int totalHeight = getContentPane().getHeight();
-        int topHeight = topPanel.getPreferredSize().height + 20;
-        int availableHeight = Math.max(240, totalHeight - topHeight - 80);
-
-        boolean firstColumn = false;
+        List<JPanel> colonne = new ArrayList<>();
 
         if (showInScadenza) {
-            gui.panels.InScadenzaPanel inScadenza = new gui.panels.InScadenzaPanel(mainCtrl, widthPer);
-            inScadenza.setAlignmentY(Component.TOP_ALIGNMENT);
-            inScadenza.setPreferredSize(new Dimension(widthPer, availableHeight + 80));
-            inScadenza.setMaximumSize(new Dimension(widthPer, Integer.MAX_VALUE));
-            centerPanel.add(inScadenza);
-            firstColumn = true;
+            if (pannelloScadenze == null) {
+                pannelloScadenze = new InScadenzaPanel(mainCtrl, widthPer);
+                pannelloScadenze.setAlignmentY(Component.TOP_ALIGNMENT);
+            } else {
+                pannelloScadenze.aggiorna(widthPer);
+            }
+            pannelloScadenze.setPreferredSize(new Dimension(widthPer, availableHeight + 80));
+            pannelloScadenze.setMaximumSize(new Dimension(widthPer, Integer.MAX_VALUE));
+            colonne.add(pannelloScadenze);
         }
 
+        Map<Bacheca, BachecaPanel> attivi = new IdentityHashMap<>();
         for (model.Bacheca b : bacheche) {
-            if (firstColumn) centerPanel.add(Box.createRigidArea(new Dimension(GAP_BETWEEN, 0)));
-
-            gui.panels.BachecaPanel panel = new gui.panels.BachecaPanel(b, mainCtrl, widthPer, availableHeight);
-            panel.setAlignmentY(Component.TOP_ALIGNMENT);
+            BachecaPanel panel = pannelliBacheche.get(b);
+            if (panel == null) {
+                panel = new BachecaPanel(b, mainCtrl, widthPer, availableHeight);
+                panel.setAlignmentY(Component.TOP_ALIGNMENT);
+            } else {
+                panel.aggiorna(widthPer, availableHeight);
+            }
             panel.setMaximumSize(new Dimension(widthPer, Integer.MAX_VALUE));
-            centerPanel.add(panel);
+            attivi.put(b, panel);
+            colonne.add(panel);
+        }
+        pannelliBacheche.clear();
+        pannelliBacheche.putAll(attivi);
+
+        if (!colonne.equals(colonneVisualizzate)) {
+            centerPanel.removeAll();
+            centerPanel.setLayout(new BoxLayout(centerPanel, BoxLayout.X_AXIS));
+
+            boolean firstColumn = false;
+            for (JPanel colonna : colonne) {
+                if (firstColumn) centerPanel.add(Box.createRigidArea(new Dimension(GAP_BETWEEN, 0)));
+                centerPanel.add(colonna);
+                firstColumn = true;
+            }
+            colonneVisualizzate = colonne;
+        }
 
-            firstColumn = true;
+        centerPanel.revalidate();
+        centerPanel.repaint();
+    }
+
+    /**
+     * Applica alla vista un lotto di eventi di modifica del modello.
+     * <p>
+     * Se cambia l'insieme delle bacheche o è attiva una ricerca, l'intera area centrale viene
+     * rinfrescata con {@link #refreshCenter()}. Altrimenti vengono aggiornati solo i pannelli
+     * delle bacheche coinvolte dagli eventi e il pannello delle scadenze di oggi.
+     *
+     * @param eventi Gli eventi accorpati dell'ultimo ciclo.
+     */
+    private void applicaEventi(List<Evento> eventi) {
+        if (currentTextQuery != null || currentDateQuery != null) {
+            refreshCenter();
+            return;
+        }
+
+        Map<Bacheca, Boolean> coinvolte = new IdentityHashMap<>();
+        for (Evento e : eventi) {
+            if (e instanceof Evento.BachecaAggiunta || e instanceof Evento.BachecaEliminata) {
+                refreshCenter();
+                return;
+            }
+            for (Bacheca b : bachecheCoinvolte(e)) {
+                if (b != null) coinvolte.put(b, Boolean.TRUE);
+            }
+        }
+
+        for (Bacheca b : coinvolte.keySet()) {
+            BachecaPanel panel = pannelliBacheche.get(b);
+            if (panel == null) {
+                refreshCenter();
+                return;
+            }
+            panel.aggiorna(larghezzaColonna, availableHeight());
+        }
+        if (showInScadenza && pannelloScadenze != null) {
+            pannelloScadenze.aggiorna(larghezzaColonna);
+        }
+
+        centerPanel.revalidate();
+        centerPanel.repaint();
+    }
+
+    private static List<Bacheca> bachecheCoinvolte(Evento e) {
+        if (e instanceof Evento.ToDoCreato) return nonNulle(((Evento.ToDoCreato) e).getBacheca());
+        if (e instanceof Evento.ToDoEliminato) return nonNulle(((Evento.ToDoEliminato) e).getBacheca());
+        if (e instanceof Evento.ToDoModificato) return nonNulle(((Evento.ToDoModificato) e).getBacheca());
+        if (e instanceof Evento.CondivisioniModificate) return nonNulle(((Evento.CondivisioniModificate) e).getBacheca());
+        if (e instanceof Evento.BachecaModificata) return List.of(((Evento.BachecaModificata) e).getBacheca());
+        if (e instanceof Evento.ToDoSpostato) {
+            Evento.ToDoSpostato s = (Evento.ToDoSpostato) e;
+            return Stream.of(s.getDa(), s.getA()).filter(b -> b != null).collect(Collectors.toList());
+        }
+        return List.of();
+    }
+
+    private static List<Bacheca> nonNulle(Bacheca b) {
+        return b != null ? List.of(b) : List.of();
+    }
+
+    /**
+     * Ridispone le colonne dopo un ridimensionamento della finestra.
+     * <p>
+     * A differenza di {@link #refreshCenter()} non rilegge i dati né ricostruisce pannelli o card:
+     * ricalcola solo larghezza e altezza delle colonne e le applica ai pannelli già visualizzati.
+     * Se le dimensioni risultanti non cambiano (ad esempio perché la larghezza è già al minimo
+     * o al massimo consentito) non viene fatto nulla.
+     */
+    private void ridimensionaColonne() {
+        if (currentTextQuery != null || currentDateQuery != null) {
+            // I risultati di ricerca hanno card a larghezza fissa: basta ridisporli
+            centerPanel.revalidate();
+            return;
+        }
+
+        int widthPer = calcolaLarghezzaColonna(colonneVisualizzate.size());
+        int availableHeight = availableHeight();
+        if (widthPer == larghezzaColonna && availableHeight == altezzaLista) return;
+        larghezzaColonna = widthPer;
+        altezzaLista = availableHeight;
+
+        for (JPanel colonna : colonneVisualizzate) {
+            if (colonna instanceof BachecaPanel) {
+                ((BachecaPanel) colonna).ridimensiona(widthPer, availableHeight);
+            } else if (colonna instanceof InScadenzaPanel) {
+                ((InScadenzaPanel) colonna).ridimensiona(widthPer);
+                colonna.setPreferredSize(new Dimension(widthPer, availableHeight + 80));
+            }
+            colonna.setMaximumSize(new Dimension(widthPer, Integer.MAX_VALUE));
         }
 
         centerPanel.revalidate();
         centerPanel.repaint();
     }
 
+    /**
+     * Calcola la larghezza di ogni colonna in base alla larghezza della finestra.
+     *
+     * @param columns Il numero di colonne da affiancare.
+     * @return La larghezza in pixel, compresa tra {@link #MIN_BACHECA_WIDTH} e {@link #MAX_BACHECA_WIDTH}.
+     */
+    private int calcolaLarghezzaColonna(int columns) {
+        int containerWidth = Math.max(400, getContentPane().getWidth());
+        if (columns == 0) columns = 1;
+
+        int totalGaps = Math.max(0, (columns - 1) * GAP_BETWEEN);
+        int widthPer = (containerWidth - totalGaps) / columns;
+        return Math.max(MIN_BACHECA_WIDTH, Math.min(MAX_BACHECA_WIDTH, widthPer));
+    }
+
+    /**
+     * Calcola l'altezza disponibile per le liste delle bacheche in base alla finestra.
+     *
+     * @return L'altezza in pixel dell'area scorrevole di ogni colonna.
+     */
+    private int availableHeight() {
+        int totalHeight = getContentPane().getHeight();
+        int topHeight = topPanel.getPreferredSize().height + 20;
+        return Math.max(240, totalHeight - topHeight - 80);
+    }
+
     /**
      * Gestisce la procedura di logout dell'utente.
      * <p>
@@ -288,9 +457,17 @@ public class BoardView extends JFrame {
                 JOptionPane.WARNING_MESSAGE);
 
         if (dialogResult == JOptionPane.YES_OPTION) {
-            mainCtrl.eliminaAccount();
-            dispose();
-            SwingUtilities.invokeLater(() -> new gui.views.LoginView().setVisible(true));
+            // La finestra resta bloccata finché l'eliminazione (accodata alle scritture in sospeso) non termina
+            setEnabled(false);
+            mainCtrl.eliminaAccount().whenComplete((r, ex) -> {
+                if (ex != null) {
+                    setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Eliminazione dell'account non riuscita.", "Errore", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                dispose();
+                new gui.views.LoginView().setVisible(true);
+            });
         }
     }
 
@@ -350,6 +527,7 @@ public class BoardView extends JFrame {
      */
     private void showSearchResults(List<ToDo> found, String titleText) {
         centerPanel.removeAll();
+        colonneVisualizzate = new ArrayList<>();
         centerPanel.setLayout(new BorderLayout());
 
         JPanel topRow = new JPanel(new BorderLayout());
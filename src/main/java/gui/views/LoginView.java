@@ -7,6 +7,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import util.ColorsConstant;
 import controllers.LoginController;
+import dao.DAOException;
 import model.Utente;
 
 /**
@@ -147,9 +148,14 @@ public class LoginView extends JFrame {
         ActionListener loginAction = e -> {
             try {
                 Utente utenteLoggato = controller.attemptLogin(getUsername(), getPassword());
+                // Il caricamento dei dati avviene qui: se fallisce l'utente resta sul login
+                // invece di vedere un'area di lavoro vuota o incompleta
+                BoardView board = new BoardView(utenteLoggato);
                 mostraSuccesso("Benvenuto " + utenteLoggato.getUsername() + "!");
                 dispose();
-                SwingUtilities.invokeLater(() -> new BoardView(utenteLoggato).setVisible(true));
+                board.setVisible(true);
+            } catch (DAOException ex) {
+                mostraErrore("Impossibile caricare i dati dell'utente. Riprova più tardi.");
             } catch (Exception ex) {
                 mostraErrore(ex.getMessage());
             }
@@ -0,0 +1,84 @@
+package main;
+
+import dao.DAOException;
+import dao.ToDoDAO;
+import dao.postgresimpl.PostgresToDoDAO;
+import database.DBConnection;
+import util.PoliticaImmagini;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Job di manutenzione, da eseguire una sola volta, che ricomprime le immagini già salvate
+ * secondo la {@link PoliticaImmagini} corrente.
+ * <p>
+ * Le immagini salvate prima dell'introduzione della politica sono PNG con canale alfa: il job
+ * le ricodifica (JPEG per le immagini opache) e rigenera le varianti ridotte, in parallelo
+ * su un thread per core. Le righe modificate dall'applicazione durante l'esecuzione non vengono
+ * toccate (vedi {@link ToDoDAO#ricomprimiImmagine(int)}), quindi il job può girare con l'applicazione
+ * in uso.
+ * <p>
+ * Il numero di thread si configura con la proprietà di sistema {@code todo.ricompressione.thread}.
+ * Termina con codice 1 se non riesce a leggere l'elenco delle immagini o se qualche ricompressione fallisce.
+ */
+public class RicompressioneImmagini {
+
+    private static final Logger LOGGER = Logger.getLogger(RicompressioneImmagini.class.getName());
+
+    /**
+     * Costruttore privato per nascondere quello pubblico implicito.
+     * <p>
+     * Questa classe contiene solo un metodo statico main e non deve essere istanziata.
+     */
+    private RicompressioneImmagini() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Avvia la ricompressione di tutte le immagini e attende che termini.
+     *
+     * @param args Argomenti da riga di comando (attualmente non utilizzati).
+     * @throws InterruptedException Se il thread principale viene interrotto durante l'attesa.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int thread = Integer.getInteger("todo.ricompressione.thread", Runtime.getRuntime().availableProcessors());
+        ToDoDAO dao = new PostgresToDoDAO();
+        List<Integer> ids;
+        try {
+            ids = dao.getIdToDoConImmagine();
+        } catch (DAOException e) {
+            LOGGER.log(Level.SEVERE, "Impossibile leggere l'elenco delle immagini da ricomprimere", e);
+            DBConnection.closeConnection();
+            System.exit(1);
+            return;
+        }
+        LOGGER.info(() -> "Ricompressione di " + ids.size() + " immagini su " + thread + " thread");
+
+        AtomicInteger riscritte = new AtomicInteger();
+        AtomicInteger errori = new AtomicInteger();
+        ExecutorService esecutore = Executors.newFixedThreadPool(Math.max(1, thread));
+        for (int id : ids) {
+            esecutore.execute(() -> {
+                try {
+                    if (dao.ricomprimiImmagine(id)) riscritte.incrementAndGet();
+                } catch (RuntimeException e) {
+                    errori.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Ricompressione fallita per il ToDo " + id, e);
+                }
+            });
+        }
+        esecutore.shutdown();
+        esecutore.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        LOGGER.info(() -> "Ricompressione terminata: " + riscritte.get() + " immagini riscritte, "
+                + errori.get() + " errori, " + (ids.size() - riscritte.get() - errori.get()) + " invariate");
+        DBConnection.closeConnection();
+        if (errori.get() > 0) System.exit(1);
+    }
+}
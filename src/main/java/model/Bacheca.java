@@ -19,8 +19,10 @@ public class Bacheca {
 
     /**
      * Identificativo univoco della bacheca nel database.
+     * Per una bacheca appena creata viene assegnato dal thread delle scritture,
+     * quindi è {@code volatile}: vale {@code 0} finché l'inserimento non è completato.
      */
-    private int idBacheca;
+    private volatile int idBacheca;
 
     /**
      * Il titolo o categoria della bacheca.
@@ -43,9 +45,10 @@ public class Bacheca {
     private List<ToDo> toDos;
 
     /**
-     * Indice numerico che rappresenta l'ordine di visualizzazione della bacheca.
+     * Chiave di ordinamento che rappresenta l'ordine di visualizzazione della bacheca.
+     * Le chiavi sono distanziate (vedi {@link util.Rango}).
      */
-    private int posizioneB;
+    private long posizioneB;
 
     /**
      * Costruisce una nuova istanza di {@code Bacheca}.
@@ -58,7 +61,7 @@ public class Bacheca {
      * @param idUtente    L'identificativo univoco dell'utente proprietario.
      * @param posizioneB  L'indice numerico per l'ordinamento nella UI.
      */
-    public Bacheca(TitoloBacheca titolo, String descrizione, int idUtente, int posizioneB) {
+    public Bacheca(TitoloBacheca titolo, String descrizione, int idUtente, long posizioneB) {
         this.titolo = titolo;
         this.descrizione = descrizione;
         this.idUtente = idUtente;
@@ -78,7 +81,7 @@ public class Bacheca {
      * @param idUtente    L'identificativo dell'utente proprietario.
      * @param posizioneB  L'indice di ordinamento della bacheca.
      */
-    public Bacheca(int idBacheca, TitoloBacheca titolo, String descrizione, int idUtente, int posizioneB) {
+    public Bacheca(int idBacheca, TitoloBacheca titolo, String descrizione, int idUtente, long posizioneB) {
         this.idBacheca = idBacheca;
         this.titolo = titolo;
         this.descrizione = descrizione;
@@ -138,9 +141,9 @@ public class Bacheca {
      * Questo valore viene utilizzato per ordinare le bacheche orizzontalmente
      * nell'interfaccia utente.
      *
-     * @return Un intero rappresentante la posizione (0-based).
+     * @return La chiave di posizione (crescente nell'ordine di visualizzazione).
      */
-    public int getPosizioneB() {
+    public long getPosizioneB() {
         return posizioneB;
     }
 
@@ -149,7 +152,7 @@ public class Bacheca {
      *
      * @param posizioneB Il nuovo indice di posizione da assegnare.
      */
-    public void setPosizioneB(int posizioneB) {
+    public void setPosizioneB(long posizioneB) {
         this.posizioneB = posizioneB;
     }
 
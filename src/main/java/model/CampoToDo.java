@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Enumerazione dei campi persistenti di un {@link ToDo}.
+ * <p>
+ * Viene utilizzata dal tracciamento delle modifiche del ToDo: ogni setter registra
+ * il campo che ha effettivamente cambiato valore, così che il livello di persistenza
+ * possa scrivere nel database solo le colonne modificate.
+ */
+public enum CampoToDo {
+
+    /**
+     * Il titolo dell'attività.
+     */
+    TITOLO,
+
+    /**
+     * La descrizione dettagliata.
+     */
+    DESCRIZIONE,
+
+    /**
+     * La data di scadenza.
+     */
+    DATA_SCADENZA,
+
+    /**
+     * Il colore di sfondo.
+     */
+    COLORE_SFONDO,
+
+    /**
+     * L'immagine allegata (pixel e relativi metadati).
+     */
+    IMMAGINE,
+
+    /**
+     * Lo stato di completamento.
+     */
+    STATO,
+
+    /**
+     * La posizione all'interno della bacheca.
+     */
+    POSIZIONE,
+
+    /**
+     * La bacheca di appartenenza.
+     */
+    ID_BACHECA,
+
+    /**
+     * L'utente creatore.
+     */
+    ID_UTENTE_CREATORE,
+
+    /**
+     * La lista dei link associati.
+     */
+    LINK
+}
@@ -3,9 +3,13 @@ package model;
 import java.awt.Color;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import javax.swing.ImageIcon;
 
 /**
@@ -19,8 +23,9 @@ public class ToDo {
 
     /**
      * Identificativo univoco dell'attività nel database.
+     * È {@code volatile} perché viene assegnato dal thread che esegue l'inserimento in background.
      */
-    private int idToDo;
+    private volatile int idToDo;
 
     /**
      * Il titolo breve dell'attività.
@@ -49,9 +54,34 @@ public class ToDo {
 
     /**
      * Immagine opzionale allegata all'attività.
+     * Può essere {@code null} anche se l'attività ha un'immagine, finché i pixel
+     * non vengono caricati su richiesta (vedi {@link #isImmagineCaricata()}).
      */
     private ImageIcon immagine;
 
+    /**
+     * Impronta (SHA-256 esadecimale) dell'immagine salvata nel database,
+     * o {@code null} se l'attività non ha immagine.
+     */
+    private String immagineHash;
+
+    /**
+     * Dimensione in byte dell'immagine salvata nel database.
+     */
+    private int immagineDimensione;
+
+    /**
+     * Indica se {@link #immagine} riflette lo stato reale dell'attività.
+     * {@code false} quando dal database sono stati letti solo i metadati dell'immagine.
+     */
+    private boolean immagineCaricata = true;
+
+    /**
+     * Variante di {@link #immagine} presente in memoria. Le immagini impostate dall'utente
+     * (non ancora salvate) sono sempre {@link VarianteImmagine#ORIGINALE}.
+     */
+    private VarianteImmagine varianteImmagine = VarianteImmagine.ORIGINALE;
+
     /**
      * Stato di completamento dell'attività.
      * {@code true} se completata, {@code false} altrimenti.
@@ -59,9 +89,11 @@ public class ToDo {
     private boolean stato;
 
     /**
-     * Indice che determina la posizione dell'attività all'interno della lista della bacheca.
+     * Chiave di ordinamento dell'attività all'interno della lista della bacheca.
+     * Le chiavi sono distanziate (vedi {@link util.Rango}) così che uno spostamento
+     * richieda di aggiornare solo l'elemento spostato.
      */
-    private int posizione;
+    private long posizione;
 
     /**
      * Identificativo della bacheca a cui appartiene l'attività.
@@ -79,6 +111,19 @@ public class ToDo {
      */
     private Map<Utente, PermessoCondivisione> condivisioni;
 
+    /**
+     * Campi modificati dall'ultimo caricamento o salvataggio nel database.
+     * I setter vi registrano solo i campi il cui valore cambia effettivamente.
+     */
+    private final EnumSet<CampoToDo> modifiche = EnumSet.noneOf(CampoToDo.class);
+
+    /**
+     * Contatore incrementato a ogni modifica del contenuto visualizzato dell'attività.
+     * Permette all'interfaccia di capire se la card già costruita per il ToDo è ancora valida.
+     * Le sole variazioni di ordinamento (posizione o bacheca) non lo incrementano.
+     */
+    private long versione;
+
 
     /**
      * Costruisce un nuovo ToDo.
@@ -110,12 +155,12 @@ public class ToDo {
      * @param dataScadenza     La data di scadenza.
      * @param coloreSfondo     Il colore di sfondo per la visualizzazione.
      * @param stato            Lo stato di completamento (true se completato).
-     * @param posizione        L'indice di ordinamento nella lista.
+     * @param posizione        La chiave di ordinamento nella lista.
      * @param idBacheca        L'ID della bacheca di appartenenza.
      * @param idUtenteCreatore L'ID dell'autore.
      */
     public ToDo(int idToDo, String titolo, String descrizione, LocalDate dataScadenza,
-                Color coloreSfondo, boolean stato, int posizione,
+                Color coloreSfondo, boolean stato, long posizione,
                 int idBacheca, int idUtenteCreatore) {
         this.idToDo = idToDo;
         this.titolo = titolo;
@@ -130,6 +175,113 @@ public class ToDo {
         this.linkURLs = new ArrayList<>();
     }
 
+    /**
+     * Costruisce una copia indipendente di un ToDo (istantanea).
+     * <p>
+     * Liste di link e condivisioni vengono copiate, così la copia può essere passata a un DAO
+     * in background mentre l'originale continua a essere modificato dall'interfaccia,
+     * oppure conservata per annullare una modifica con {@link #annullaModifiche(ToDo, ToDo)}.
+     * Vengono copiati anche i campi modificati e la versione.
+     *
+     * @param altro Il ToDo da copiare.
+     */
+    public ToDo(ToDo altro) {
+        this.idToDo = altro.idToDo;
+        this.titolo = altro.titolo;
+        this.dataScadenza = altro.dataScadenza;
+        this.coloreSfondo = altro.coloreSfondo;
+        this.linkURLs = altro.linkURLs != null ? new ArrayList<>(altro.linkURLs) : new ArrayList<>();
+        this.descrizione = altro.descrizione;
+        this.immagine = altro.immagine;
+        this.immagineHash = altro.immagineHash;
+        this.immagineDimensione = altro.immagineDimensione;
+        this.immagineCaricata = altro.immagineCaricata;
+        this.varianteImmagine = altro.varianteImmagine;
+        this.stato = altro.stato;
+        this.posizione = altro.posizione;
+        this.idBacheca = altro.idBacheca;
+        this.idUtenteCreatore = altro.idUtenteCreatore;
+        this.condivisioni = altro.condivisioni != null ? new HashMap<>(altro.condivisioni) : new HashMap<>();
+        this.modifiche.addAll(altro.modifiche);
+        this.versione = altro.versione;
+    }
+
+    /**
+     * Annulla in memoria i campi di un salvataggio fallito, riportandoli ai valori di una copia
+     * presa prima della modifica con {@link #ToDo(ToDo)}.
+     * <p>
+     * Vengono considerati solo i campi che il salvataggio doveva scrivere, e ciascuno viene ripristinato
+     * solo se ha ancora il valore che si è tentato di salvare: un campo modificato di nuovo nel frattempo
+     * appartiene a una scrittura successiva, già accodata, e resta com'è.
+     *
+     * @param prima   La copia presa prima della modifica.
+     * @param tentata La copia passata al DAO, con i campi modificati che non è stato possibile salvare.
+     * @return I campi effettivamente ripristinati.
+     */
+    public Set<CampoToDo> annullaModifiche(ToDo prima, ToDo tentata) {
+        EnumSet<CampoToDo> ripristinati = EnumSet.noneOf(CampoToDo.class);
+        for (CampoToDo campo : tentata.modifiche) {
+            if (annullaCampo(campo, prima, tentata)) {
+                ripristinati.add(campo);
+                if (prima.modifiche.contains(campo)) modifiche.add(campo);
+                else modifiche.remove(campo);
+            }
+        }
+        if (!ripristinati.isEmpty()) versione++;
+        return ripristinati;
+    }
+
+    private boolean annullaCampo(CampoToDo campo, ToDo prima, ToDo tentata) {
+        switch (campo) {
+            case TITOLO:
+                if (!Objects.equals(titolo, tentata.titolo)) return false;
+                titolo = prima.titolo;
+                return true;
+            case DESCRIZIONE:
+                if (!Objects.equals(descrizione, tentata.descrizione)) return false;
+                descrizione = prima.descrizione;
+                return true;
+            case DATA_SCADENZA:
+                if (!Objects.equals(dataScadenza, tentata.dataScadenza)) return false;
+                dataScadenza = prima.dataScadenza;
+                return true;
+            case COLORE_SFONDO:
+                if (!Objects.equals(coloreSfondo, tentata.coloreSfondo)) return false;
+                coloreSfondo = prima.coloreSfondo;
+                return true;
+            case LINK:
+                if (!Objects.equals(linkURLs, tentata.linkURLs)) return false;
+                linkURLs = new ArrayList<>(prima.linkURLs);
+                return true;
+            case IMMAGINE:
+                if (immagine != tentata.immagine) return false;
+                immagine = prima.immagine;
+                immagineHash = prima.immagineHash;
+                immagineDimensione = prima.immagineDimensione;
+                immagineCaricata = prima.immagineCaricata;
+                varianteImmagine = prima.varianteImmagine;
+                return true;
+            case STATO:
+                if (stato != tentata.stato) return false;
+                stato = prima.stato;
+                return true;
+            case POSIZIONE:
+                if (posizione != tentata.posizione) return false;
+                posizione = prima.posizione;
+                return true;
+            case ID_BACHECA:
+                if (idBacheca != tentata.idBacheca) return false;
+                idBacheca = prima.idBacheca;
+                return true;
+            case ID_UTENTE_CREATORE:
+                if (idUtenteCreatore != tentata.idUtenteCreatore) return false;
+                idUtenteCreatore = prima.idUtenteCreatore;
+                return true;
+            default:
+                return false;
+        }
+    }
+
     // --- Getters e Setters ---
 
     /**
@@ -166,6 +318,7 @@ public class ToDo {
      * @param titolo Il nuovo titolo.
      */
     public void setTitolo(String titolo) {
+        if (!Objects.equals(this.titolo, titolo)) segnaModifica(CampoToDo.TITOLO);
         this.titolo = titolo;
     }
 
@@ -184,6 +337,7 @@ public class ToDo {
      * @param dataScadenza La nuova data di scadenza.
      */
     public void setDataScadenza(LocalDate dataScadenza) {
+        if (!Objects.equals(this.dataScadenza, dataScadenza)) segnaModifica(CampoToDo.DATA_SCADENZA);
         this.dataScadenza = dataScadenza;
     }
 
@@ -202,6 +356,7 @@ public class ToDo {
      * @param coloreSfondo Il nuovo colore.
      */
     public void setColoreSfondo(Color coloreSfondo) {
+        if (!Objects.equals(this.coloreSfondo, coloreSfondo)) segnaModifica(CampoToDo.COLORE_SFONDO);
         this.coloreSfondo = coloreSfondo;
     }
 
@@ -220,6 +375,7 @@ public class ToDo {
      * @param linkURLs La nuova lista di URL.
      */
     public void setLinkURLs(List<String> linkURLs) {
+        if (!Objects.equals(this.linkURLs, linkURLs)) segnaModifica(CampoToDo.LINK);
         this.linkURLs = linkURLs;
     }
 
@@ -232,6 +388,7 @@ public class ToDo {
     public void aggiungiLink(String link) {
         if (this.linkURLs == null) this.linkURLs = new ArrayList<>();
         this.linkURLs.add(link);
+        segnaModifica(CampoToDo.LINK);
     }
 
     /**
@@ -259,6 +416,7 @@ public class ToDo {
      * @param descrizione La nuova descrizione.
      */
     public void setDescrizione(String descrizione) {
+        if (!Objects.equals(this.descrizione, descrizione)) segnaModifica(CampoToDo.DESCRIZIONE);
         this.descrizione = descrizione;
     }
 
@@ -273,11 +431,111 @@ public class ToDo {
 
     /**
      * Imposta l'immagine allegata all'attività.
+     * Se l'immagine cambia, i metadati salvati (impronta e dimensione) vengono azzerati:
+     * saranno ricalcolati al prossimo salvataggio.
      *
-     * @param immagine La nuova immagine.
+     * @param immagine La nuova immagine, o {@code null} per rimuoverla.
      */
     public void setImmagine(ImageIcon immagine) {
+        // Un'immagine mai caricata va considerata modificata anche se il riferimento in memoria coincide
+        if (this.immagine == immagine && this.immagineCaricata) return;
+        segnaModifica(CampoToDo.IMMAGINE);
+        this.immagine = immagine;
+        this.immagineHash = null;
+        this.immagineDimensione = 0;
+        this.immagineCaricata = true;
+        this.varianteImmagine = VarianteImmagine.ORIGINALE;
+    }
+
+    /**
+     * Imposta i metadati dell'immagine letti dal database, senza i pixel.
+     * Se l'impronta non è nulla, l'immagine dovrà essere caricata su richiesta.
+     * Metodo di utilità per i DAO.
+     *
+     * @param hash       L'impronta dell'immagine, o {@code null} se assente.
+     * @param dimensione La dimensione in byte dell'immagine.
+     */
+    public void setImmagineDalDB(String hash, int dimensione) {
+        this.immagine = null;
+        this.immagineHash = hash;
+        this.immagineDimensione = hash != null ? dimensione : 0;
+        this.immagineCaricata = hash == null;
+        this.varianteImmagine = VarianteImmagine.ORIGINALE;
+    }
+
+    /**
+     * Associa all'attività i pixel dell'immagine caricati su richiesta,
+     * mantenendo invariati i metadati letti dal database.
+     *
+     * @param immagine L'immagine caricata.
+     * @param variante La variante caricata.
+     */
+    public void setImmagineCaricata(ImageIcon immagine, VarianteImmagine variante) {
         this.immagine = immagine;
+        this.immagineCaricata = true;
+        this.varianteImmagine = variante;
+    }
+
+    /**
+     * Registra i metadati dell'immagine appena salvata nel database, lasciando invariati i pixel in memoria.
+     * Metodo di utilità per i DAO.
+     *
+     * @param hash       L'impronta dell'immagine salvata, o {@code null} se assente.
+     * @param dimensione La dimensione in byte dell'immagine salvata.
+     */
+    public void setMetadatiImmagine(String hash, int dimensione) {
+        this.immagineHash = hash;
+        this.immagineDimensione = hash != null ? dimensione : 0;
+    }
+
+    /**
+     * Verifica se l'attività ha un'immagine allegata, anche se non ancora caricata.
+     *
+     * @return {@code true} se è presente un'immagine.
+     */
+    public boolean hasImmagine() {
+        return immagine != null || immagineHash != null;
+    }
+
+    /**
+     * Verifica se i pixel dell'immagine sono disponibili in memoria.
+     *
+     * @return {@code false} se l'immagine esiste nel database ma non è ancora stata caricata.
+     */
+    public boolean isImmagineCaricata() {
+        return immagineCaricata;
+    }
+
+    /**
+     * Verifica se l'immagine in memoria è adatta a essere mostrata come la variante indicata,
+     * cioè se è quella variante (o una più grande) oppure se è l'originale stesso, più stretto
+     * della variante caricata e quindi salvato senza riduzioni.
+     *
+     * @param variante La variante richiesta.
+     * @return {@code true} se non serve caricare altro dal database.
+     */
+    public boolean isImmagineCaricata(VarianteImmagine variante) {
+        if (!immagineCaricata) return false;
+        if (immagine == null || varianteImmagine.compareTo(variante) >= 0) return true;
+        return immagine.getIconWidth() < varianteImmagine.getLarghezzaMassima();
+    }
+
+    /**
+     * Restituisce l'impronta dell'immagine salvata nel database.
+     *
+     * @return L'impronta SHA-256 esadecimale, o {@code null} se assente o non ancora salvata.
+     */
+    public String getImmagineHash() {
+        return immagineHash;
+    }
+
+    /**
+     * Restituisce la dimensione in byte dell'immagine salvata nel database.
+     *
+     * @return La dimensione in byte, o 0 se assente.
+     */
+    public int getImmagineDimensione() {
+        return immagineDimensione;
     }
 
     /**
@@ -295,24 +553,26 @@ public class ToDo {
      * @param stato {@code true} per completato, {@code false} per in corso.
      */
     public void setCompletato(boolean stato) {
+        if (this.stato != stato) segnaModifica(CampoToDo.STATO);
         this.stato = stato;
     }
 
     /**
-     * Restituisce la posizione ordinale dell'attività all'interno della bacheca.
+     * Restituisce la chiave di ordinamento dell'attività all'interno della bacheca.
      *
-     * @return L'indice di posizione.
+     * @return La chiave di posizione.
      */
-    public int getPosizione() {
+    public long getPosizione() {
         return posizione;
     }
 
     /**
-     * Imposta la posizione ordinale dell'attività.
+     * Imposta la chiave di ordinamento dell'attività.
      *
-     * @param posizione Il nuovo indice di posizione.
+     * @param posizione La nuova chiave di posizione.
      */
-    public void setPosizione(int posizione) {
+    public void setPosizione(long posizione) {
+        if (this.posizione != posizione) segnaModifica(CampoToDo.POSIZIONE);
         this.posizione = posizione;
     }
 
@@ -332,6 +592,7 @@ public class ToDo {
      * @param idBacheca Il nuovo ID della bacheca.
      */
     public void setIdBacheca(int idBacheca) {
+        if (this.idBacheca != idBacheca) segnaModifica(CampoToDo.ID_BACHECA);
         this.idBacheca = idBacheca;
     }
 
@@ -350,10 +611,65 @@ public class ToDo {
      * @param idUtenteCreatore L'ID dell'autore.
      */
     public void setIdUtenteCreatore(int idUtenteCreatore) {
+        if (this.idUtenteCreatore != idUtenteCreatore) segnaModifica(CampoToDo.ID_UTENTE_CREATORE);
         this.idUtenteCreatore = idUtenteCreatore;
     }
 
 
+    // --- TRACCIAMENTO MODIFICHE ---
+
+    /**
+     * Restituisce i campi modificati dall'ultimo caricamento o salvataggio.
+     *
+     * @return Un insieme non modificabile dei campi da scrivere nel database.
+     */
+    public Set<CampoToDo> getModifiche() {
+        return Collections.unmodifiableSet(EnumSet.copyOf(modifiche));
+    }
+
+    /**
+     * Verifica se un campo è stato modificato dall'ultimo caricamento o salvataggio.
+     *
+     * @param campo Il campo da verificare.
+     * @return {@code true} se il campo deve essere scritto nel database.
+     */
+    public boolean isModificato(CampoToDo campo) {
+        return modifiche.contains(campo);
+    }
+
+    /**
+     * Segna tutti i campi come allineati al database.
+     * Invocato dai DAO dopo un salvataggio riuscito.
+     */
+    public void pulisciModifiche() {
+        modifiche.clear();
+    }
+
+    /**
+     * Restituisce la versione corrente del contenuto visualizzato dell'attività.
+     *
+     * @return Un valore che cambia a ogni modifica di titolo, descrizione, scadenza, colore,
+     * immagine, stato, link o condivisioni.
+     */
+    public long getVersione() {
+        return versione;
+    }
+
+    private void segnaModifica(CampoToDo campo) {
+        modifiche.add(campo);
+        if (campo != CampoToDo.POSIZIONE && campo != CampoToDo.ID_BACHECA) versione++;
+    }
+
+    /**
+     * Segna un singolo campo come allineato al database.
+     * Utile quando il campo viene reso persistente da un'operazione dedicata (es. riordinamento).
+     *
+     * @param campo Il campo appena salvato.
+     */
+    public void pulisciModifica(CampoToDo campo) {
+        modifiche.remove(campo);
+    }
+
     // --- METODI DI CONDIVISIONE ---
 
     /**
@@ -373,6 +689,7 @@ public class ToDo {
      */
     public void setCondivisioniDalDB(Map<Utente, PermessoCondivisione> mappaPermessi) {
         this.condivisioni = mappaPermessi;
+        versione++;
     }
 
     /**
@@ -384,6 +701,7 @@ public class ToDo {
      */
     public void aggiungiOModificaCondivisione(Utente utente, PermessoCondivisione permesso) {
         condivisioni.put(utente, permesso);
+        versione++;
     }
 
     /**
@@ -392,7 +710,7 @@ public class ToDo {
      * @param utente L'utente da rimuovere dalla condivisione.
      */
     public void rimuoviCondivisione(Utente utente) {
-        condivisioni.remove(utente);
+        if (condivisioni.remove(utente) != null) versione++;
     }
 
     /**
@@ -0,0 +1,64 @@
+package model;
+
+/**
+ * Enumerazione delle versioni in cui viene salvata l'immagine di un {@link ToDo}.
+ * <p>
+ * Al salvataggio, oltre all'originale, vengono generate e memorizzate una miniatura e una versione
+ * a larghezza di card: le bacheche caricano solo la versione più piccola sufficiente per la larghezza
+ * da mostrare, mentre l'originale viene letto solo quando serve (es. nella finestra di modifica).
+ * Le costanti sono ordinate dalla più piccola alla più grande.
+ */
+public enum VarianteImmagine {
+
+    /**
+     * Miniatura, usata dalle card strette.
+     */
+    MINIATURA(256),
+
+    /**
+     * Versione a larghezza di card, sufficiente per le colonne più larghe delle bacheche.
+     */
+    CARD(512),
+
+    /**
+     * L'immagine originale, senza limiti di larghezza.
+     */
+    ORIGINALE(Integer.MAX_VALUE);
+
+    /**
+     * Larghezza massima in pixel della variante.
+     */
+    private final int larghezzaMassima;
+
+    /**
+     * Costruttore privato dell'enum.
+     *
+     * @param larghezzaMassima La larghezza massima in pixel della variante.
+     */
+    VarianteImmagine(int larghezzaMassima) {
+        this.larghezzaMassima = larghezzaMassima;
+    }
+
+    /**
+     * Restituisce la larghezza massima in pixel della variante.
+     * Le immagini originali più strette vengono salvate così come sono.
+     *
+     * @return La larghezza massima.
+     */
+    public int getLarghezzaMassima() {
+        return larghezzaMassima;
+    }
+
+    /**
+     * Restituisce la variante più piccola che può essere mostrata alla larghezza indicata senza ingrandirla.
+     *
+     * @param larghezza La larghezza da mostrare, in pixel.
+     * @return La variante più adatta.
+     */
+    public static VarianteImmagine perLarghezza(int larghezza) {
+        for (VarianteImmagine v : values()) {
+            if (larghezza <= v.larghezzaMassima) return v;
+        }
+        return ORIGINALE;
+    }
+}
@@ -0,0 +1,129 @@
+package util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Classe di utilità per la lettura e il ridimensionamento delle immagini.
+ * <p>
+ * Questa classe è definita come <i>utility class</i>: possiede un costruttore privato
+ * e tutti i suoi metodi sono statici.
+ */
+public class Immagini {
+
+    /**
+     * Numero massimo di pixel (dichiarati nell'intestazione) di un'immagine da leggere.
+     * Protegge da file costruiti per esaurire la memoria in decodifica.
+     */
+    public static final long MAX_PIXEL_SORGENTE = 200_000_000L;
+
+    /**
+     * Costruttore privato per impedire l'istanziazione della classe.
+     * I metodi di questa classe sono statici e devono essere acceduti direttamente.
+     */
+    private Immagini() {
+    }
+
+    /**
+     * Riduce un'immagine con dimezzamenti successivi in interpolazione bilineare.
+     * <p>
+     * Ogni passaggio dimezza al più le dimensioni, così l'interpolazione bilineare (veloce e
+     * accelerata da Java2D) non salta pixel e il risultato resta paragonabile a un filtro ad
+     * area, a una frazione del costo di {@link Image#SCALE_AREA_AVERAGING}.
+     *
+     * @param sorgente  L'immagine originale (già caricata).
+     * @param larghezza La larghezza finale.
+     * @param altezza   L'altezza finale.
+     * @return Una nuova immagine delle dimensioni richieste.
+     */
+    public static BufferedImage riduci(Image sorgente, int larghezza, int altezza) {
+        int w = sorgente.getWidth(null);
+        int h = sorgente.getHeight(null);
+        Image corrente = sorgente;
+        BufferedImage passo;
+        do {
+            w = Math.max(larghezza, w / 2);
+            h = Math.max(altezza, h / 2);
+            passo = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = passo.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(corrente, 0, 0, w, h, null);
+            g.dispose();
+            corrente = passo;
+        } while (w != larghezza || h != altezza);
+        return passo;
+    }
+
+    /**
+     * Legge un'immagine da file decodificandola direttamente a una risoluzione vicina a quella finale.
+     * <p>
+     * Le dimensioni vengono lette dall'intestazione, senza decodificare i pixel; il lettore
+     * {@link ImageReader} legge poi dal file una riga ogni {@code n} (sottocampionamento), con {@code n}
+     * scelto in modo che il risultato non sia mai più piccolo delle dimensioni richieste. Il raster
+     * decodificato resta quindi sotto il quadruplo dei pixel finali, qualunque sia la dimensione della foto,
+     * e viene poi rifinito con {@link #riduci(Image, int, int)}.
+     *
+     * @param file          Il file da leggere.
+     * @param larghezzaMax  La larghezza massima dell'immagine restituita.
+     * @param altezzaMax    L'altezza massima dell'immagine restituita.
+     * @return L'immagine, ridotta in proporzione se eccede le dimensioni massime.
+     * @throws IOException Se il file non è un'immagine supportata, supera {@link #MAX_PIXEL_SORGENTE}
+     *                     o non può essere letto.
+     */
+    public static BufferedImage leggiRidotta(File file, int larghezzaMax, int altezzaMax) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) throw new IOException("File non leggibile");
+            Iterator<ImageReader> lettori = ImageIO.getImageReaders(in);
+            if (!lettori.hasNext()) throw new IOException("Formato immagine non supportato");
+
+            ImageReader lettore = lettori.next();
+            try {
+                lettore.setInput(in, true, true);
+                int w = lettore.getWidth(0);
+                int h = lettore.getHeight(0);
+                if ((long) w * h > MAX_PIXEL_SORGENTE) {
+                    throw new IOException("Immagine troppo grande (" + w + "x" + h + ")");
+                }
+
+                double rapporto = Math.max((double) w / larghezzaMax, (double) h / altezzaMax);
+                ImageReadParam parametri = lettore.getDefaultReadParam();
+                int passo = Math.max(1, (int) rapporto);
+                parametri.setSourceSubsampling(passo, passo, 0, 0);
+                BufferedImage letta = lettore.read(0, parametri);
+                if (letta == null) throw new IOException("Immagine vuota");
+                if (rapporto <= 1) return letta;
+
+                int finaleW = Math.max(1, (int) (w / rapporto));
+                int finaleH = Math.max(1, (int) (h / rapporto));
+                if (letta.getWidth() == finaleW && letta.getHeight() == finaleH) return letta;
+                return riduci(letta, finaleW, finaleH);
+            } finally {
+                lettore.dispose();
+            }
+        }
+    }
+
+    /**
+     * Riduce un'immagine alla larghezza massima indicata, mantenendo le proporzioni.
+     *
+     * @param sorgente         L'immagine originale (già caricata).
+     * @param larghezzaMassima La larghezza massima consentita.
+     * @return L'immagine ridotta, oppure {@code null} se l'originale è già abbastanza stretta.
+     */
+    public static BufferedImage riduciALarghezza(Image sorgente, int larghezzaMassima) {
+        int w = sorgente.getWidth(null);
+        int h = sorgente.getHeight(null);
+        if (w <= larghezzaMassima) return null;
+        int altezza = Math.max(1, (int) ((double) h / w * larghezzaMassima));
+        return riduci(sorgente, larghezzaMassima, altezza);
+    }
+}
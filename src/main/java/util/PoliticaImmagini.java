@@ -0,0 +1,169 @@
+package util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Politica di codifica delle immagini salvate nel database.
+ * <p>
+ * Le immagini vengono ridotte entro una dimensione massima e poi codificate nel formato più
+ * compatto adatto al contenuto:
+ * <ul>
+ * <li>JPEG con qualità configurabile per le immagini opache (tipicamente fotografie);</li>
+ * <li>PNG solo per le immagini che usano davvero la trasparenza.</li>
+ * </ul>
+ * La politica predefinita ({@link #predefinita()}) si configura con le proprietà di sistema
+ * {@code todo.immagini.qualitaJpeg} e {@code todo.immagini.dimensioneMax}; politiche diverse
+ * possono essere passate ai DAO che salvano immagini.
+ */
+public class PoliticaImmagini {
+
+    /**
+     * Qualità JPEG predefinita (da 0 a 1).
+     */
+    public static final float QUALITA_JPEG_PREDEFINITA = 0.85f;
+
+    /**
+     * Dimensione massima predefinita (in pixel) del lato più lungo dell'immagine salvata.
+     */
+    public static final int DIMENSIONE_MAX_PREDEFINITA = 1024;
+
+    private static final PoliticaImmagini PREDEFINITA = new PoliticaImmagini(
+            Float.parseFloat(System.getProperty("todo.immagini.qualitaJpeg", String.valueOf(QUALITA_JPEG_PREDEFINITA))),
+            Integer.getInteger("todo.immagini.dimensioneMax", DIMENSIONE_MAX_PREDEFINITA));
+
+    private final float qualitaJpeg;
+    private final int dimensioneMassima;
+
+    /**
+     * Crea una politica di codifica.
+     *
+     * @param qualitaJpeg       La qualità delle immagini JPEG, tra 0 (massima compressione) e 1.
+     * @param dimensioneMassima La dimensione massima in pixel del lato più lungo.
+     * @throws IllegalArgumentException Se i parametri sono fuori dall'intervallo consentito.
+     */
+    public PoliticaImmagini(float qualitaJpeg, int dimensioneMassima) {
+        if (qualitaJpeg < 0f || qualitaJpeg > 1f) throw new IllegalArgumentException("Qualità JPEG non valida: " + qualitaJpeg);
+        if (dimensioneMassima <= 0) throw new IllegalArgumentException("Dimensione massima non valida: " + dimensioneMassima);
+        this.qualitaJpeg = qualitaJpeg;
+        this.dimensioneMassima = dimensioneMassima;
+    }
+
+    /**
+     * Restituisce la politica configurata dalle proprietà di sistema.
+     *
+     * @return La politica predefinita.
+     */
+    public static PoliticaImmagini predefinita() {
+        return PREDEFINITA;
+    }
+
+    /**
+     * @return La qualità usata per le immagini JPEG.
+     */
+    public float getQualitaJpeg() {
+        return qualitaJpeg;
+    }
+
+    /**
+     * @return La dimensione massima in pixel del lato più lungo.
+     */
+    public int getDimensioneMassima() {
+        return dimensioneMassima;
+    }
+
+    /**
+     * Riduce l'immagine entro la dimensione massima, mantenendo le proporzioni.
+     *
+     * @param img L'immagine da limitare.
+     * @return L'immagine ridotta, o la stessa immagine se è già entro i limiti.
+     */
+    public BufferedImage limita(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        if (w <= dimensioneMassima && h <= dimensioneMassima) return img;
+        double rapporto = Math.max((double) w / dimensioneMassima, (double) h / dimensioneMassima);
+        return Immagini.riduci(img, Math.max(1, (int) (w / rapporto)), Math.max(1, (int) (h / rapporto)));
+    }
+
+    /**
+     * Codifica un'immagine secondo la politica. L'immagine deve essere già entro
+     * la dimensione massima (vedi {@link #limita(BufferedImage)}).
+     *
+     * @param img L'immagine da codificare.
+     * @return I byte dell'immagine in formato JPEG o PNG.
+     * @throws IOException Se la codifica fallisce.
+     */
+    public byte[] codifica(BufferedImage img) throws IOException {
+        return usaTrasparenza(img) ? codificaPng(img) : codificaJpeg(img);
+    }
+
+    /**
+     * Verifica se un'immagine contiene almeno un pixel non completamente opaco.
+     * Le immagini con canale alfa ma tutte opache (es. PNG esportati senza trasparenza)
+     * sono considerate opache.
+     *
+     * @param img L'immagine da esaminare.
+     * @return {@code true} se l'immagine usa la trasparenza.
+     */
+    public static boolean usaTrasparenza(BufferedImage img) {
+        if (!img.getColorModel().hasAlpha()) return false;
+        int w = img.getWidth();
+        int[] riga = new int[w];
+        for (int y = 0; y < img.getHeight(); y++) {
+            img.getRGB(0, y, w, 1, riga, 0, w);
+            for (int argb : riga) {
+                if ((argb >>> 24) != 0xFF) return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] codificaPng(BufferedImage img) throws IOException {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            ImageIO.write(img, "png", baos);
+            return baos.toByteArray();
+        }
+    }
+
+    private byte[] codificaJpeg(BufferedImage img) throws IOException {
+        Iterator<ImageWriter> scrittori = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!scrittori.hasNext()) return codificaPng(img);
+
+        ImageWriter scrittore = scrittori.next();
+        ImageWriteParam parametri = scrittore.getDefaultWriteParam();
+        parametri.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parametri.setCompressionQuality(qualitaJpeg);
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(baos)) {
+            scrittore.setOutput(out);
+            scrittore.write(null, new IIOImage(senzaAlfa(img), null, null), parametri);
+            out.flush();
+            return baos.toByteArray();
+        } finally {
+            scrittore.dispose();
+        }
+    }
+
+    /**
+     * Il codificatore JPEG non accetta immagini con canale alfa: le converte in RGB.
+     */
+    private static BufferedImage senzaAlfa(BufferedImage img) {
+        if (!img.getColorModel().hasAlpha()) return img;
+        BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = rgb.createGraphics();
+        g2.drawImage(img, 0, 0, Color.WHITE, null);
+        g2.dispose();
+        return rgb;
+    }
+}
@@ -0,0 +1,125 @@
+package util;
+
+import java.util.List;
+
+/**
+ * Classe di utilità per le chiavi di ordinamento "a intervalli" (rank) di ToDo e bacheche.
+ * <p>
+ * Invece di numerare gli elementi 0, 1, 2, ... le posizioni vengono distanziate di {@link #PASSO}:
+ * inserire un elemento tra due vicini richiede solo di scegliere un valore intermedio,
+ * quindi uno spostamento scrive una sola riga invece di rinumerare tutti gli elementi successivi.
+ * Quando lo spazio tra due vicini si esaurisce, le chiavi della lista vengono ridistribuite
+ * con {@link #distribuisci(int)}.
+ * <p>
+ * Questa classe è definita come <i>utility class</i>: possiede un costruttore privato
+ * e tutti i suoi metodi sono statici.
+ */
+public class Rango {
+
+    /**
+     * Distanza tra due chiavi consecutive dopo una ridistribuzione.
+     * Permette circa 20 inserimenti consecutivi nello stesso intervallo prima di dover ribilanciare.
+     */
+    public static final long PASSO = 1L << 20;
+
+    /**
+     * Distanza minima tra due vicini al di sotto della quale conviene ribilanciare in anticipo,
+     * prima che lo spazio si esaurisca del tutto.
+     */
+    public static final long SOGLIA_RIBILANCIAMENTO = 1L << 4;
+
+    /**
+     * Costruttore privato per impedire l'istanziazione della classe.
+     * I metodi di questa classe sono statici e devono essere acceduti direttamente.
+     */
+    private Rango() {
+    }
+
+    /**
+     * Restituisce la chiave da usare per un elemento collocato dopo {@code precedente}.
+     *
+     * @param precedente La chiave dell'ultimo elemento.
+     * @return Una chiave maggiore di {@code precedente}.
+     */
+    public static long dopo(long precedente) {
+        return precedente + PASSO;
+    }
+
+    /**
+     * Restituisce la chiave da usare per un elemento collocato prima di {@code successivo}.
+     *
+     * @param successivo La chiave del primo elemento.
+     * @return Una chiave minore di {@code successivo}.
+     */
+    public static long prima(long successivo) {
+        return successivo - PASSO;
+    }
+
+    /**
+     * Verifica se tra due chiavi c'è spazio per inserirne una intermedia.
+     *
+     * @param precedente La chiave dell'elemento precedente.
+     * @param successivo La chiave dell'elemento successivo.
+     * @return {@code true} se esiste almeno un valore strettamente compreso tra le due chiavi.
+     */
+    public static boolean haSpazio(long precedente, long successivo) {
+        return successivo > precedente && successivo - precedente > 1;
+    }
+
+    /**
+     * Restituisce la chiave intermedia tra due vicini.
+     * Va invocato solo se {@link #haSpazio(long, long)} è vero.
+     *
+     * @param precedente La chiave dell'elemento precedente.
+     * @param successivo La chiave dell'elemento successivo.
+     * @return La chiave a metà strada tra le due.
+     */
+    public static long tra(long precedente, long successivo) {
+        return precedente + (successivo - precedente) / 2;
+    }
+
+    /**
+     * Calcola la chiave per l'elemento all'indice {@code indice} di una lista di chiavi,
+     * considerando i soli vicini (l'elemento stesso è già stato inserito nella lista).
+     *
+     * @param chiavi Le chiavi della lista, nell'ordine visivo, incluso l'elemento da posizionare.
+     * @param indice L'indice dell'elemento da posizionare.
+     * @return La nuova chiave, o {@code null} se tra i vicini non c'è più spazio.
+     */
+    public static Long perIndice(List<Long> chiavi, int indice) {
+        boolean haPrecedente = indice > 0;
+        boolean haSuccessivo = indice < chiavi.size() - 1;
+
+        if (!haPrecedente && !haSuccessivo) return PASSO;
+        if (!haPrecedente) return prima(chiavi.get(indice + 1));
+        if (!haSuccessivo) return dopo(chiavi.get(indice - 1));
+
+        long precedente = chiavi.get(indice - 1);
+        long successivo = chiavi.get(indice + 1);
+        return haSpazio(precedente, successivo) ? tra(precedente, successivo) : null;
+    }
+
+    /**
+     * Verifica se una chiave appena assegnata è troppo vicina ai suoi vicini,
+     * segnalando che la lista andrebbe ribilanciata.
+     *
+     * @param chiavi Le chiavi della lista, nell'ordine visivo.
+     * @param indice L'indice dell'elemento appena posizionato.
+     * @return {@code true} se la distanza da uno dei vicini è sotto {@link #SOGLIA_RIBILANCIAMENTO}.
+     */
+    public static boolean richiedeRibilanciamento(List<Long> chiavi, int indice) {
+        long chiave = chiavi.get(indice);
+        if (indice > 0 && chiave - chiavi.get(indice - 1) < SOGLIA_RIBILANCIAMENTO) return true;
+        return indice < chiavi.size() - 1 && chiavi.get(indice + 1) - chiave < SOGLIA_RIBILANCIAMENTO;
+    }
+
+    /**
+     * Restituisce la chiave ridistribuita per l'elemento all'indice {@code indice}.
+     *
+     * @param indice L'indice dell'elemento nella lista.
+     * @return La chiave equidistanziata corrispondente.
+     */
+    public static long distribuisci(int indice) {
+        return (indice + 1L) * PASSO;
+    }
+}